@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkArgument;
+import static org.github.com.jvec.msgpack.core.Preconditions.checkNotNull;
+
+/**
+ * {@link MessageBufferInput} adapter for a {@link MemorySegment} of any size, e.g. a memory-mapped log file larger
+ * than 2 GB. The segment is read with a long offset and handed out in windows of at most chunkSize bytes, without
+ * copying. The lifetime of the memory is that of the arena of the segment, closing this input does not release it.
+ */
+public class MemorySegmentBufferInput
+        implements MessageBufferInput
+{
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private MemorySegment segment;
+    private final int chunkSize;
+    private long position;
+
+    public MemorySegmentBufferInput(MemorySegment segment)
+    {
+        this(segment, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MemorySegmentBufferInput(MemorySegment segment, int chunkSize)
+    {
+        checkArgument(chunkSize > 0, "chunkSize must be > 0");
+        this.segment = checkNotNull(segment, "segment is null");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Maps the whole file read-only into the given arena. The mapping is released when the arena is closed.
+     *
+     * @param file  the file to read
+     * @param arena the arena owning the mapping
+     * @return an input reading the mapped file
+     */
+    public static MemorySegmentBufferInput map(Path file, Arena arena)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MemorySegmentBufferInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        }
+    }
+
+    /**
+     * Reset segment. This method doesn't close the old segment.
+     *
+     * @param segment new segment
+     * @return the old segment
+     */
+    public MemorySegment reset(MemorySegment segment)
+    {
+        MemorySegment old = this.segment;
+        this.segment = checkNotNull(segment, "segment is null");
+        this.position = 0;
+        return old;
+    }
+
+    /**
+     * Returns the offset within the segment up to which windows have been handed out.
+     */
+    public long position()
+    {
+        return position;
+    }
+
+    @Override
+    public MessageBuffer next()
+    {
+        long remaining = segment.byteSize() - position;
+        if (remaining <= 0) {
+            return null;
+        }
+        long length = Math.min(remaining, chunkSize);
+        MessageBuffer window = new MessageBufferMS(segment.asSlice(position, length));
+        position += length;
+        return window;
+    }
+
+    @Override
+    public void close()
+    {
+        // The arena of the segment owns the memory
+    }
+}
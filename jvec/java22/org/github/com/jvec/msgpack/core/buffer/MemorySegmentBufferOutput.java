@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkArgument;
+import static org.github.com.jvec.msgpack.core.Preconditions.checkNotNull;
+
+/**
+ * MessageBufferOutput adapter that packs messages straight into a {@link MemorySegment} of any size, e.g. off-heap
+ * memory of an arena or a memory-mapped log file larger than 2 GB. The packer writes into windows of the segment at
+ * a long offset, so nothing is copied on flush. Writing past the end of the segment throws an IOException.
+ * The lifetime of the memory is that of the arena of the segment, closing this output does not release it.
+ */
+public class MemorySegmentBufferOutput
+        implements MessageBufferOutput
+{
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private MemorySegment segment;
+    private final int chunkSize;
+    private long position;
+    private long windowOffset;
+
+    public MemorySegmentBufferOutput(MemorySegment segment)
+    {
+        this(segment, DEFAULT_CHUNK_SIZE);
+    }
+
+    public MemorySegmentBufferOutput(MemorySegment segment, int chunkSize)
+    {
+        checkArgument(chunkSize > 0, "chunkSize must be > 0");
+        this.segment = checkNotNull(segment, "segment is null");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Allocates an off-heap segment of the given capacity from the arena, which frees it when it is closed.
+     */
+    public static MemorySegmentBufferOutput allocate(Arena arena, long capacity)
+    {
+        return new MemorySegmentBufferOutput(arena.allocate(capacity));
+    }
+
+    /**
+     * Maps the given file with the given size read-write into the arena, which unmaps it when it is closed.
+     * The file is created if it does not exist.
+     */
+    public static MemorySegmentBufferOutput map(Path file, long size, Arena arena)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new MemorySegmentBufferOutput(channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena));
+        }
+    }
+
+    /**
+     * Reset segment. This method doesn't close the old segment.
+     *
+     * @param segment new segment
+     * @return the old segment
+     */
+    public MemorySegment reset(MemorySegment segment)
+    {
+        MemorySegment old = this.segment;
+        this.segment = checkNotNull(segment, "segment is null");
+        this.position = 0;
+        return old;
+    }
+
+    /**
+     * Returns the number of bytes written to the segment.
+     */
+    public long position()
+    {
+        return position;
+    }
+
+    /**
+     * Returns the written part of the segment.
+     */
+    public MemorySegment written()
+    {
+        return segment.asSlice(0, position);
+    }
+
+    @Override
+    public MessageBuffer next(int minimumSize)
+            throws IOException
+    {
+        long remaining = segment.byteSize() - position;
+        if (remaining < minimumSize) {
+            throw new IOException("The segment is full: " + remaining + " bytes left, " + minimumSize + " needed");
+        }
+        windowOffset = position;
+        return new MessageBufferMS(segment.asSlice(position, Math.min(remaining, Math.max(chunkSize, minimumSize))));
+    }
+
+    @Override
+    public void writeBuffer(int length)
+    {
+        position = windowOffset + length;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        if (segment.byteSize() - position < length) {
+            throw new IOException("The segment is full: " + (segment.byteSize() - position) + " bytes left, "
+                    + length + " needed");
+        }
+        MemorySegment.copy(buffer, offset, segment, ValueLayout.JAVA_BYTE, position, length);
+        position += length;
+    }
+
+    @Override
+    public void add(byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        write(buffer, offset, length);
+    }
+
+    /**
+     * Forces the written part of a memory-mapped segment to the storage device.
+     */
+    @Override
+    public void flush()
+    {
+        if (segment.isMapped()) {
+            written().force();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        flush();
+    }
+}
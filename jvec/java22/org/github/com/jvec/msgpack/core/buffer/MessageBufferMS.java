@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkArgument;
+
+/**
+ * MessageBufferMS is a {@link MessageBuffer} backed by a {@link MemorySegment} of the Foreign Memory API (Java 22+),
+ * e.g. off-heap memory allocated from an {@link java.lang.foreign.Arena} or a memory-mapped file.
+ * <p>
+ * The memory is released deterministically when its arena is closed, accessing the buffer afterwards throws
+ * IllegalStateException instead of crashing the JVM. A single MessageBuffer is limited to 2 GB by its int indexes;
+ * {@link MemorySegmentBufferInput} and {@link MemorySegmentBufferOutput} walk larger segments with long offsets and
+ * hand out windows of them as MessageBufferMS instances.
+ */
+public class MessageBufferMS
+        extends MessageBuffer
+{
+    private static final ValueLayout.OfShort SHORT_BE = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt INT_BE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG_BE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final MemorySegment segment;
+
+    MessageBufferMS(MemorySegment segment)
+    {
+        super((Object) null, 0L, checkSize(segment));
+        this.segment = segment;
+    }
+
+    private static int checkSize(MemorySegment segment)
+    {
+        if (segment.byteSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A MessageBuffer cannot be larger than 2 GB, but the segment has "
+                    + segment.byteSize() + " bytes. Use MemorySegmentBufferInput or MemorySegmentBufferOutput instead.");
+        }
+        return (int) segment.byteSize();
+    }
+
+    /**
+     * Wraps a memory segment of at most 2 GB into a MessageBuffer.
+     * Modifications to the new MessageBuffer will cause the segment to be modified and vice versa.
+     *
+     * @param segment the segment that will back this MessageBuffer
+     * @return a new MessageBuffer that wraps the given segment
+     */
+    public static MessageBufferMS wrap(MemorySegment segment)
+    {
+        return new MessageBufferMS(segment);
+    }
+
+    /**
+     * Returns the memory segment backing this buffer.
+     */
+    public MemorySegment segment()
+    {
+        return segment;
+    }
+
+    @Override
+    public MessageBufferMS slice(int offset, int length)
+    {
+        if (offset == 0 && length == size()) {
+            return this;
+        }
+        checkArgument(offset + length <= size());
+        return new MessageBufferMS(segment.asSlice(offset, length));
+    }
+
+    @Override
+    public boolean hasArray()
+    {
+        return false;
+    }
+
+    @Override
+    public byte getByte(int index)
+    {
+        return segment.get(ValueLayout.JAVA_BYTE, index);
+    }
+
+    @Override
+    public boolean getBoolean(int index)
+    {
+        return getByte(index) != 0;
+    }
+
+    @Override
+    public short getShort(int index)
+    {
+        return segment.get(SHORT_BE, index);
+    }
+
+    @Override
+    public int getInt(int index)
+    {
+        return segment.get(INT_BE, index);
+    }
+
+    @Override
+    public long getLong(int index)
+    {
+        return segment.get(LONG_BE, index);
+    }
+
+    @Override
+    public void getBytes(int index, byte[] dst, int dstOffset, int length)
+    {
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void putByte(int index, byte v)
+    {
+        segment.set(ValueLayout.JAVA_BYTE, index, v);
+    }
+
+    @Override
+    public void putBoolean(int index, boolean v)
+    {
+        putByte(index, v ? (byte) 1 : (byte) 0);
+    }
+
+    @Override
+    public void putShort(int index, short v)
+    {
+        segment.set(SHORT_BE, index, v);
+    }
+
+    @Override
+    public void putInt(int index, int v)
+    {
+        segment.set(INT_BE, index, v);
+    }
+
+    @Override
+    public void putLong(int index, long l)
+    {
+        segment.set(LONG_BE, index, l);
+    }
+
+    @Override
+    public void putBytes(int index, byte[] src, int srcOffset, int length)
+    {
+        MemorySegment.copy(src, srcOffset, segment, ValueLayout.JAVA_BYTE, index, length);
+    }
+
+    @Override
+    public void putByteBuffer(int index, ByteBuffer src, int len)
+    {
+        assert (len <= src.remaining());
+
+        MemorySegment.copy(MemorySegment.ofBuffer(src), 0, segment, index, len);
+        src.position(src.position() + len);
+    }
+
+    @Override
+    public void putMessageBuffer(int index, MessageBuffer src, int srcOffset, int len)
+    {
+        if (src instanceof MessageBufferMS) {
+            MemorySegment.copy(((MessageBufferMS) src).segment, srcOffset, segment, index, len);
+        }
+        else if (src.hasArray()) {
+            putBytes(index, src.array(), src.arrayOffset() + srcOffset, len);
+        }
+        else {
+            putByteBuffer(index, src.sliceAsByteBuffer(srcOffset, len), len);
+        }
+    }
+
+    @Override
+    public ByteBuffer sliceAsByteBuffer(int index, int length)
+    {
+        return segment.asSlice(index, length).asByteBuffer();
+    }
+
+    @Override
+    public ByteBuffer sliceAsByteBuffer()
+    {
+        return segment.asByteBuffer();
+    }
+
+    @Override
+    public byte[] toByteArray()
+    {
+        return segment.toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    @Override
+    public void copyTo(int index, MessageBuffer dst, int offset, int length)
+    {
+        if (dst instanceof MessageBufferMS) {
+            MemorySegment.copy(segment, index, ((MessageBufferMS) dst).segment, offset, length);
+        }
+        else {
+            dst.putByteBuffer(offset, sliceAsByteBuffer(index, length), length);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkArgument;
+
+/**
+ * MessageBufferVH is a {@link MessageBuffer} implementation for Java 9 and later that accesses the memory through
+ * byte array and ByteBuffer view VarHandles instead of sun.misc.Unsafe. The JIT compiles the big-endian view
+ * accesses to single loads and stores with a byte swap, which is as fast as the Unsafe-based default implementation.
+ * <p>
+ * This class is part of the Java 9 root of the multi-release jar, so it is only visible to Java 9+ runtimes, where
+ * MessageBuffer selects it by reflection. Direct ByteBuffers are supported without accessing their addresses.
+ */
+class MessageBufferVH
+        extends MessageBuffer
+{
+    private static final VarHandle ARRAY_SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle ARRAY_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle ARRAY_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * The backing array, or null if the memory is a direct ByteBuffer
+     */
+    private final byte[] array;
+
+    /**
+     * The offset of this buffer within the array
+     */
+    private final int offset;
+
+    /**
+     * A view of the memory starting at index 0 if it is a direct ByteBuffer, null otherwise
+     */
+    private final ByteBuffer direct;
+
+    MessageBufferVH(byte[] arr, int offset, int length)
+    {
+        super(arr, offset, length);
+        this.array = arr;
+        this.offset = offset;
+        this.direct = null;
+    }
+
+    MessageBufferVH(ByteBuffer bb)
+    {
+        this(arrayOf(bb), bb.isDirect() ? 0 : bb.arrayOffset() + bb.position(),
+                bb.remaining(), bb.isDirect() ? bb.slice() : null);
+    }
+
+    private static byte[] arrayOf(ByteBuffer bb)
+    {
+        if (bb.isDirect()) {
+            return null;
+        }
+        if (!bb.hasArray()) {
+            throw new IllegalArgumentException("Only the array-backed ByteBuffer or DirectBuffer is supported");
+        }
+        return bb.array();
+    }
+
+    private MessageBufferVH(byte[] array, int offset, int length, ByteBuffer direct)
+    {
+        super((Object) array, array == null ? 0L : ARRAY_BYTE_BASE_OFFSET + offset, length);
+        this.array = array;
+        this.offset = offset;
+        this.direct = direct;
+    }
+
+    @Override
+    public MessageBufferVH slice(int offset, int length)
+    {
+        if (offset == 0 && length == size()) {
+            return this;
+        }
+        checkArgument(offset + length <= size());
+        if (array != null) {
+            return new MessageBufferVH(array, this.offset + offset, length, null);
+        }
+        return new MessageBufferVH(null, 0, length, sliceDirect(offset, length));
+    }
+
+    private ByteBuffer sliceDirect(int index, int length)
+    {
+        ByteBuffer view = direct.duplicate();
+        view.position(index);
+        view.limit(index + length);
+        return view.slice();
+    }
+
+    @Override
+    public byte getByte(int index)
+    {
+        return array != null ? array[offset + index] : direct.get(index);
+    }
+
+    @Override
+    public boolean getBoolean(int index)
+    {
+        return getByte(index) != 0;
+    }
+
+    @Override
+    public short getShort(int index)
+    {
+        return array != null ? (short) ARRAY_SHORT.get(array, offset + index) : (short) BUFFER_SHORT.get(direct, index);
+    }
+
+    @Override
+    public int getInt(int index)
+    {
+        return array != null ? (int) ARRAY_INT.get(array, offset + index) : (int) BUFFER_INT.get(direct, index);
+    }
+
+    @Override
+    public long getLong(int index)
+    {
+        return array != null ? (long) ARRAY_LONG.get(array, offset + index) : (long) BUFFER_LONG.get(direct, index);
+    }
+
+    @Override
+    public void getBytes(int index, byte[] dst, int dstOffset, int length)
+    {
+        if (array != null) {
+            System.arraycopy(array, offset + index, dst, dstOffset, length);
+        }
+        else {
+            direct.duplicate().position(index).get(dst, dstOffset, length);
+        }
+    }
+
+    @Override
+    public void putByte(int index, byte v)
+    {
+        if (array != null) {
+            array[offset + index] = v;
+        }
+        else {
+            direct.put(index, v);
+        }
+    }
+
+    @Override
+    public void putBoolean(int index, boolean v)
+    {
+        putByte(index, v ? (byte) 1 : (byte) 0);
+    }
+
+    @Override
+    public void putShort(int index, short v)
+    {
+        if (array != null) {
+            ARRAY_SHORT.set(array, offset + index, v);
+        }
+        else {
+            BUFFER_SHORT.set(direct, index, v);
+        }
+    }
+
+    @Override
+    public void putInt(int index, int v)
+    {
+        if (array != null) {
+            ARRAY_INT.set(array, offset + index, v);
+        }
+        else {
+            BUFFER_INT.set(direct, index, v);
+        }
+    }
+
+    @Override
+    public void putLong(int index, long l)
+    {
+        if (array != null) {
+            ARRAY_LONG.set(array, offset + index, l);
+        }
+        else {
+            BUFFER_LONG.set(direct, index, l);
+        }
+    }
+
+    @Override
+    public void putBytes(int index, byte[] src, int srcOffset, int length)
+    {
+        if (array != null) {
+            System.arraycopy(src, srcOffset, array, offset + index, length);
+        }
+        else {
+            direct.duplicate().position(index).put(src, srcOffset, length);
+        }
+    }
+
+    @Override
+    public void putByteBuffer(int index, ByteBuffer src, int len)
+    {
+        assert (len <= src.remaining());
+
+        if (src.hasArray()) {
+            putBytes(index, src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.position() + len);
+        }
+        else {
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + len);
+            sliceAsByteBuffer(index, len).put(part);
+            src.position(src.position() + len);
+        }
+    }
+
+    @Override
+    public void putMessageBuffer(int index, MessageBuffer src, int srcOffset, int len)
+    {
+        if (src.hasArray()) {
+            putBytes(index, src.array(), src.arrayOffset() + srcOffset, len);
+        }
+        else {
+            putByteBuffer(index, src.sliceAsByteBuffer(srcOffset, len), len);
+        }
+    }
+
+    @Override
+    public ByteBuffer sliceAsByteBuffer(int index, int length)
+    {
+        if (array != null) {
+            return ByteBuffer.wrap(array, offset + index, length).slice();
+        }
+        return sliceDirect(index, length);
+    }
+
+    @Override
+    public ByteBuffer sliceAsByteBuffer()
+    {
+        return sliceAsByteBuffer(0, size());
+    }
+
+    @Override
+    public byte[] toByteArray()
+    {
+        byte[] b = new byte[size()];
+        getBytes(0, b, 0, b.length);
+        return b;
+    }
+
+    @Override
+    public void copyTo(int index, MessageBuffer dst, int offset, int length)
+    {
+        dst.putByteBuffer(offset, sliceAsByteBuffer(index, length), length);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec;
+
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A short summary of the vector clock of a JVec instance that lets receivers
+ * skip decoding the clock if they already know all of it but the entry of
+ * the sender.
+ * The digest is the frontier of the clock: a few events (pid, time) of other
+ * processes whose clocks jointly dominate all entries but the own one.
+ * A process whose clock has reached the time of every frontier event knows
+ * their clocks, so it only has to merge the entry of the sender.
+ * Every merge of a remote clock Q sent by process "src" adds the event
+ * (src, Q[src]) to the frontier and drops all events Q already knows, which
+ * keeps the frontier small in request/response patterns.
+ * Modifications of the clock outside of JVec, detected through
+ * {@link VClock#getModCount()}, reset the frontier to all entries of the clock.
+ * A process only skips remote clocks while its own frontier is small, else it
+ * decodes them to shrink the frontier again.
+ */
+final class ClockDigest {
+
+    /**
+     * Frontiers with more events are not sent, checking them would cost
+     * about as much as merging the clock.
+     */
+    static final int MAX_EVENTS = 8;
+
+    /**
+     * Smaller clocks are decoded quickly, a digest would only make their
+     * messages longer.
+     */
+    static final int MIN_CLOCK_SIZE = 16;
+
+    private final String pid;
+    private final HashMap<String, Long> frontier = new HashMap<>();
+    private int modCount;
+    private boolean reset;
+
+    ClockDigest(String pid) {
+        this.pid = pid;
+    }
+
+    /**
+     * Resets the frontier to all entries of "vc" if the clock was modified
+     * outside of JVec. Has to be called before JVec modifies the clock.
+     */
+    void check(VClock vc) {
+        if (reset || vc.getModCount() != modCount) {
+            reset = false;
+            frontier.clear();
+            for (VClock.Cursor clock = vc.cursor(); clock.next(); ) {
+                add(clock.pid(), clock.ticks());
+            }
+            sync(vc);
+        }
+    }
+
+    /**
+     * Marks the frontier as matching "vc" after a JVec operation updated both.
+     */
+    void sync(VClock vc) {
+        modCount = vc.getModCount();
+    }
+
+    /**
+     * Returns true if the frontier of "vc" is small enough to be sent.
+     * Only then a receive may skip a dominated clock, otherwise the clock
+     * is decoded to shrink the frontier.
+     */
+    boolean isCompact(VClock vc) {
+        check(vc);
+        return frontier.size() <= MAX_EVENTS;
+    }
+
+    /**
+     * Drops the event of "eventPid" from the frontier if a remote clock with
+     * the entry (eventPid, ticks) knows it. This is called for all entries of
+     * a remote clock that is merged entry by entry, followed by merged.
+     */
+    void remoteEntry(String eventPid, long ticks) {
+        Long known = frontier.get(eventPid);
+        if (known != null && known <= ticks) {
+            frontier.remove(eventPid);
+        }
+    }
+
+    /**
+     * Updates the frontier after "remoteClock", sent by "src" at its time
+     * "srcTicks", was merged. "remoteClock" is null if it was not kept,
+     * "src" is null if the sender is unknown.
+     */
+    void merged(String src, long srcTicks, VClock remoteClock) {
+        if (remoteClock != null) {
+            for (Iterator<Map.Entry<String, Long>> it = frontier.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> event = it.next();
+                if (remoteClock.findTicks(event.getKey()) >= event.getValue()) {
+                    it.remove();
+                }
+            }
+        }
+        if (src != null && srcTicks > 0) {
+            add(src, srcTicks);
+        } else if (remoteClock != null) {
+            for (VClock.Cursor clock = remoteClock.cursor(); clock.next(); ) {
+                add(clock.pid(), clock.ticks());
+            }
+        } else {
+            // The events of the remote clock are unknown, start over with the local clock
+            reset = true;
+        }
+    }
+
+    private void add(String eventPid, long ticks) {
+        if (eventPid.equals(pid)) {
+            return;
+        }
+        Long known = frontier.get(eventPid);
+        if (known == null || known < ticks) {
+            frontier.put(eventPid, ticks);
+        }
+    }
+
+    /**
+     * Writes the digest of "vc" as an array of the own time value followed by
+     * the (pid, time) pairs of the frontier, or nothing if the digest does not pay off.
+     */
+    void pack(MessagePacker packer, VClock vc) throws IOException {
+        check(vc);
+        if (frontier.isEmpty() || frontier.size() > MAX_EVENTS || vc.size() < MIN_CLOCK_SIZE) {
+            return;
+        }
+        packer.packArrayHeader(1 + 2 * frontier.size());
+        packer.packLong(vc.findTicks(pid));
+        for (Map.Entry<String, Long> event : frontier.entrySet()) {
+            packer.packString(event.getKey());
+            packer.packLong(event.getValue());
+        }
+    }
+
+    /**
+     * Reads a digest written by pack. Returns the time value of the sender if
+     * "vc" already knows all other entries of the remote clock, -1 otherwise.
+     */
+    static long unpackDominated(MessageUnpacker unpacker, VClock vc) throws IOException {
+        int length = unpacker.unpackArrayHeader();
+        long srcTicks = unpacker.unpackLong();
+        for (int i = 1; i < length; i += 2) {
+            String eventPid = unpacker.unpackString();
+            long ticks = unpacker.unpackLong();
+            if (vc.findTicks(eventPid) < ticks) {
+                srcTicks = -1;
+            }
+        }
+        return srcTicks;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec;
+
+import org.github.com.jvec.msgpack.core.MessageFormat;
+import org.github.com.jvec.msgpack.core.MessageStreamParser;
+import org.github.com.jvec.msgpack.value.ValueType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a stream of JVector messages, as produced by prepareSend, back into
+ * single messages while the bytes arrive in arbitrary pieces, e.g. from a
+ * non-blocking SocketChannel.
+ * The bytes of each read are passed to {@link #feed(ByteBuffer)}, every
+ * message they complete is handed to the {@link FrameHandler} and can be
+ * decoded with unpackReceive. A message split over several reads is kept
+ * until its last byte arrives, the bytes before it are not parsed again.
+ * A parser is not thread-safe, each connection needs its own.
+ */
+public class FrameParser {
+
+    /**
+     * Receives the messages found by a FrameParser.
+     */
+    public interface FrameHandler {
+        void onFrame(byte[] frame) throws IOException;
+    }
+
+    /**
+     * A message consists of the sender pid, the payload, an optional clock
+     * digest and the clock, which is the only map or extension value.
+     */
+    private static final MessageStreamParser.Framing JVEC_FRAMING = new MessageStreamParser.Framing() {
+        @Override
+        public boolean isComplete(int index, MessageFormat format) {
+            ValueType type = format.getValueType();
+            return index >= 2 && (type == ValueType.MAP || type == ValueType.EXTENSION);
+        }
+    };
+
+    private final MessageStreamParser parser;
+
+    public FrameParser(FrameHandler handler) {
+        this(handler, 64 * 1024 * 1024);
+    }
+
+    /**
+     * @param handler        Receives every complete message.
+     * @param maxMessageSize The size in bytes above which a message is rejected
+     *                       with a MessageSizeException.
+     */
+    public FrameParser(final FrameHandler handler, int maxMessageSize) {
+        this.parser = new MessageStreamParser(new MessageStreamParser.MessageHandler() {
+            @Override
+            public void onMessage(byte[] buffer, int offset, int length) throws IOException {
+                handler.onFrame(Arrays.copyOfRange(buffer, offset, offset + length));
+            }
+        }, JVEC_FRAMING, maxMessageSize);
+    }
+
+    /**
+     * Parses the remaining bytes of "data" and advances its position to its limit.
+     */
+    public void feed(ByteBuffer data) throws IOException {
+        this.parser.feed(data);
+    }
+
+    public void feed(byte[] data, int offset, int length) throws IOException {
+        this.parser.feed(data, offset, length);
+    }
+
+    /**
+     * Returns the number of bytes received of the message that is not complete yet.
+     */
+    public int getBufferedSize() {
+        return this.parser.getBufferedSize();
+    }
+
+    /**
+     * Drops the incomplete message, e.g. after reconnecting.
+     */
+    public void reset() {
+        this.parser.reset();
+    }
+}
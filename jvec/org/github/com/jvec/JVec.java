@@ -25,15 +25,27 @@
 
 package org.github.com.jvec;
 
-import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.clock.ClockStrategy;
+import org.github.com.jvec.jfr.JfrEvents;
+import org.github.com.jvec.log.Attributes;
+import org.github.com.jvec.log.FileLogSink;
+import org.github.com.jvec.log.LogMessage;
+import org.github.com.jvec.log.LogSink;
 import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
 import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.msgpack.core.PackedString;
+import org.github.com.jvec.msgpack.core.buffer.ArrayBufferInput;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+import org.github.com.jvec.msgpack.core.buffer.MessageBufferPool;
+import org.github.com.jvec.msgpack.core.buffer.PooledBufferOutput;
+import org.github.com.jvec.msgpack.value.ValueType;
 import org.github.com.jvec.vclock.VClock;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * This is the basic JVec class used in any JVector application.
@@ -42,17 +54,89 @@ import java.util.Map;
  * This class is the basis of any further operation in JVector.
  * Any log files with the same name as "logName" will be overwritten. "pid"
  * should be unique in the current distributed system.
+ * Instead of a file of its own, a JVec instance may also write to a LogSink
+ * that is shared with other instances, see {@link org.github.com.jvec.log.SharedLogSink}.
+ * Messages carry the vector clock of the sender unless the instance is created
+ * with a {@link ClockStrategy}, which replaces the vector clock on the wire
+ * with a timestamp of constant size, e.g. a Lamport clock.
+ * Local, send and receive events are also emitted as JDK Flight Recorder
+ * events if they are enabled in a recording, see {@link JfrEvents}.
  */
 public class JVec {
 
+    private static final boolean JFR_EVENTS = JfrEvents.isAvailable();
+    private static final MessageBufferPool SEND_POOL = MessageBufferPool.heap(8192, 64);
+    // Clock keys are the same String instances from send to send, their encoding is kept
+    private static final MessagePack.PackerConfig SEND_CONFIG =
+            new MessagePack.PackerConfig().withStringCacheSize(256);
+    // Process names recur in every received clock, they are decoded once per instance
+    private static final MessagePack.UnpackerConfig RECEIVE_CONFIG =
+            new MessagePack.UnpackerConfig().withStringCacheSize(512);
+
     private final String pid;
+    private final PackedString packedPid;
+    private final ClockStrategy clock;
+    private final WireClock wireClock = new WireClock();
+    private final PooledBufferOutput sendOutput = new PooledBufferOutput(SEND_POOL);
+    private MessagePacker sendPacker;
+    private final ArrayBufferInput receiveInput = new ArrayBufferInput((MessageBuffer) null);
+    private MessageUnpacker receiveUnpacker;
+    private final ReceivedFrame receivedFrame = new ReceivedFrame();
+    private ClockDigest digest;
     private VClock vc;
-    private String logName;
+    private LogSink logSink;
+    private boolean ownsLogSink;
     private boolean logging;
     public JVec(String pid, String logName) {
+        this(pid, logName, null);
+    }
+
+    /**
+     * Creates a JVec instance that timestamps its messages with the given
+     * clock instead of the vector clock.
+     * The vector clock of this instance then only counts the local events
+     * of the process and is not merged with the clocks of other processes.
+     * It is still written to the log, which keeps the log ShiViz-compatible,
+     * and the timestamp of the clock is appended to every log message.
+     *
+     * @param pid     The process id, unique in the current distributed system.
+     * @param logName The name of the log file without the "-shiviz.txt" suffix.
+     * @param clock   The clock carried in the messages, or null for the vector clock.
+     */
+    public JVec(String pid, String logName, ClockStrategy clock) {
         this.pid = pid;
+        this.packedPid = PackedString.of(pid);
+        this.clock = clock;
         this.logging = true;
-        initJVector(logName);
+        initJVector(new FileLogSink(logName), true);
+    }
+
+    /**
+     * Creates a JVec instance that writes its records to the given sink.
+     * This does not touch the file system, the sink may be shared by any
+     * number of JVec instances.
+     *
+     * @param pid     The process id, unique in the current distributed system.
+     * @param logSink The sink receiving the log records of this instance.
+     */
+    public JVec(String pid, LogSink logSink) {
+        this(pid, logSink, null);
+    }
+
+    /**
+     * Creates a JVec instance that writes its records to the given sink and
+     * timestamps its messages with the given clock instead of the vector clock.
+     *
+     * @param pid     The process id, unique in the current distributed system.
+     * @param logSink The sink receiving the log records of this instance.
+     * @param clock   The clock carried in the messages, or null for the vector clock.
+     */
+    public JVec(String pid, LogSink logSink, ClockStrategy clock) {
+        this.pid = pid;
+        this.packedPid = PackedString.of(pid);
+        this.clock = clock;
+        this.logging = true;
+        initJVector(logSink, false);
     }
 
     /**
@@ -70,22 +154,34 @@ public class JVec {
     }
 
     /**
-     * Initialise the vector clock class and open a log file.
+     * Returns the clock carried in the messages, or null if this instance
+     * uses its vector clock.
+     */
+    public ClockStrategy getClockStrategy() {
+        return clock;
+    }
+
+    /**
+     * Returns the sink this instance writes its log records to.
      */
-    private void initJVector(String logName) {
+    public LogSink getLogSink() {
+        return logSink;
+    }
+
+    /**
+     * Initialise the vector clock class and attach the log sink.
+     */
+    private void initJVector(LogSink logSink, boolean ownsLogSink) {
 
         this.vc = new VClock();
         this.vc.tick(this.pid);
-        this.logging = true;
-        this.logName = logName;
-        try {
-            FileWriter fw = new FileWriter(logName + "-shiviz.txt");
-            BufferedWriter vectorLog = new BufferedWriter(fw);
-            vectorLog.close();
-        } catch (IOException e) {
-            System.err.println("Could not open log file.");
-            e.printStackTrace();
+        this.digest = new ClockDigest(this.pid);
+        if (this.clock != null) {
+            this.clock.tick();
         }
+        this.logging = true;
+        this.logSink = logSink;
+        this.ownsLogSink = ownsLogSink;
 
         try {
             writeLogMsg("Initialization Complete");
@@ -96,53 +192,124 @@ public class JVec {
     }
 
     /**
-     * Flushes the currently buffered content in the BufferedWriter to file.
-     * Instead of opening and closing a writer for each file, we buffer the
-     * output and write it once the buffer is full or this function is called.
+     * Flushes the currently buffered content of the log sink to file.
+     * Sinks that buffer their output write it once the buffer is full or
+     * this function is called.
      */
-/*    public void flushJVectorLog() {
+    public void flushJVectorLog() {
         try {
-            vectorLog.flush();
+            logSink.flush();
         } catch (IOException e) {
             System.err.println("Flushing failed:");
             e.printStackTrace();
         }
-    }*/
+    }
 
     /**
-     * Flushes the currently buffered content in the BufferedWriter to file.
-     * This function also closes the the buffer, indicating that this JVector
-     * class is finished.
+     * Flushes the currently buffered content of the log sink to file.
+     * This function also closes the sink if it belongs to this instance,
+     * indicating that this JVector class is finished. A sink shared with
+     * other instances is only flushed and has to be closed by its owner.
      */
-/*    public void closeJVectorLog() {
+    public void closeJVectorLog() {
         try {
-            vectorLog.flush();
-            vectorLog.close();
+            logSink.flush();
+            if (ownsLogSink) {
+                logSink.close();
+            }
         } catch (IOException e) {
             System.err.println("Deallocation failed:");
             e.printStackTrace();
         }
-    }*/
+    }
 
-    private boolean updateClock(String logMsg) {
+    private boolean updateClock() {
         long time = this.vc.findTicks(this.pid);
         if (time == -1) {
             System.err.println("Could not find process id in its vector clock.");
             return false;
         }
-        this.vc.tick(this.pid);
+        tickClock();
+        if (this.clock != null) {
+            this.clock.tick();
+        }
+        return true;
+    }
 
+    private void logEvent(String logMsg) {
         try {
             writeLogMsg(logMsg);
         } catch (IOException e) {
             System.err.println("Could not write to log file.");
             e.printStackTrace();
         }
-        return true;
+    }
+
+    private void logEvent(LogMessage logMsg) {
+        try {
+            writeLogMsgDeferred(logMsg);
+        } catch (IOException e) {
+            System.err.println("Could not write to log file.");
+            e.printStackTrace();
+        }
+    }
+
+    private void logEvent(String logMsg, Attributes attributes) {
+        try {
+            writeLogMsg(logMsg, attributes);
+        } catch (IOException e) {
+            System.err.println("Could not write to log file.");
+            e.printStackTrace();
+        }
+    }
+
+    private void logEvent(String logMsg, Attributes attributes, Object event) {
+        if (event == null) {
+            logEvent(logMsg, attributes);
+            return;
+        }
+        long start = System.nanoTime();
+        logEvent(logMsg, attributes);
+        JfrEvents.addLoggingTime(event, System.nanoTime() - start);
+    }
+
+    private void logEvent(String logMsg, Object event) {
+        if (event == null) {
+            logEvent(logMsg);
+            return;
+        }
+        long start = System.nanoTime();
+        logEvent(logMsg);
+        JfrEvents.addLoggingTime(event, System.nanoTime() - start);
+    }
+
+    private void logEvent(LogMessage logMsg, Object event) {
+        if (event == null) {
+            logEvent(logMsg);
+            return;
+        }
+        long start = System.nanoTime();
+        logEvent(logMsg);
+        JfrEvents.addLoggingTime(event, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns a Flight Recorder event of the given kind, or null if it is not recorded.
+     */
+    private static Object beginEvent(int kind) {
+        return JFR_EVENTS ? JfrEvents.begin(kind) : null;
+    }
+
+    private void commitEvent(Object event, int encodedBytes) {
+        if (event != null) {
+            JfrEvents.commit(event, this.pid, this.vc.findTicks(this.pid), this.vc.size(), encodedBytes);
+        }
     }
 
     /**
-     * Appends a message in the log file defined in this class.
+     * Appends a message in the log sink defined in this class.
+     * If the instance has a clock strategy, its timestamp is appended
+     * to the message, e.g. "Sending Message [lamport=42]".
      *
      * @param logMsg Custom message that will be written to the log.
      */
@@ -150,12 +317,46 @@ public class JVec {
         if (!this.logging) {
             return;
         }
-        FileWriter fw = new FileWriter(this.logName + "-shiviz.txt", true);
-        BufferedWriter vectorLog = new BufferedWriter(fw);
-        String vcString = this.pid + " " + this.vc.returnVCString() + "\n" + logMsg + "\n";
-        vectorLog.write(vcString);
-        vectorLog.flush();
-        vectorLog.close();
+        if (this.clock != null) {
+            logMsg = logMsg + " [" + this.clock + "]";
+        }
+        this.logSink.append(this.pid, this.vc, logMsg);
+    }
+
+    /**
+     * Appends a message with typed attributes in the log sink defined in this
+     * class. The attributes are only rendered to text by text sinks, a
+     * {@link org.github.com.jvec.log.BinaryLogSink} stores them in binary form.
+     *
+     * @param logMsg     Custom message that will be written to the log.
+     * @param attributes The attributes of the event, which may be reused afterwards.
+     */
+    public void writeLogMsg(String logMsg, Attributes attributes) throws IOException {
+        if (!this.logging) {
+            return;
+        }
+        if (this.clock != null) {
+            logMsg = logMsg + " [" + this.clock + "]";
+        }
+        this.logSink.append(this.pid, this.vc, logMsg, attributes);
+    }
+
+    /**
+     * Appends a message in the log sink defined in this class. The message is
+     * only formatted if logging is enabled, possibly later by the log sink.
+     *
+     * @param logMsg Custom message that will be written to the log.
+     */
+    public void writeLogMsgDeferred(LogMessage logMsg) throws IOException {
+        if (!this.logging) {
+            return;
+        }
+        if (this.clock != null) {
+            // The timestamp changes with the next event, format the message now
+            writeLogMsg(logMsg.toString());
+            return;
+        }
+        this.logSink.append(this.pid, this.vc, logMsg);
     }
 
     /**
@@ -165,7 +366,35 @@ public class JVec {
      * @param logMsg Custom message will be written to the "vectorLog" log.
      */
     public synchronized void logLocalEvent(String logMsg) {
-        updateClock(logMsg);
+        Object event = beginEvent(JfrEvents.LOCAL);
+        if (updateClock()) logEvent(logMsg, event);
+        commitEvent(event, 0);
+    }
+
+    /**
+     * Records a local event like logLocalEvent(String), but the message is
+     * only formatted if the record is actually written, e.g.
+     * logLocalEventDeferred(LogMessage.of("Sent {} bytes to {}", size, peer)).
+     *
+     * @param logMsg Custom message will be written to the "vectorLog" log.
+     */
+    public synchronized void logLocalEventDeferred(LogMessage logMsg) {
+        Object event = beginEvent(JfrEvents.LOCAL);
+        if (updateClock()) logEvent(logMsg, event);
+        commitEvent(event, 0);
+    }
+
+    /**
+     * Records a local event like logLocalEvent(String) with typed attributes,
+     * e.g. Attributes.create().put("requestId", id).put("status", 200).
+     *
+     * @param logMsg     Custom message will be written to the "vectorLog" log.
+     * @param attributes The attributes of the event, which may be reused afterwards.
+     */
+    public synchronized void logLocalEvent(String logMsg, Attributes attributes) {
+        Object event = beginEvent(JfrEvents.LOCAL);
+        if (updateClock()) logEvent(logMsg, attributes, event);
+        commitEvent(event, 0);
     }
 
     /**
@@ -182,18 +411,100 @@ public class JVec {
      * @param packetContent The actual content of the packet we want to send out.
      */
     public synchronized byte[] prepareSend(String logMsg, byte[] packetContent) throws IOException {
-        if (!updateClock(logMsg)) return null;
-        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
-        packer.packString(this.pid);
+        Object event = beginEvent(JfrEvents.SEND);
+        if (!updateClock()) return null;
+        logEvent(logMsg, event);
+        byte[] encodedMsg = encodeSend(packetContent, event);
+        commitEvent(event, encodedMsg.length);
+        return encodedMsg;
+    }
+
+    /**
+     * Encodes a buffer like prepareSend(String, byte[]), but the message is
+     * only formatted if the record is actually written.
+     *
+     * @param logMsg        Custom message will be written to the vectorLog log.
+     * @param packetContent The actual content of the packet we want to send out.
+     */
+    public synchronized byte[] prepareSendDeferred(LogMessage logMsg, byte[] packetContent) throws IOException {
+        Object event = beginEvent(JfrEvents.SEND);
+        if (!updateClock()) return null;
+        logEvent(logMsg, event);
+        byte[] encodedMsg = encodeSend(packetContent, event);
+        commitEvent(event, encodedMsg.length);
+        return encodedMsg;
+    }
+
+    /**
+     * Encodes a buffer like prepareSend(String, byte[]) and logs the send
+     * event with typed attributes.
+     *
+     * @param logMsg        Custom message will be written to the vectorLog log.
+     * @param attributes    The attributes of the event, which may be reused afterwards.
+     * @param packetContent The actual content of the packet we want to send out.
+     */
+    public synchronized byte[] prepareSend(String logMsg, Attributes attributes, byte[] packetContent) throws IOException {
+        Object event = beginEvent(JfrEvents.SEND);
+        if (!updateClock()) return null;
+        logEvent(logMsg, attributes, event);
+        byte[] encodedMsg = encodeSend(packetContent, event);
+        commitEvent(event, encodedMsg.length);
+        return encodedMsg;
+    }
+
+    private byte[] encodeSend(byte[] packetContent, Object event) throws IOException {
+        if (event == null) {
+            return encodeSend(packetContent);
+        }
+        long start = System.nanoTime();
+        byte[] encodedMsg = encodeSend(packetContent);
+        JfrEvents.addEncodingTime(event, System.nanoTime() - start);
+        return encodedMsg;
+    }
+
+    /**
+     * Packs a message into chunks of the shared pool, which are returned as
+     * soon as the message has been copied out, so sending allocates nothing
+     * but the returned array.
+     */
+    private byte[] encodeSend(byte[] packetContent) throws IOException {
+        if (this.sendPacker == null) {
+            this.sendPacker = SEND_CONFIG.newPacker(this.sendOutput);
+        }
+        boolean packed = false;
+        try {
+            packSend(this.sendPacker, packetContent);
+            this.sendPacker.flush();
+            packed = true;
+            return this.sendOutput.toByteArray();
+        } finally {
+            this.sendOutput.clear();
+            if (!packed) {
+                // The packer may still hold a chunk that went back to the pool
+                this.sendPacker = null;
+            }
+        }
+    }
+
+    private void packSend(MessagePacker packer, byte[] packetContent) throws IOException {
+        packer.packString(this.packedPid);
         packer.packBinaryHeader(packetContent.length);
         packer.writePayload(packetContent);
-        packer.packMapHeader(this.vc.getClockMap().size()); // the number of (key, value) pairs
-        for (Map.Entry<String, Long> clock : this.vc.getClockMap().entrySet()) {
-            packer.packString(clock.getKey());
-            packer.packLong(clock.getValue());
+        if (this.clock != null) {
+            this.clock.pack(packer);
+            return;
+        }
+        this.digest.pack(packer, this.vc);
+        if (this.vc.size() >= WireClock.MIN_SIZE) {
+            // Large clocks are copied from their cached encoding
+            this.wireClock.write(packer, this.vc);
+            return;
+        }
+        packer.packMapHeader(this.vc.size()); // the number of (key, value) pairs
+        for (VClock.Cursor clock = this.vc.cursor(); clock.next(); ) {
+            packer.packString(clock.pid());
+            packer.packLong(clock.ticks());
         }
-
-        return packer.toByteArray();
     }
 
     /**
@@ -213,13 +524,134 @@ public class JVec {
         return prepareSend(logMsg, packetProxy);
     }
 
+    /**
+     * Records a send event and returns a snapshot of the vector clock of this
+     * class instead of an encoded message.
+     * This is meant for handing causality over to another JVec instance in the
+     * same JVM, e.g. another thread, without serializing a MessagePack frame.
+     * The returned clock has to be passed to receiveClock of the receiving instance.
+     * This is only supported by instances that use their vector clock.
+     *
+     * @param logMsg Custom message will be written to the "vectorLog" log.
+     */
+    public synchronized VClock prepareClockSend(String logMsg) {
+        checkVectorClock();
+        if (!updateClock()) return null;
+        logEvent(logMsg);
+        return this.vc.snapshot();
+    }
+
+    /**
+     * Records a receive event for a clock handed over by prepareClockSend.
+     * Like unpackReceive, this increments the local vector clock and merges the
+     * remote clock into it, but no message has to be decoded.
+     *
+     * @param logMsg      Custom message will be written to the "vectorLog" log.
+     * @param remoteClock The clock returned by prepareClockSend of the sender.
+     */
+    public synchronized void receiveClock(String logMsg, VClock remoteClock) {
+        checkVectorClock();
+        long time = this.vc.findTicks(this.pid);
+        if (time == -1) {
+            System.err.println("Could not find process id in its vector clock.");
+            return;
+        }
+        tickClock();
+        mergeRemoteClock(remoteClock);
+        logEvent(logMsg);
+    }
+
+    private void checkVectorClock() {
+        if (this.clock != null) {
+            throw new IllegalStateException("Clocks can only be handed over by instances using vector clocks.");
+        }
+    }
+
     private void mergeRemoteClock(VClock remoteClock) {
         long time = this.vc.findTicks(this.pid);
         if (time == -1) {
             System.err.println("Could not find process id in its vector clock.");
             return;
         }
+        boolean cached = this.wireClock.matches(this.vc);
+        this.digest.check(this.vc);
         this.vc.merge(remoteClock);
+        if (cached && patchMergedEntries(remoteClock)) {
+            this.wireClock.sync(this.vc);
+        }
+        this.digest.merged(null, -1, remoteClock);
+        this.digest.sync(this.vc);
+    }
+
+    /**
+     * Merges the clock entries of a decoded frame into the local clock. Only
+     * the entries of the remote clock are visited, and no intermediate VClock
+     * is built.
+     */
+    private void mergeFrameClock(ReceivedFrame frame) {
+        boolean cached = this.wireClock.matches(this.vc);
+        this.digest.check(this.vc);
+        long srcTicks = -1;
+        for (int i = 0; i < frame.numClocks; ++i) {
+            String clock_pid = frame.pids[i];
+            long clock_time = frame.ticks[i];
+            if (clock_pid.equals(frame.src)) {
+                srcTicks = clock_time;
+            }
+            this.digest.remoteEntry(clock_pid, clock_time);
+            if (this.vc.findTicks(clock_pid) < clock_time) {
+                this.vc.set(clock_pid, clock_time);
+                cached = cached && this.wireClock.patch(this.vc, clock_pid);
+            }
+        }
+        if (cached) {
+            this.wireClock.sync(this.vc);
+        }
+        this.digest.merged(frame.src, srcTicks, null);
+        this.digest.sync(this.vc);
+    }
+
+    /**
+     * Merges the entry of "src" of a remote clock whose other entries are
+     * known to be dominated by the local clock.
+     */
+    private void mergeSenderEntry(String src, long srcTicks) {
+        boolean cached = this.wireClock.matches(this.vc);
+        this.digest.check(this.vc);
+        if (this.vc.findTicks(src) < srcTicks) {
+            this.vc.set(src, srcTicks);
+            if (cached && this.wireClock.patch(this.vc, src)) {
+                this.wireClock.sync(this.vc);
+            }
+        }
+        this.digest.merged(src, srcTicks, null);
+        this.digest.sync(this.vc);
+    }
+
+    /**
+     * Rewrites the cached encoding of all entries the merge of "remoteClock"
+     * may have changed. Returns false if the merge added new entries.
+     */
+    private boolean patchMergedEntries(VClock remoteClock) {
+        for (VClock.Cursor clock = remoteClock.cursor(); clock.next(); ) {
+            if (this.vc.findTicks(clock.pid()) == clock.ticks() && !this.wireClock.patch(this.vc, clock.pid())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Increments the entry of this process and updates the cached encoding of the clock.
+     */
+    private void tickClock() {
+        boolean cached = this.wireClock.matches(this.vc);
+        this.digest.check(this.vc);
+        this.vc.tick(this.pid);
+        if (cached && this.wireClock.patch(this.vc, this.pid)) {
+            this.wireClock.sync(this.vc);
+        }
+        this.digest.sync(this.vc);
     }
 
     /**
@@ -228,6 +660,8 @@ public class JVec {
      * This function takes a MessagePack buffer and extracts the vector clock as
      * well as data. It increments the local vector clock, merges the unpacked
      * clock with its own and returns a character representation of the data.
+     * If the digest of the message shows that the local clock already knows
+     * the remote clock but the entry of the sender, the clock is skipped.
      * This is the default method, which accepts any binary encoded data.
      * In addition, prepareSend writes a custom defined message to the main
      * JVector log.
@@ -241,31 +675,183 @@ public class JVec {
             System.err.println("Could not find process id in its vector clock.");
             return null;
         }
+        Object event = beginEvent(JfrEvents.RECEIVE);
+        byte[] decodedMsg = receiveFrame(encodedMsg, event);
+        logEvent(logMsg, event);
+        commitEvent(event, encodedMsg.length);
+        return decodedMsg;
+    }
 
-        // Deserialize with MessageUnpacker
-        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(encodedMsg);
-        String src_pid = unpacker.unpackString();
-        int msglen = unpacker.unpackBinaryHeader();
-        byte[] decodedMsg = unpacker.readPayload(msglen);
-        int numClocks = unpacker.unpackMapHeader();
-        VClock remoteClock = new VClock();
-        for (int i = 0; i < numClocks; ++i) {
-            String clock_pid = unpacker.unpackString();
-            Long clock_time = unpacker.unpackLong();
-            remoteClock.set(clock_pid, clock_time);
+    /**
+     * Decodes a JVector buffer like unpackReceive(String, byte[]), but the
+     * message is only formatted if the record is actually written.
+     *
+     * @param logMsg     Custom message will be written to the "vectorLog" log.
+     * @param encodedMsg The buffer to be decoded.
+     */
+    public synchronized byte[] unpackReceiveDeferred(LogMessage logMsg, byte[] encodedMsg) throws IOException {
+        long time = this.vc.findTicks(this.pid);
+        if (time == -1) {
+            System.err.println("Could not find process id in its vector clock.");
+            return null;
         }
-        vc.tick(this.pid);
-        mergeRemoteClock(remoteClock);
-        try {
-            writeLogMsg(logMsg);
-        } catch (IOException e) {
-            System.err.println("Could not write to log file.");
-            e.printStackTrace();
+        Object event = beginEvent(JfrEvents.RECEIVE);
+        byte[] decodedMsg = receiveFrame(encodedMsg, event);
+        logEvent(logMsg, event);
+        commitEvent(event, encodedMsg.length);
+        return decodedMsg;
+    }
+
+    /**
+     * Decodes a JVector buffer like unpackReceive(String, byte[]) and logs the
+     * receive event with typed attributes.
+     *
+     * @param logMsg     Custom message will be written to the "vectorLog" log.
+     * @param attributes The attributes of the event, which may be reused afterwards.
+     * @param encodedMsg The buffer to be decoded.
+     */
+    public synchronized byte[] unpackReceive(String logMsg, Attributes attributes, byte[] encodedMsg) throws IOException {
+        long time = this.vc.findTicks(this.pid);
+        if (time == -1) {
+            System.err.println("Could not find process id in its vector clock.");
+            return null;
         }
-        unpacker.close();
+        Object event = beginEvent(JfrEvents.RECEIVE);
+        byte[] decodedMsg = receiveFrame(encodedMsg, event);
+        logEvent(logMsg, attributes, event);
+        commitEvent(event, encodedMsg.length);
         return decodedMsg;
     }
 
+    /**
+     * Decodes a batch of JVector buffers, e.g. a burst of messages read at
+     * once, and returns the decoded data of every buffer in the same order.
+     * This records one receive event per buffer, exactly as if unpackReceive
+     * was called for each of them, including the intermediate clocks in the
+     * log. All buffers are decoded before the first one is applied to the
+     * local clock, and the clock entries of every buffer are merged without
+     * building a temporary VClock, so every buffer only costs as much as its
+     * own clock entries, and dominated clocks are skipped by their digest.
+     * If any buffer of the batch is truncated or corrupt, the exception is
+     * thrown before the local clock changes and nothing is logged, so the
+     * whole batch can be dropped or retried.
+     *
+     * @param logMsg      Custom message will be written to the "vectorLog" log for every buffer.
+     * @param encodedMsgs The buffers to be decoded, in the order they were received.
+     */
+    public synchronized List<byte[]> unpackReceiveBatch(String logMsg, List<byte[]> encodedMsgs) throws IOException {
+        long time = this.vc.findTicks(this.pid);
+        if (time == -1) {
+            System.err.println("Could not find process id in its vector clock.");
+            return null;
+        }
+        List<ReceivedFrame> frames = new ArrayList<>(encodedMsgs.size());
+        for (byte[] encodedMsg : encodedMsgs) {
+            ReceivedFrame frame = new ReceivedFrame();
+            long start = JFR_EVENTS ? System.nanoTime() : 0;
+            decodeFrame(encodedMsg, frame);
+            if (JFR_EVENTS) {
+                frame.decodeNanos = System.nanoTime() - start;
+            }
+            frames.add(frame);
+        }
+        List<byte[]> decodedMsgs = new ArrayList<>(frames.size());
+        for (ReceivedFrame frame : frames) {
+            Object event = beginEvent(JfrEvents.RECEIVE);
+            applyFrame(frame);
+            if (event != null) {
+                JfrEvents.addEncodingTime(event, frame.decodeNanos);
+            }
+            logEvent(logMsg, event);
+            commitEvent(event, frame.encodedBytes);
+            decodedMsgs.add(frame.payload);
+        }
+        return decodedMsgs;
+    }
+
+    private byte[] receiveFrame(byte[] encodedMsg, Object event) throws IOException {
+        if (event == null) {
+            return receiveFrame(encodedMsg);
+        }
+        long start = System.nanoTime();
+        byte[] decodedMsg = receiveFrame(encodedMsg);
+        JfrEvents.addEncodingTime(event, System.nanoTime() - start);
+        return decodedMsg;
+    }
+
+    private byte[] receiveFrame(byte[] encodedMsg) throws IOException {
+        ReceivedFrame frame = this.receivedFrame;
+        try {
+            decodeFrame(encodedMsg, frame);
+            applyFrame(frame);
+            return frame.payload;
+        } finally {
+            frame.payload = null;
+        }
+    }
+
+    /**
+     * Decodes a whole JVector buffer into "frame" without touching the local
+     * clock, so a truncated or corrupt buffer throws before the clock changes.
+     */
+    private void decodeFrame(byte[] encodedMsg, ReceivedFrame frame) throws IOException {
+        // Deserialize with the MessageUnpacker of this instance, which keeps its string cache
+        this.receiveInput.reset(encodedMsg);
+        if (this.receiveUnpacker == null) {
+            this.receiveUnpacker = RECEIVE_CONFIG.newUnpacker(this.receiveInput);
+        } else {
+            this.receiveUnpacker.reset(this.receiveInput);
+        }
+        MessageUnpacker unpacker = this.receiveUnpacker;
+        try {
+            frame.src = unpacker.unpackString();
+            int msglen = unpacker.unpackBinaryHeader();
+            frame.payload = unpacker.readPayload(msglen);
+            frame.encodedBytes = encodedMsg.length;
+            frame.timestamp = null;
+            frame.srcTicks = -1;
+            frame.numClocks = 0;
+            if (this.clock != null) {
+                frame.timestamp = this.clock.unpack(unpacker);
+            } else {
+                if (unpacker.getNextFormat().getValueType() == ValueType.ARRAY) {
+                    frame.srcTicks = ClockDigest.unpackDominated(unpacker, this.vc);
+                }
+                if (frame.srcTicks != -1 && this.digest.isCompact(this.vc)) {
+                    unpacker.skipValue();
+                } else {
+                    frame.srcTicks = -1;
+                    int numClocks = unpacker.unpackMapHeader();
+                    for (int i = 0; i < numClocks; ++i) {
+                        frame.addClock(unpacker.unpackString(), unpacker.unpackLong());
+                    }
+                }
+            }
+        } finally {
+            // Closing also empties the input, so neither keeps the buffer reachable
+            unpacker.close();
+        }
+    }
+
+    /**
+     * Records the receive event of a decoded frame: ticks the local clock and
+     * merges the clock of the frame. The local clock only ever grows, so a
+     * remote clock found dominated while decoding is still dominated here.
+     */
+    private void applyFrame(ReceivedFrame frame) {
+        if (this.clock != null) {
+            this.clock.merge(frame.timestamp);
+            this.clock.tick();
+            tickClock();
+        } else if (frame.srcTicks != -1) {
+            tickClock();
+            mergeSenderEntry(frame.src, frame.srcTicks);
+        } else {
+            tickClock();
+            mergeFrameClock(frame);
+        }
+    }
+
     /**
      * Enables the logging mechanism of JVector. Logging is turned on by default.
      * This is a cosmetic function. Setting vc.logging to true fulfils the same purpose.
@@ -281,4 +867,32 @@ public class JVec {
     public void disableLogging() {
         this.logging = false;
     }
+
+    /**
+     * A received JVector buffer, decoded completely before it is applied to
+     * the local clock.
+     */
+    private static final class ReceivedFrame {
+        private String src;
+        private byte[] payload;
+        private int encodedBytes;
+        private long decodeNanos;
+        // The timestamp returned by the clock strategy, if any
+        private Object timestamp;
+        // The entry of the sender if its dominated clock was skipped, -1 otherwise
+        private long srcTicks;
+        private String[] pids = new String[8];
+        private long[] ticks = new long[8];
+        private int numClocks;
+
+        private void addClock(String clock_pid, long clock_time) {
+            if (numClocks == pids.length) {
+                pids = Arrays.copyOf(pids, numClocks * 2);
+                ticks = Arrays.copyOf(ticks, numClocks * 2);
+            }
+            pids[numClocks] = clock_pid;
+            ticks[numClocks] = clock_time;
+            numClocks++;
+        }
+    }
 }
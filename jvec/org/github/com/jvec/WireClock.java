@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec;
+
+import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * The MessagePack encoding of the vector clock of a JVec instance, kept
+ * between two sends.
+ * The time values are encoded as fixed-width int64 values, so an entry that
+ * changed can be rewritten in place and sending the clock is a single copy of
+ * the cached bytes. The cache is only trusted as long as the clock has been
+ * modified through {@link #patch(VClock, String)} alone, any other modification
+ * makes the next write encode the clock again.
+ */
+final class WireClock {
+
+    /**
+     * Clocks with fewer entries are encoded compactly on every send, their
+     * encoding is cheap and the fixed-width values would only make it longer.
+     */
+    static final int MIN_SIZE = 16;
+
+    private static final byte INT64 = (byte) 0xd3;
+
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private byte[] buffer;
+    private int modCount;
+    private boolean valid;
+
+    /**
+     * Returns true if the cached encoding matches "vc".
+     * Has to be checked before modifying the clock and patching its entries.
+     */
+    boolean matches(VClock vc) {
+        return valid && vc.getModCount() == modCount;
+    }
+
+    /**
+     * Rewrites the slot of "pid" with its current time value in "vc".
+     * Returns false and drops the cache if the encoding has no such entry.
+     */
+    boolean patch(VClock vc, String pid) {
+        Integer slot = slots.get(pid);
+        if (slot == null) {
+            valid = false;
+            return false;
+        }
+        long ticks = vc.findTicks(pid);
+        for (int i = 7; i >= 0; i--) {
+            buffer[slot + i] = (byte) ticks;
+            ticks >>>= 8;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the encoding as matching "vc" after its modifications were patched.
+     */
+    void sync(VClock vc) {
+        modCount = vc.getModCount();
+    }
+
+    /**
+     * Writes the clock map of "vc", encoding it again if the cache is out of date.
+     */
+    void write(MessagePacker packer, VClock vc) throws IOException {
+        if (!matches(vc)) {
+            encode(vc);
+        }
+        packer.writePayload(buffer);
+    }
+
+    private void encode(VClock vc) throws IOException {
+        slots.clear();
+        byte[] value = new byte[9];
+        value[0] = INT64;
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(vc.size());
+        for (VClock.Cursor clock = vc.cursor(); clock.next(); ) {
+            packer.packString(clock.pid());
+            slots.put(clock.pid(), (int) packer.getTotalWrittenBytes() + 1);
+            long ticks = clock.ticks();
+            for (int i = 8; i >= 1; i--) {
+                value[i] = (byte) ticks;
+                ticks >>>= 8;
+            }
+            packer.writePayload(value);
+        }
+        buffer = packer.toByteArray();
+        modCount = vc.getModCount();
+        valid = true;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.clock;
+
+import org.github.com.jvec.msgpack.core.ExtensionTypeHeader;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageTypeException;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A Bloom clock, a probabilistic replacement of the vector clock with a fixed
+ * number of cells independent of the number of processes.
+ * Every event increments "hashes" cells chosen by hashing the process id and
+ * the sequence number of the event, merging takes the maximum of every cell.
+ * If a clock is not smaller or equal to another one in every cell, the two
+ * events are concurrent for sure. If it is, the first event possibly happened
+ * before the second one, {@link #falsePositiveRate(BloomClock)} estimates the
+ * probability that they are concurrent nonetheless.
+ * All processes exchanging messages have to use the same width and number of hashes.
+ * On the wire the clock takes 8 bytes per cell.
+ */
+public class BloomClock implements ClockStrategy {
+
+    /**
+     * The MessagePack extension type of a Bloom clock.
+     */
+    public static final byte EXT_TYPE = 3;
+
+    /**
+     * The order of two Bloom clocks, see {@link #compare(BloomClock)}.
+     */
+    public enum Order {
+        /**
+         * The clocks are equal.
+         */
+        EQUAL,
+        /**
+         * The first clock possibly happened before the second one.
+         */
+        BEFORE,
+        /**
+         * The first clock possibly happened after the second one.
+         */
+        AFTER,
+        /**
+         * The clocks are concurrent.
+         */
+        CONCURRENT
+    }
+
+    private final long pidHash;
+    private final int hashes;
+    private final long[] cells;
+    private long sequence;
+    private ByteBuffer payload;
+
+    /**
+     * @param pid    The process id of the JVec instance using this clock.
+     * @param width  The number of cells of the clock.
+     * @param hashes The number of cells incremented by every event.
+     */
+    public BloomClock(String pid, int width, int hashes) {
+        if (width <= 0 || hashes <= 0 || hashes > width) {
+            throw new IllegalArgumentException("Invalid Bloom clock of width " + width + " with " + hashes + " hashes.");
+        }
+        this.pidHash = pid.hashCode();
+        this.hashes = hashes;
+        this.cells = new long[width];
+    }
+
+    private BloomClock(BloomClock other) {
+        this.pidHash = other.pidHash;
+        this.hashes = other.hashes;
+        this.cells = other.cells.clone();
+        this.sequence = other.sequence;
+    }
+
+    /**
+     * Returns a copy of the current clock, which may be compared with later clocks.
+     */
+    public BloomClock copy() {
+        return new BloomClock(this);
+    }
+
+    /**
+     * Returns the number of cells of the clock.
+     */
+    public int getWidth() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the value of cell "index".
+     */
+    public long getCell(int index) {
+        return cells[index];
+    }
+
+    @Override
+    public void tick() {
+        sequence++;
+        long hash = mix(pidHash * 0x9E3779B97F4A7C15L + sequence);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            cells[((h1 + i * h2) & Integer.MAX_VALUE) % cells.length]++;
+        }
+    }
+
+    /**
+     * The finalizer of MurmurHash3, spreads the bits of "h" over all 64 bits.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Merges another clock into this one, taking the maximum of every cell.
+     * The clocks must have the same width.
+     */
+    public void merge(BloomClock other) {
+        checkWidth(other);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = Math.max(cells[i], other.cells[i]);
+        }
+    }
+
+    /**
+     * Compares this clock with another one of the same width.
+     * BEFORE and AFTER are subject to false positives, CONCURRENT is certain.
+     */
+    public Order compare(BloomClock other) {
+        checkWidth(other);
+        boolean smaller = false;
+        boolean larger = false;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] < other.cells[i]) {
+                smaller = true;
+            } else if (cells[i] > other.cells[i]) {
+                larger = true;
+            }
+        }
+        if (smaller && larger) return Order.CONCURRENT;
+        if (smaller) return Order.BEFORE;
+        if (larger) return Order.AFTER;
+        return Order.EQUAL;
+    }
+
+    /**
+     * Estimates the probability that this clock is smaller or equal to "later"
+     * in every cell although the events are concurrent. This is the false
+     * positive rate of a Bloom filter holding all events counted by "later".
+     */
+    public double falsePositiveRate(BloomClock later) {
+        checkWidth(later);
+        long sum = 0;
+        for (long cell : later.cells) {
+            sum += cell;
+        }
+        return Math.pow(1 - Math.exp(-(double) sum / cells.length), hashes);
+    }
+
+    private void checkWidth(BloomClock other) {
+        if (other.cells.length != cells.length) {
+            throw new IllegalArgumentException("Bloom clocks of width " + cells.length + " and "
+                    + other.cells.length + " cannot be compared.");
+        }
+    }
+
+    @Override
+    public void pack(MessagePacker packer) throws IOException {
+        ByteBuffer payload = payload();
+        for (int i = 0; i < cells.length; i++) {
+            payload.putLong(i * 8, cells[i]);
+        }
+        packer.packExtensionTypeHeader(EXT_TYPE, payload.capacity());
+        packer.writePayload(payload.array());
+    }
+
+    @Override
+    public Object unpack(MessageUnpacker unpacker) throws IOException {
+        ByteBuffer payload = payload();
+        ExtensionTypeHeader header = unpacker.unpackExtensionTypeHeader();
+        if (header.getType() != EXT_TYPE || header.getLength() != payload.capacity()) {
+            throw new MessageTypeException("Expected a Bloom clock of width " + cells.length + " but got " + header);
+        }
+        unpacker.readPayload(payload.array());
+        long[] remoteCells = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            remoteCells[i] = payload.getLong(i * 8);
+        }
+        return remoteCells;
+    }
+
+    @Override
+    public void merge(Object timestamp) {
+        long[] remoteCells = (long[]) timestamp;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = Math.max(cells[i], remoteCells[i]);
+        }
+    }
+
+    private ByteBuffer payload() {
+        if (payload == null) {
+            payload = ByteBuffer.allocate(cells.length * 8);
+        }
+        return payload;
+    }
+
+    /**
+     * Returns the sum of the cells and a hash of them, e.g. "bloom=42#1f3a9c07".
+     * The string is appended to every log line, so it does not grow with the
+     * width. The sum grows with every event known to the clock, and equal
+     * clocks have equal hashes.
+     */
+    @Override
+    public String toString() {
+        long sum = 0;
+        for (long cell : cells) {
+            sum += cell;
+        }
+        return "bloom=" + sum + "#" + Integer.toHexString(Arrays.hashCode(cells));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.clock;
+
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+
+/**
+ * A logical clock that a JVec instance carries in its messages instead of
+ * the full vector clock.
+ * By default JVec timestamps its messages with a vector clock, whose size
+ * grows with the number of processes. A ClockStrategy replaces this clock on
+ * the wire with a timestamp of its own, e.g. a Lamport clock or a Hybrid
+ * Logical Clock. The strategy is written as a MessagePack extension type, so
+ * receivers can tell the clock modes apart.
+ * A strategy instance belongs to a single JVec instance, which calls it while
+ * holding its own lock.
+ */
+public interface ClockStrategy {
+
+    /**
+     * Records a local event. JVec calls this for every local, send and
+     * receive event, the latter after merging the remote clock.
+     */
+    void tick();
+
+    /**
+     * Writes the current timestamp as a single MessagePack value.
+     *
+     * @param packer The packer of the outgoing message.
+     */
+    void pack(MessagePacker packer) throws IOException;
+
+    /**
+     * Reads a timestamp written by pack of a remote instance without merging
+     * it, so a message can be decoded completely before any clock changes.
+     * The returned timestamp is only meant to be passed to merge of this instance.
+     *
+     * @param unpacker The unpacker of the incoming message, positioned at the timestamp.
+     */
+    Object unpack(MessageUnpacker unpacker) throws IOException;
+
+    /**
+     * Merges a timestamp returned by unpack into this clock without recording an event.
+     *
+     * @param timestamp The remote timestamp.
+     */
+    void merge(Object timestamp);
+
+    /**
+     * Reads a timestamp written by pack of a remote instance and merges it
+     * into this clock without recording an event.
+     *
+     * @param unpacker The unpacker of the incoming message, positioned at the timestamp.
+     */
+    default void unpackMerge(MessageUnpacker unpacker) throws IOException {
+        merge(unpack(unpacker));
+    }
+
+    /**
+     * Returns the current timestamp in the form it is appended to a log message,
+     * e.g. "lamport=42".
+     */
+    String toString();
+}
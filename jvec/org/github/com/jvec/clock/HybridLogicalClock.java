@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.clock;
+
+import org.github.com.jvec.msgpack.core.ExtensionTypeHeader;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageTypeException;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A Hybrid Logical Clock, combining the physical time in milliseconds with a
+ * logical counter. Like a Lamport clock its timestamps are consistent with
+ * causality, but they also stay close to the wall clock time of the event.
+ * The counter only grows while the physical clock lags behind the timestamps
+ * of other processes and is reset once it catches up.
+ * On the wire the clock takes a fixed 16 byte extension value, independent of
+ * the number of processes.
+ */
+public class HybridLogicalClock implements ClockStrategy {
+
+    /**
+     * The MessagePack extension type of a hybrid logical timestamp.
+     */
+    public static final byte EXT_TYPE = 2;
+
+    private final ByteBuffer payload = ByteBuffer.allocate(16);
+    private long wallTime;
+    private long logical;
+
+    /**
+     * Returns the physical part of the current timestamp in milliseconds.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Returns the logical part of the current timestamp.
+     */
+    public long getLogical() {
+        return logical;
+    }
+
+    /**
+     * Returns the current physical time in milliseconds.
+     * Subclasses may override this to use another time source.
+     */
+    protected long physicalTime() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void tick() {
+        long now = physicalTime();
+        if (now > wallTime) {
+            wallTime = now;
+            logical = 0;
+        } else {
+            logical++;
+        }
+    }
+
+    @Override
+    public void pack(MessagePacker packer) throws IOException {
+        payload.putLong(0, wallTime);
+        payload.putLong(8, logical);
+        packer.packExtensionTypeHeader(EXT_TYPE, 16);
+        packer.writePayload(payload.array());
+    }
+
+    @Override
+    public Object unpack(MessageUnpacker unpacker) throws IOException {
+        ExtensionTypeHeader header = unpacker.unpackExtensionTypeHeader();
+        if (header.getType() != EXT_TYPE || header.getLength() != 16) {
+            throw new MessageTypeException("Expected a hybrid logical timestamp but got " + header);
+        }
+        unpacker.readPayload(payload.array());
+        return new long[]{payload.getLong(0), payload.getLong(8)};
+    }
+
+    @Override
+    public void merge(Object timestamp) {
+        long remoteWallTime = ((long[]) timestamp)[0];
+        long remoteLogical = ((long[]) timestamp)[1];
+        // The following tick turns the maximum of both timestamps into the receive event.
+        if (remoteWallTime > wallTime) {
+            wallTime = remoteWallTime;
+            logical = remoteLogical;
+        } else if (remoteWallTime == wallTime) {
+            logical = Math.max(logical, remoteLogical);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "hlc=" + wallTime + "." + logical;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.clock;
+
+import org.github.com.jvec.msgpack.core.ExtensionTypeHeader;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageTypeException;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A scalar Lamport clock. Its timestamps are consistent with causality:
+ * if an event happened before another one, it has a smaller timestamp.
+ * The converse does not hold, two concurrent events are ordered arbitrarily.
+ * On the wire the clock takes a fixed 8 byte extension value, independent of
+ * the number of processes.
+ */
+public class LamportClock implements ClockStrategy {
+
+    /**
+     * The MessagePack extension type of a Lamport timestamp.
+     */
+    public static final byte EXT_TYPE = 1;
+
+    private final ByteBuffer payload = ByteBuffer.allocate(8);
+    private long time;
+
+    /**
+     * Returns the current timestamp.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public void tick() {
+        time++;
+    }
+
+    @Override
+    public void pack(MessagePacker packer) throws IOException {
+        payload.putLong(0, time);
+        packer.packExtensionTypeHeader(EXT_TYPE, 8);
+        packer.writePayload(payload.array());
+    }
+
+    @Override
+    public Object unpack(MessageUnpacker unpacker) throws IOException {
+        ExtensionTypeHeader header = unpacker.unpackExtensionTypeHeader();
+        if (header.getType() != EXT_TYPE || header.getLength() != 8) {
+            throw new MessageTypeException("Expected a Lamport timestamp but got " + header);
+        }
+        unpacker.readPayload(payload.array());
+        return payload.getLong(0);
+    }
+
+    @Override
+    public void merge(Object timestamp) {
+        time = Math.max(time, (Long) timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "lamport=" + time;
+    }
+}
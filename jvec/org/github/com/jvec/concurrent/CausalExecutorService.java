@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.concurrent;
+
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.vclock.VClock;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An ExecutorService that carries causality from the submitting thread to the
+ * thread running the task.
+ * Submitting a task records a send event in the JVec instance of the
+ * submitting thread and keeps a copy of its vector clock with the task. The
+ * worker thread records the matching receive event in its own instance before
+ * it runs the task. The clock is handed over in memory, nothing is serialized.
+ * If the executor rejects the task, the submitting thread records a local
+ * event after the send, so the log shows that the send is never received.
+ * <p>
+ * All task submission methods go through {@link #execute(Runnable)}, so this
+ * also applies to submit, invokeAll and invokeAny. Passing this executor to the
+ * "Async" methods of a CompletableFuture, e.g.
+ * <code>CompletableFuture.supplyAsync(supplier, executor)</code>, propagates
+ * causality across every asynchronous stage of the future.
+ */
+public class CausalExecutorService extends AbstractExecutorService {
+
+    static final String SUBMIT_MSG = "Submitting task";
+    static final String RUN_MSG = "Running task";
+    static final String REJECT_MSG = "Task rejected";
+
+    private final ExecutorService delegate;
+    private final ThreadJVecs jvecs;
+
+    /**
+     * @param delegate The executor running the tasks.
+     * @param jvecs    The JVec instances of the submitting and worker threads.
+     */
+    public CausalExecutorService(ExecutorService delegate, ThreadJVecs jvecs) {
+        this.delegate = delegate;
+        this.jvecs = jvecs;
+    }
+
+    /**
+     * Wraps a task so that it carries the current clock of the calling thread
+     * and merges it into the clock of the thread that eventually runs it.
+     *
+     * @param task  The task to wrap.
+     * @param jvecs The JVec instances of the submitting and worker threads.
+     */
+    public static Runnable wrap(final Runnable task, final ThreadJVecs jvecs) {
+        final VClock clock = jvecs.current().prepareClockSend(SUBMIT_MSG);
+        return new Runnable() {
+            @Override
+            public void run() {
+                jvecs.current().receiveClock(RUN_MSG, clock);
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that it carries the current clock of the calling thread
+     * and merges it into the clock of the thread that eventually runs it.
+     *
+     * @param task  The task to wrap.
+     * @param jvecs The JVec instances of the submitting and worker threads.
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task, final ThreadJVecs jvecs) {
+        final VClock clock = jvecs.current().prepareClockSend(SUBMIT_MSG);
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                jvecs.current().receiveClock(RUN_MSG, clock);
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * Returns the JVec instance of the calling thread.
+     */
+    public JVec currentJVec() {
+        return jvecs.current();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Runnable task = wrap(command, jvecs);
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The send has been logged already, no task will receive it
+            jvecs.current().logLocalEvent(REJECT_MSG);
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
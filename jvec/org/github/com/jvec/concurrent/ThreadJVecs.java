@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.concurrent;
+
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.log.LogSink;
+
+/**
+ * Hands out one JVec instance per thread.
+ * Every thread that asks for its instance is modelled as a process of its own
+ * with the process id "pidPrefix" followed by the name of the thread. All
+ * instances write to the same LogSink, typically a
+ * {@link org.github.com.jvec.log.SharedLogSink}.
+ * Thread names have to be unique while the threads log through this class.
+ */
+public class ThreadJVecs {
+
+    private final String pidPrefix;
+    private final LogSink logSink;
+    private final ThreadLocal<JVec> instances = new ThreadLocal<JVec>() {
+        @Override
+        protected JVec initialValue() {
+            return new JVec(pidPrefix + Thread.currentThread().getName(), logSink);
+        }
+    };
+
+    /**
+     * @param pidPrefix The prefix of the process ids of all threads.
+     * @param logSink   The sink receiving the records of all threads.
+     */
+    public ThreadJVecs(String pidPrefix, LogSink logSink) {
+        this.pidPrefix = pidPrefix;
+        this.logSink = logSink;
+    }
+
+    /**
+     * Returns the JVec instance of the calling thread, creating it on first use.
+     */
+    public JVec current() {
+        return instances.get();
+    }
+
+    /**
+     * Returns the sink shared by the instances of all threads.
+     */
+    public LogSink getLogSink() {
+        return logSink;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The fields shared by the JFR events of JVec operations. The duration of an
+ * event covers the whole operation, including logging and encoding.
+ * The events are disabled by default and have to be enabled in the recording
+ * settings, e.g. "org.github.com.jvec.Send#enabled=true".
+ */
+@Category("JVector")
+@Enabled(false)
+@StackTrace(false)
+abstract class JVecEvent extends Event {
+
+    @Label("Process Id")
+    String pid;
+
+    @Label("Ticks")
+    long ticks;
+
+    @Label("Clock Size")
+    int clockSize;
+
+    @Label("Encoded Size")
+    @DataAmount
+    int encodedBytes;
+
+    @Label("Logging Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long loggingTime;
+
+    @Label("Encoding Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long encodingTime;
+}
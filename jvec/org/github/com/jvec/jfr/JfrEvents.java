@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.jfr;
+
+/**
+ * Emits JDK Flight Recorder events for the local, send and receive events of
+ * JVec instances, which lines up causality with GC, lock contention and I/O
+ * in JDK Mission Control.
+ * Events are passed around as plain objects, so JVec does not link against
+ * jdk.jfr and keeps working on JVMs without Flight Recorder. While an event
+ * type is disabled, which is the default, {@link #begin(int)} returns null
+ * without allocating and nothing else has to be done.
+ */
+public final class JfrEvents {
+
+    public static final int LOCAL = 0;
+    public static final int SEND = 1;
+    public static final int RECEIVE = 2;
+
+    private static final boolean AVAILABLE = probe();
+
+    private JfrEvents() {
+    }
+
+    private static boolean probe() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Only loaded if Flight Recorder is available. The instances are never
+     * committed, they only tell whether their event type is enabled.
+     */
+    private static final class Probes {
+        private static final JVecEvent[] PROBES = {new LocalEvent(), new SendEvent(), new ReceiveEvent()};
+    }
+
+    /**
+     * Returns true if this JVM supports Flight Recorder events.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Starts the timing of an event of the given kind, or returns null if
+     * that event type is not enabled in any running recording.
+     *
+     * @param kind One of LOCAL, SEND and RECEIVE.
+     */
+    public static Object begin(int kind) {
+        if (!AVAILABLE || !Probes.PROBES[kind].isEnabled()) {
+            return null;
+        }
+        JVecEvent event;
+        switch (kind) {
+            case LOCAL:
+                event = new LocalEvent();
+                break;
+            case SEND:
+                event = new SendEvent();
+                break;
+            default:
+                event = new ReceiveEvent();
+                break;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Adds time spent writing the log record of an event.
+     */
+    public static void addLoggingTime(Object event, long nanos) {
+        ((JVecEvent) event).loggingTime += nanos;
+    }
+
+    /**
+     * Adds time spent encoding or decoding the message of an event.
+     */
+    public static void addEncodingTime(Object event, long nanos) {
+        ((JVecEvent) event).encodingTime += nanos;
+    }
+
+    /**
+     * Ends an event returned by {@link #begin(int)} and commits it if it
+     * passes the threshold of the recording.
+     *
+     * @param event        The event returned by begin.
+     * @param pid          The process id of the JVec instance.
+     * @param ticks        The entry of the process in its clock after the event.
+     * @param clockSize    The number of entries of the clock after the event.
+     * @param encodedBytes The size of the sent or received message, 0 for local events.
+     */
+    public static void commit(Object event, String pid, long ticks, int clockSize, int encodedBytes) {
+        JVecEvent jvecEvent = (JVecEvent) event;
+        jvecEvent.end();
+        if (jvecEvent.shouldCommit()) {
+            jvecEvent.pid = pid;
+            jvecEvent.ticks = ticks;
+            jvecEvent.clockSize = clockSize;
+            jvecEvent.encodedBytes = encodedBytes;
+            jvecEvent.commit();
+        }
+    }
+}
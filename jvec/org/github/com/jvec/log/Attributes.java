@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.msgpack.core.buffer.ArrayBufferInput;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Typed key/value attributes of a log record, e.g. a request id, a size and
+ * a status code, which would otherwise have to be concatenated into the log
+ * message and parsed back out of it.
+ * Attributes are packed in MessagePack format as they are put, without
+ * building any strings. A {@link BinaryLogSink} stores them as they are and
+ * they are only rendered to text when the log is exported, text sinks render
+ * them as " key=value" pairs after the message.
+ * An instance may be cleared and reused for the next record once it has been
+ * logged. It is not thread-safe.
+ */
+public final class Attributes {
+
+    private final MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+    private int size;
+
+    /**
+     * Returns a new, empty set of attributes.
+     */
+    public static Attributes create() {
+        return new Attributes();
+    }
+
+    public Attributes put(String key, long value) {
+        try {
+            packer.packString(key);
+            packer.packLong(value);
+        } catch (IOException e) {
+            // The packer writes to memory and never throws
+            throw new RuntimeException(e);
+        }
+        size++;
+        return this;
+    }
+
+    public Attributes put(String key, int value) {
+        try {
+            packer.packString(key);
+            packer.packInt(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        size++;
+        return this;
+    }
+
+    public Attributes put(String key, boolean value) {
+        try {
+            packer.packString(key);
+            packer.packBoolean(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        size++;
+        return this;
+    }
+
+    public Attributes put(String key, String value) {
+        try {
+            packer.packString(key);
+            if (value == null) {
+                packer.packNil();
+            } else {
+                packer.packString(value);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        size++;
+        return this;
+    }
+
+    /**
+     * Returns the number of attributes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all attributes, keeping the buffer for the next ones.
+     */
+    public Attributes clear() {
+        try {
+            // Bytes still held by the packer itself are not dropped by clear()
+            packer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        packer.clear();
+        size = 0;
+        return this;
+    }
+
+    /**
+     * Writes the attributes as a MessagePack map to "out", copying the packed bytes.
+     */
+    public void writeTo(MessagePacker out) throws IOException {
+        out.packMapHeader(size);
+        for (MessageBuffer buffer : packer.toBufferList()) {
+            out.writePayload(buffer.array(), buffer.arrayOffset(), buffer.size());
+        }
+    }
+
+    /**
+     * Appends the attributes as " key=value" pairs to "out".
+     */
+    public void formatTo(StringBuilder out) {
+        if (size == 0) {
+            return;
+        }
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new ArrayBufferInput(packer.toMessageBuffer()));
+        try {
+            for (int i = 0; i < size; i++) {
+                appendTo(out, unpacker.unpackString(), readValue(unpacker));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the attributes by their keys in the order they were put.
+     * Integers are returned as Long.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (size == 0) {
+            return values;
+        }
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new ArrayBufferInput(packer.toMessageBuffer()));
+        try {
+            for (int i = 0; i < size; i++) {
+                values.put(unpacker.unpackString(), readValue(unpacker));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        formatTo(out);
+        return out.toString();
+    }
+
+    /**
+     * Reads an attribute value, which is either a Long, a Boolean, a String or null.
+     */
+    static Object readValue(MessageUnpacker unpacker) throws IOException {
+        switch (unpacker.getNextFormat().getValueType()) {
+            case INTEGER:
+                return unpacker.unpackLong();
+            case BOOLEAN:
+                return unpacker.unpackBoolean();
+            case NIL:
+                unpacker.unpackNil();
+                return null;
+            default:
+                return unpacker.unpackString();
+        }
+    }
+
+    static void appendTo(StringBuilder out, String key, Object value) {
+        out.append(' ').append(key).append('=').append(value);
+    }
+}
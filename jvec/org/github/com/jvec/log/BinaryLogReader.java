@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the records of a log written by a {@link BinaryLogSink} one after
+ * another, e.g. to query the attributes of the events without parsing text.
+ * <pre>
+ * try (BinaryLogReader reader = new BinaryLogReader("app-jvec.bin")) {
+ *     while (reader.next()) {
+ *         if (Long.valueOf(500).equals(reader.getAttributes().get("status"))) ...
+ *     }
+ * }
+ * </pre>
+ */
+public class BinaryLogReader implements Closeable {
+
+    private final MessageUnpacker unpacker;
+    private String pid;
+    private VClock clock;
+    private String message;
+    private Map<String, Object> attributes;
+
+    public BinaryLogReader(String fileName) throws IOException {
+        this(new FileInputStream(fileName));
+    }
+
+    public BinaryLogReader(InputStream in) {
+        this.unpacker = MessagePack.newDefaultUnpacker(in);
+    }
+
+    /**
+     * Reads the next record and returns false at the end of the log.
+     */
+    public boolean next() throws IOException {
+        if (!unpacker.hasNext()) {
+            return false;
+        }
+        int fields = unpacker.unpackArrayHeader();
+        if (fields < 4) {
+            throw new IOException("Invalid log record with " + fields + " fields.");
+        }
+        pid = unpacker.unpackString();
+        clock = new VClock();
+        int numClocks = unpacker.unpackMapHeader();
+        for (int i = 0; i < numClocks; i++) {
+            String clockPid = unpacker.unpackString();
+            clock.set(clockPid, unpacker.unpackLong());
+        }
+        message = unpacker.unpackString();
+        attributes = new LinkedHashMap<>();
+        int numAttributes = unpacker.unpackMapHeader();
+        for (int i = 0; i < numAttributes; i++) {
+            String key = unpacker.unpackString();
+            attributes.put(key, Attributes.readValue(unpacker));
+        }
+        for (int i = 4; i < fields; i++) {
+            unpacker.skipValue();
+        }
+        return true;
+    }
+
+    public String getPid() {
+        return pid;
+    }
+
+    public VClock getClock() {
+        return clock;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the attributes of the record in the order they were put.
+     * Integers are returned as Long.
+     */
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Appends the message followed by the attributes as " key=value" pairs to "out".
+     */
+    public void formatTo(StringBuilder out) {
+        out.append(message);
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            Attributes.appendTo(out, attribute.getKey(), attribute.getValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        unpacker.close();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A LogSink that stores records in MessagePack format in the file
+ * "logName-jvec.bin" instead of ShiViz text. Every record is an array of the
+ * pid, the clock as a map, the message and the {@link Attributes} as a map,
+ * which are copied as they were packed.
+ * Logging a record therefore formats neither the clock nor the attributes.
+ * The log is rendered to a ShiViz file by {@link #export(String)} and can be
+ * queried with a {@link BinaryLogReader}.
+ * Records are buffered until the sink is flushed or closed. Any log files with
+ * the same name as "logName" will be overwritten when the sink is created.
+ */
+public class BinaryLogSink implements LogSink {
+
+    private final String logName;
+    private final StringBuilder message = new StringBuilder();
+    private MessagePacker packer;
+
+    public BinaryLogSink(String logName) {
+        this.logName = logName;
+        try {
+            this.packer = MessagePack.newDefaultPacker(new FileOutputStream(logName + "-jvec.bin"));
+        } catch (IOException e) {
+            System.err.println("Could not open log file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the name of the log file without the "-jvec.bin" suffix.
+     */
+    public String getLogName() {
+        return logName;
+    }
+
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg) throws IOException {
+        MessagePacker out = packer();
+        packHeader(out, pid, clock);
+        out.packString(logMsg);
+        out.packMapHeader(0);
+    }
+
+    @Override
+    public synchronized void append(String pid, VClock clock, LogMessage logMsg) throws IOException {
+        message.setLength(0);
+        logMsg.formatTo(message);
+        append(pid, clock, message.toString());
+    }
+
+    /**
+     * Stores the attributes in their binary form, they are only rendered on export.
+     */
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg, Attributes attributes) throws IOException {
+        MessagePacker out = packer();
+        packHeader(out, pid, clock);
+        out.packString(logMsg);
+        attributes.writeTo(out);
+    }
+
+    private static void packHeader(MessagePacker out, String pid, VClock clock) throws IOException {
+        out.packArrayHeader(4);
+        out.packString(pid);
+        out.packMapHeader(clock.size());
+        for (VClock.Cursor entry = clock.cursor(); entry.next(); ) {
+            out.packString(entry.pid());
+            out.packLong(entry.ticks());
+        }
+    }
+
+    private MessagePacker packer() throws IOException {
+        if (this.packer == null) {
+            this.packer = MessagePack.newDefaultPacker(new FileOutputStream(this.logName + "-jvec.bin", true));
+        }
+        return this.packer;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (this.packer != null) {
+            this.packer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.packer != null) {
+            this.packer.close();
+            this.packer = null;
+        }
+    }
+
+    /**
+     * Renders the binary log "logName-jvec.bin" to the ShiViz log
+     * "logName-shiviz.txt", with the attributes as " key=value" pairs after
+     * the message of each record.
+     */
+    public static void export(String logName) throws IOException {
+        ShiVizEncoder encoder = new ShiVizEncoder(256);
+        StringBuilder text = new StringBuilder();
+        try (BinaryLogReader reader = new BinaryLogReader(logName + "-jvec.bin");
+             FileOutputStream out = new FileOutputStream(logName + "-shiviz.txt")) {
+            while (reader.next()) {
+                text.setLength(0);
+                reader.formatTo(text);
+                encoder.reset();
+                encoder.encode(reader.getPid(), reader.getClock(), text);
+                encoder.writeTo(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The default LogSink of a JVec instance. Each record is appended to the file
+ * "logName-shiviz.txt" as soon as it is logged.
+ * Records are encoded by a reusable {@link ShiVizEncoder} and appended with a
+ * single write to a channel that stays open until the sink is closed, so
+ * logging an event allocates nothing. The channel is in append mode, so
+ * several sinks with the same "logName" append whole records to the same
+ * file. Records logged after closing the sink reopen the file.
+ * Any log files with the same name as "logName" will be overwritten when the
+ * sink is created.
+ */
+public class FileLogSink implements LogSink {
+
+    private final String logName;
+    private final Path file;
+    private final ShiVizEncoder encoder = new ShiVizEncoder(256);
+    private final StringBuilder message = new StringBuilder();
+    private FileChannel channel;
+    // A view of the array of the encoder, wrapped again only when the encoder grows
+    private ByteBuffer view;
+
+    public FileLogSink(String logName) {
+        this.logName = logName;
+        this.file = Paths.get(logName + "-shiviz.txt");
+        try {
+            // APPEND cannot be combined with TRUNCATE_EXISTING, truncate the file once it is open
+            this.channel = open();
+            this.channel.truncate(0);
+        } catch (IOException e) {
+            System.err.println("Could not open log file.");
+            e.printStackTrace();
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Returns the name of the log file without the "-shiviz.txt" suffix.
+     */
+    public String getLogName() {
+        return logName;
+    }
+
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg) throws IOException {
+        encoder.reset();
+        encoder.encode(pid, clock, logMsg);
+        write();
+    }
+
+    /**
+     * Formats the message into a reusable buffer and writes the record right away.
+     */
+    @Override
+    public synchronized void append(String pid, VClock clock, LogMessage logMsg) throws IOException {
+        message.setLength(0);
+        logMsg.formatTo(message);
+        encoder.reset();
+        encoder.encode(pid, clock, message);
+        write();
+    }
+
+    /**
+     * Renders the attributes into a reusable buffer and writes the record right away.
+     */
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg, Attributes attributes) throws IOException {
+        message.setLength(0);
+        message.append(logMsg);
+        attributes.formatTo(message);
+        encoder.reset();
+        encoder.encode(pid, clock, message);
+        write();
+    }
+
+    private void write() throws IOException {
+        if (this.channel == null) {
+            this.channel = open();
+        }
+        byte[] array = encoder.array();
+        if (this.view == null || this.view.array() != array) {
+            this.view = ByteBuffer.wrap(array);
+        }
+        this.view.clear();
+        this.view.limit(encoder.length());
+        while (this.view.hasRemaining()) {
+            this.channel.write(this.view);
+        }
+    }
+
+    /**
+     * Records are written through on every append, there is nothing to flush.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+}
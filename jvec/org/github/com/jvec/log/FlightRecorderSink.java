@@ -0,0 +1,317 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.vclock.VClock;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * A LogSink that keeps only the most recent records in memory and writes them
+ * as a ShiViz log when asked to, instead of writing every event to disk.
+ * Records are encoded by a reusable {@link ShiVizEncoder} and copied into a
+ * preallocated off-heap ring of fixed-size slots, so recording an event costs
+ * one copy and no allocations. Once the ring is full, every record overwrites
+ * the oldest one. Messages that do not fit into a slot are cut short, but the
+ * clock line of a record is always kept whole: once a clock no longer fits
+ * into a slot, the slots grow to fit it, so every dump is a valid ShiViz log.
+ * The recorded history is written to "logName-shiviz.txt" by {@link #dump()},
+ * which can also be invoked through JMX after {@link #registerMBean()} or at
+ * exit after {@link #dumpOnShutdown()}. Every dump overwrites the previous one
+ * and keeps the recorded records.
+ */
+public class FlightRecorderSink implements LogSink, FlightRecorderSinkMBean {
+
+    private static final int DEFAULT_RECORD_SIZE = 256;
+    private static final int LENGTH_SIZE = 4;
+
+    private final String logName;
+    private final int capacity;
+    private final int messageSize;
+    private int slotSize;
+    private ByteBuffer ring;
+    private final ShiVizEncoder encoder;
+    private final StringBuilder message = new StringBuilder();
+    private long recorded;
+    private ObjectName mbeanName;
+    private Thread shutdownHook;
+
+    /**
+     * @param logName The name of the log file without the "-shiviz.txt" suffix.
+     * @param records The number of most recent records to keep.
+     */
+    public FlightRecorderSink(String logName, int records) {
+        this(logName, records, DEFAULT_RECORD_SIZE);
+    }
+
+    /**
+     * @param logName    The name of the log file without the "-shiviz.txt" suffix.
+     * @param records    The number of most recent records to keep.
+     * @param recordSize The size of an encoded record in bytes above which its message is cut.
+     */
+    public FlightRecorderSink(String logName, int records, int recordSize) {
+        if (records <= 0 || recordSize <= 0) {
+            throw new IllegalArgumentException("The number of records and their size must be positive.");
+        }
+        if ((long) records * (recordSize + LENGTH_SIZE) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The ring buffer of " + records + " records is too large.");
+        }
+        this.logName = logName;
+        this.capacity = records;
+        this.messageSize = recordSize;
+        this.slotSize = recordSize + LENGTH_SIZE;
+        this.ring = ByteBuffer.allocateDirect(records * slotSize);
+        this.encoder = new ShiVizEncoder(recordSize);
+    }
+
+    /**
+     * Returns the name of the log file without the "-shiviz.txt" suffix.
+     */
+    public String getLogName() {
+        return logName;
+    }
+
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg) {
+        encoder.reset();
+        encoder.encode(pid, clock, logMsg);
+        record();
+    }
+
+    /**
+     * Formats the message into a reusable buffer and records it right away.
+     */
+    @Override
+    public synchronized void append(String pid, VClock clock, LogMessage logMsg) {
+        message.setLength(0);
+        logMsg.formatTo(message);
+        encoder.reset();
+        encoder.encode(pid, clock, message);
+        record();
+    }
+
+    /**
+     * Renders the attributes into a reusable buffer and records the event right away.
+     */
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg, Attributes attributes) {
+        message.setLength(0);
+        message.append(logMsg);
+        attributes.formatTo(message);
+        encoder.reset();
+        encoder.encode(pid, clock, message);
+        record();
+    }
+
+    /**
+     * Copies the encoded record into the slot of the oldest record.
+     */
+    private void record() {
+        byte[] bytes = encoder.array();
+        int clockLine = 0;
+        while (bytes[clockLine] != '\n') {
+            clockLine++;
+        }
+        // Keep the clock line and at least an empty message line.
+        if (clockLine + 2 > slotSize - LENGTH_SIZE && !growSlots(clockLine + 1)) {
+            return;
+        }
+        int length = Math.min(encoder.length(), slotSize - LENGTH_SIZE);
+        if (length < encoder.length()) {
+            // Cut the message at a character boundary and keep its final line break.
+            length--;
+            while (length > clockLine + 1 && (bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+            bytes[length] = '\n';
+            length++;
+        }
+        int slot = (int) (recorded % capacity) * slotSize;
+        ring.putInt(slot, length);
+        ring.position(slot + LENGTH_SIZE);
+        ring.put(bytes, 0, length);
+        recorded++;
+    }
+
+    /**
+     * Moves the recorded events into a ring whose slots hold a clock line of
+     * "clockLength" bytes and a message of the initial record size. Returns
+     * false if such a ring would be too large, in which case the record is
+     * skipped as a whole.
+     */
+    private boolean growSlots(int clockLength) {
+        long newSlotSize = Math.max(2L * (slotSize - LENGTH_SIZE), clockLength + messageSize) + LENGTH_SIZE;
+        if (capacity * newSlotSize > Integer.MAX_VALUE) {
+            newSlotSize = clockLength + 1 + LENGTH_SIZE;
+            if (capacity * newSlotSize > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) (capacity * newSlotSize));
+        for (int i = 0; i < getRecordCount(); i++) {
+            int slot = i * slotSize;
+            int recordLength = ring.getInt(slot);
+            ByteBuffer record = ring.duplicate();
+            record.position(slot).limit(slot + LENGTH_SIZE + recordLength);
+            grown.position((int) (i * newSlotSize));
+            grown.put(record);
+        }
+        ring = grown;
+        slotSize = (int) newSlotSize;
+        return true;
+    }
+
+    /**
+     * Writes the recorded events, oldest first, to "logName-shiviz.txt".
+     */
+    @Override
+    public void dump() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(logName + "-shiviz.txt")) {
+            dump(out);
+        }
+    }
+
+    /**
+     * Writes the recorded events, oldest first, to "out".
+     * The records are copied while holding the lock of the sink, but written
+     * after releasing it, so a slow stream does not stall the logging threads.
+     */
+    public void dump(OutputStream out) throws IOException {
+        byte[] records;
+        int length = 0;
+        synchronized (this) {
+            int count = getRecordCount();
+            records = new byte[count * (slotSize - LENGTH_SIZE)];
+            ByteBuffer view = ring.duplicate();
+            for (long i = recorded - count; i < recorded; i++) {
+                int slot = (int) (i % capacity) * slotSize;
+                int recordLength = view.getInt(slot);
+                view.position(slot + LENGTH_SIZE);
+                view.get(records, length, recordLength);
+                length += recordLength;
+            }
+        }
+        out.write(records, 0, length);
+        out.flush();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized int getRecordCount() {
+        return (int) Math.min(recorded, capacity);
+    }
+
+    @Override
+    public synchronized long getDroppedCount() {
+        return Math.max(recorded - capacity, 0);
+    }
+
+    /**
+     * Registers the sink with the platform MBean server under the name
+     * "org.github.com.jvec:type=FlightRecorderSink,name=logName", which makes
+     * {@link #dump()} available as a JMX operation. The sink is unregistered
+     * when it is closed.
+     */
+    public synchronized void registerMBean() {
+        if (mbeanName != null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName("org.github.com.jvec:type=FlightRecorderSink,name="
+                    + ObjectName.quote(logName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            mbeanName = name;
+        } catch (JMException e) {
+            System.err.println("Could not register the flight recorder with JMX.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Dumps the recorded events when the JVM exits, unless the sink has been
+     * closed before.
+     */
+    public synchronized void dumpOnShutdown() {
+        if (shutdownHook != null) {
+            return;
+        }
+        shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dump();
+                } catch (IOException e) {
+                    System.err.println("Dumping the flight recorder failed:");
+                    e.printStackTrace();
+                }
+            }
+        }, "jvec-flight-recorder-dump");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Records are only written by {@link #dump()}, there is nothing to flush.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Unregisters the sink from JMX and drops its shutdown hook. The recorded
+     * events are kept and can still be dumped.
+     */
+    @Override
+    public synchronized void close() {
+        if (mbeanName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                // Already unregistered.
+            }
+            mbeanName = null;
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down.
+            }
+            shutdownHook = null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import java.util.function.Supplier;
+
+/**
+ * A log message that is only formatted when its record is actually written.
+ * Building a message string for every event costs about as much as the
+ * clock work itself, and nothing at all if logging is disabled. A LogMessage
+ * captures the template and arguments instead, and a LogSink formats it on
+ * demand, an asynchronous sink on its writer thread.
+ * Templates use "{}" as the placeholder of the next argument. Arguments may be
+ * formatted on another thread after the call returns, so they must not be
+ * modified afterwards.
+ */
+public abstract class LogMessage {
+
+    /**
+     * Appends the formatted message to "out".
+     */
+    public abstract void formatTo(StringBuilder out);
+
+    /**
+     * Returns the formatted message.
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        formatTo(out);
+        return out.toString();
+    }
+
+    /**
+     * Returns a message that is computed by "supplier" when it is written.
+     */
+    public static LogMessage of(final Supplier<String> supplier) {
+        return new LogMessage() {
+            @Override
+            public void formatTo(StringBuilder out) {
+                out.append(supplier.get());
+            }
+        };
+    }
+
+    /**
+     * Returns a message that replaces each "{}" of "template" with the next
+     * argument when it is written, e.g. of("Sent {} bytes to {}", 42, "proc2").
+     */
+    public static LogMessage of(final String template, final Object... args) {
+        return new LogMessage() {
+            @Override
+            public void formatTo(StringBuilder out) {
+                int from = 0;
+                for (Object arg : args) {
+                    int at = template.indexOf("{}", from);
+                    if (at < 0) {
+                        break;
+                    }
+                    out.append(template, from, at).append(arg);
+                    from = at + 2;
+                }
+                out.append(template, from, template.length());
+            }
+        };
+    }
+
+    /**
+     * Returns a message that replaces the first "{}" of "template" with "arg"
+     * when it is written, without boxing the argument.
+     */
+    public static LogMessage of(final String template, final long arg) {
+        return new LogMessage() {
+            @Override
+            public void formatTo(StringBuilder out) {
+                int at = template.indexOf("{}");
+                if (at < 0) {
+                    out.append(template);
+                    return;
+                }
+                out.append(template, 0, at).append(arg).append(template, at + 2, template.length());
+            }
+        };
+    }
+
+    /**
+     * Returns a message that replaces the first two "{}" of "template" with
+     * "arg1" and "arg2" when it is written, without boxing the arguments.
+     */
+    public static LogMessage of(final String template, final long arg1, final long arg2) {
+        return new LogMessage() {
+            @Override
+            public void formatTo(StringBuilder out) {
+                int first = template.indexOf("{}");
+                int second = first < 0 ? -1 : template.indexOf("{}", first + 2);
+                if (second < 0) {
+                    of(template, arg1).formatTo(out);
+                    return;
+                }
+                out.append(template, 0, first).append(arg1);
+                out.append(template, first + 2, second).append(arg2);
+                out.append(template, second + 2, template.length());
+            }
+        };
+    }
+}
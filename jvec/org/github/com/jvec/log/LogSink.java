@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * A destination for ShiViz log records.
+ * Every JVec instance writes its events through a LogSink. A sink may belong
+ * to a single JVec instance or be shared by many of them, in which case it
+ * receives records of several processes and keeps them apart by their "pid".
+ * Implementations must be safe to call from several threads at once.
+ */
+public interface LogSink extends Flushable, Closeable {
+
+    /**
+     * Appends a single record to the log in the ShiViz format:
+     * "pid {vector clock}" followed by the custom message on the next line.
+     * The clock is only read during this call, asynchronous sinks have to
+     * capture its current value before returning.
+     *
+     * @param pid    The process id of the logging JVec instance.
+     * @param clock  The vector clock of the event.
+     * @param logMsg Custom message that will be written to the log.
+     */
+    void append(String pid, VClock clock, String logMsg) throws IOException;
+
+    /**
+     * Appends a single record whose message is formatted on demand.
+     * By default the message is formatted right away. Sinks that write
+     * asynchronously may format it later, e.g. on their writer thread, in
+     * which case they have to take a snapshot of the clock before returning.
+     *
+     * @param pid    The process id of the logging JVec instance.
+     * @param clock  The vector clock of the event.
+     * @param logMsg Custom message that will be written to the log.
+     */
+    default void append(String pid, VClock clock, LogMessage logMsg) throws IOException {
+        append(pid, clock, logMsg.toString());
+    }
+
+    /**
+     * Appends a single record with typed attributes. By default the attributes
+     * are rendered as " key=value" pairs after the message right away. The
+     * attributes may be reused by the caller once this call returns.
+     *
+     * @param pid        The process id of the logging JVec instance.
+     * @param clock      The vector clock of the event.
+     * @param logMsg     Custom message that will be written to the log.
+     * @param attributes The attributes of the event.
+     */
+    default void append(String pid, VClock clock, String logMsg, Attributes attributes) throws IOException {
+        StringBuilder message = new StringBuilder(logMsg);
+        attributes.formatTo(message);
+        append(pid, clock, message.toString());
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * A LogSink that multiplexes the records of many JVec instances into one or a
+ * few ShiViz log files.
+ * Records are encoded by the logging thread into an in-memory batch of UTF-8
+ * bytes, see {@link ShiVizEncoder}, and a single background thread writes the
+ * batches out, so registering a JVec
+ * instance with this sink neither opens a file nor costs a file handle.
+ * Messages given as {@link LogMessage} are only formatted by the thread that
+ * writes the batch, usually the writer thread.
+ * Every process is mapped to exactly one file by its "pid", which keeps the
+ * records of a process in the order they were logged.
+ * The log files are overwritten when the sink is created. Buffered records are
+ * written when {@link #flush()} or {@link #close()} is called, when a batch
+ * grows past its size limit or at the latest after the flush interval.
+ */
+public class SharedLogSink implements LogSink {
+
+    private static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 100;
+
+    /**
+     * Once a batch has grown to this many times the batch size, the logging
+     * thread writes it itself instead of waiting for the writer thread.
+     */
+    private static final int BACKPRESSURE_FACTOR = 16;
+
+    /**
+     * The number of bytes a record with a deferred message is assumed to take
+     * in the batch before it is formatted.
+     */
+    private static final int DEFERRED_RECORD_SIZE = 64;
+
+    private final Shard[] shards;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private final Object signal = new Object();
+    private final ShiVizEncoder deferredEncoder = new ShiVizEncoder(256);
+    private final StringBuilder deferredMessage = new StringBuilder();
+    private volatile boolean closed;
+
+    /**
+     * One log file together with the batch of records waiting to be written to it.
+     * Records with deferred messages are kept apart from the encoded batch,
+     * together with the position in the batch where they belong.
+     */
+    private static final class Shard {
+        private final OutputStream out;
+        private ShiVizEncoder pending;
+        private ShiVizEncoder spare;
+        private ArrayList<DeferredRecord> pendingDeferred = new ArrayList<>();
+        private ArrayList<DeferredRecord> spareDeferred = new ArrayList<>();
+        // Set by close() under the lock of the shard, so no record is queued behind the final flush
+        private boolean closed;
+
+        Shard(String fileName, int batchSize) throws IOException {
+            this.out = new BufferedOutputStream(new FileOutputStream(fileName), batchSize);
+            this.pending = new ShiVizEncoder(batchSize);
+            this.spare = new ShiVizEncoder(batchSize);
+        }
+    }
+
+    /**
+     * A record whose message has not been formatted yet.
+     */
+    private static final class DeferredRecord {
+        private final int position;
+        private final String pid;
+        private final VClock clock;
+        private final LogMessage logMsg;
+
+        DeferredRecord(int position, String pid, VClock clock, LogMessage logMsg) {
+            this.position = position;
+            this.pid = pid;
+            this.clock = clock;
+            this.logMsg = logMsg;
+        }
+    }
+
+    /**
+     * Creates a sink writing all records into the file "logName-shiviz.txt".
+     *
+     * @param logName The name of the log file without the "-shiviz.txt" suffix.
+     */
+    public SharedLogSink(String logName) throws IOException {
+        this(logName, 1);
+    }
+
+    /**
+     * Creates a sink spreading the records over "files" log files named
+     * "logName-0-shiviz.txt" up to "logName-(files-1)-shiviz.txt".
+     * If "files" is one, the single file is named "logName-shiviz.txt".
+     *
+     * @param logName The name of the log files without the "-shiviz.txt" suffix.
+     * @param files   The number of log files.
+     */
+    public SharedLogSink(String logName, int files) throws IOException {
+        this(logName, files, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Creates a sink spreading the records over "files" log files.
+     *
+     * @param logName         The name of the log files without the "-shiviz.txt" suffix.
+     * @param files           The number of log files.
+     * @param batchSize       The number of bytes buffered per file before the batch is written.
+     * @param flushIntervalMs The maximum time in milliseconds a record stays buffered.
+     */
+    public SharedLogSink(String logName, int files, int batchSize, long flushIntervalMs) throws IOException {
+        if (files < 1) {
+            throw new IllegalArgumentException("A shared log needs at least one file.");
+        }
+        if (batchSize < 1 || flushIntervalMs < 1) {
+            throw new IllegalArgumentException("Batch size and flush interval must be positive.");
+        }
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shards = new Shard[files];
+        try {
+            for (int i = 0; i < files; i++) {
+                String fileName = files == 1 ? logName + "-shiviz.txt" : logName + "-" + i + "-shiviz.txt";
+                this.shards[i] = new Shard(fileName, batchSize);
+            }
+        } catch (IOException e) {
+            closeFiles();
+            throw e;
+        }
+
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "jvec-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        // The writer thread is a daemon, make sure buffered records survive a regular JVM exit.
+        this.shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    System.err.println("Flushing failed:");
+                    e.printStackTrace();
+                }
+            }
+        }, "jvec-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    private Shard shardOf(String pid) {
+        return shards[(pid.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    @Override
+    public void append(String pid, VClock clock, String logMsg) throws IOException {
+        Shard shard = shardOf(pid);
+        int pendingLength;
+        synchronized (shard) {
+            checkOpen(shard);
+            shard.pending.encode(pid, clock, logMsg);
+            pendingLength = shard.pending.length() + shard.pendingDeferred.size() * DEFERRED_RECORD_SIZE;
+        }
+        signalWriter(pendingLength);
+    }
+
+    /**
+     * Queues the record with a snapshot of the clock, the message is formatted
+     * when the batch is written.
+     */
+    @Override
+    public void append(String pid, VClock clock, LogMessage logMsg) throws IOException {
+        Shard shard = shardOf(pid);
+        VClock snapshot = clock.snapshot();
+        int pendingLength;
+        synchronized (shard) {
+            checkOpen(shard);
+            shard.pendingDeferred.add(new DeferredRecord(shard.pending.length(), pid, snapshot, logMsg));
+            pendingLength = shard.pending.length() + shard.pendingDeferred.size() * DEFERRED_RECORD_SIZE;
+        }
+        signalWriter(pendingLength);
+    }
+
+    private static void checkOpen(Shard shard) throws IOException {
+        if (shard.closed) {
+            throw new IOException("The shared log has been closed.");
+        }
+    }
+
+    private void signalWriter(int pendingLength) throws IOException {
+        if (pendingLength >= batchSize * BACKPRESSURE_FACTOR) {
+            // The writer does not keep up, write the batches on this thread.
+            flush();
+        } else if (pendingLength >= batchSize) {
+            synchronized (signal) {
+                signal.notify();
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered records of every process to the log files.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (shards) {
+            for (Shard shard : shards) {
+                ShiVizEncoder batch;
+                ArrayList<DeferredRecord> deferred;
+                synchronized (shard) {
+                    batch = shard.pending;
+                    shard.pending = shard.spare;
+                    shard.spare = batch;
+                    deferred = shard.pendingDeferred;
+                    shard.pendingDeferred = shard.spareDeferred;
+                    shard.spareDeferred = deferred;
+                }
+                int written = 0;
+                for (DeferredRecord record : deferred) {
+                    shard.out.write(batch.array(), written, record.position - written);
+                    written = record.position;
+                    writeDeferred(shard.out, record);
+                }
+                shard.out.write(batch.array(), written, batch.length() - written);
+                batch.reset();
+                deferred.clear();
+                shard.out.flush();
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered records, stops the writer thread and closes the log
+     * files. Further records are rejected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.closed = true;
+            }
+        }
+        synchronized (signal) {
+            signal.notify();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down.
+        }
+        try {
+            flush();
+        } finally {
+            closeFiles();
+        }
+    }
+
+    /**
+     * Formats a deferred record and writes it to "out". Called while holding
+     * the lock on the shards.
+     */
+    private void writeDeferred(OutputStream out, DeferredRecord record) throws IOException {
+        deferredMessage.setLength(0);
+        try {
+            record.logMsg.formatTo(deferredMessage);
+        } catch (RuntimeException e) {
+            System.err.println("Could not format log message.");
+            e.printStackTrace();
+            deferredMessage.setLength(0);
+            deferredMessage.append("Formatting the log message failed: ").append(e);
+        }
+        deferredEncoder.reset();
+        deferredEncoder.encode(record.pid, record.clock, deferredMessage);
+        deferredEncoder.writeTo(out);
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            synchronized (signal) {
+                try {
+                    signal.wait(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                flush();
+            } catch (IOException e) {
+                System.err.println("Could not write to log file.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void closeFiles() {
+        synchronized (shards) {
+            for (Shard shard : shards) {
+                if (shard == null) {
+                    continue;
+                }
+                try {
+                    shard.out.close();
+                } catch (IOException e) {
+                    System.err.println("Deallocation failed:");
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
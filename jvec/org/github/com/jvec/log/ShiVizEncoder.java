@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.log;
+
+import org.github.com.jvec.vclock.VClock;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes ShiViz log records as UTF-8 straight into a reusable byte array.
+ * A record consists of the line "pid {vector clock}" followed by the custom
+ * message on the next line, exactly as written by {@link VClock#returnVCString()}.
+ * Records are appended one after another until the encoder is reset, so an
+ * encoder can also serve as the batch of a sink. Once the array has grown to
+ * the size of the largest batch, encoding a record allocates nothing.
+ * An encoder is not thread-safe.
+ */
+public final class ShiVizEncoder {
+
+    private byte[] buffer;
+    private int length;
+
+    /**
+     * @param capacity The initial size of the byte array, it grows as needed.
+     */
+    public ShiVizEncoder(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 64)];
+    }
+
+    /**
+     * Appends the record of an event of "pid" with the clock "clock".
+     */
+    public void encode(String pid, VClock clock, CharSequence logMsg) {
+        appendUtf8(pid);
+        appendAscii(' ');
+        appendAscii('{');
+        boolean first = true;
+        for (VClock.Cursor entry = clock.cursor(); entry.next(); ) {
+            if (!first) {
+                appendAscii(',');
+                appendAscii(' ');
+            }
+            first = false;
+            appendAscii('"');
+            appendUtf8(entry.pid());
+            appendAscii('"');
+            appendAscii(':');
+            appendLong(entry.ticks());
+        }
+        appendAscii('}');
+        appendAscii('\n');
+        appendUtf8(logMsg);
+        appendAscii('\n');
+    }
+
+    /**
+     * Returns the number of encoded bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the array holding the encoded bytes, valid up to length().
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * Drops all encoded records, keeping the array for the next ones.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * Writes all encoded records to "out".
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void appendAscii(char c) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) c;
+    }
+
+    /**
+     * Appends the decimal digits of "value" without creating a string.
+     */
+    void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendUtf8("-9223372036854775808");
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int pos = length + digits;
+        do {
+            buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        length += digits;
+    }
+
+    /**
+     * Appends "s" encoded as UTF-8. ASCII strings are copied byte by byte,
+     * other characters are encoded without an intermediate array.
+     */
+    void appendUtf8(CharSequence s) {
+        int n = s.length();
+        ensureCapacity(n);
+        int i = 0;
+        // ASCII fast path, one byte per character.
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            buffer[length++] = (byte) c;
+        }
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[length++] = (byte) (0xc0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensureCapacity(4);
+                buffer[length++] = (byte) (0xf0 | (cp >> 18));
+                buffer[length++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buffer[length++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // A lone surrogate cannot be encoded, like String.getBytes write '?'
+                ensureCapacity(1);
+                buffer[length++] = '?';
+            } else {
+                ensureCapacity(3);
+                buffer[length++] = (byte) (0xe0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+}
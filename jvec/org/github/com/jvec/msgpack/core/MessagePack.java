@@ -362,6 +362,8 @@ public class MessagePack
 
         private boolean str8FormatSupport = true;
 
+        private int stringCacheSize = 0;
+
         public PackerConfig()
         {
         }
@@ -372,6 +374,7 @@ public class MessagePack
             this.bufferFlushThreshold = copy.bufferFlushThreshold;
             this.bufferSize = copy.bufferSize;
             this.str8FormatSupport = copy.str8FormatSupport;
+            this.stringCacheSize = copy.stringCacheSize;
         }
 
         @Override
@@ -387,6 +390,7 @@ public class MessagePack
             result = 31 * result + bufferFlushThreshold;
             result = 31 * result + bufferSize;
             result = 31 * result + (str8FormatSupport ? 1 : 0);
+            result = 31 * result + stringCacheSize;
             return result;
         }
 
@@ -400,7 +404,8 @@ public class MessagePack
             return this.smallStringOptimizationThreshold == o.smallStringOptimizationThreshold
                     && this.bufferFlushThreshold == o.bufferFlushThreshold
                     && this.bufferSize == o.bufferSize
-                    && this.str8FormatSupport == o.str8FormatSupport;
+                    && this.str8FormatSupport == o.str8FormatSupport
+                    && this.stringCacheSize == o.stringCacheSize;
         }
 
         /**
@@ -518,6 +523,23 @@ public class MessagePack
         {
             return str8FormatSupport;
         }
+
+        /**
+         * Number of encoded strings packString keeps per packer to write again with a single copy when the same
+         * String instance is packed again (default: 0, no cache). Only strings shorter than the small string
+         * optimization threshold are cached. See also {@link PackedString}.
+         */
+        public PackerConfig withStringCacheSize(int strings)
+        {
+            PackerConfig copy = clone();
+            copy.stringCacheSize = strings;
+            return copy;
+        }
+
+        public int getStringCacheSize()
+        {
+            return stringCacheSize;
+        }
     }
 
     /**
@@ -540,6 +562,10 @@ public class MessagePack
 
         private int stringDecoderBufferSize = 8192;
 
+        private int stringCacheSize = 0;
+
+        private int stringCacheMaxLength = 64;
+
         public UnpackerConfig()
         {
         }
@@ -552,6 +578,9 @@ public class MessagePack
             this.actionOnUnmappableString = copy.actionOnUnmappableString;
             this.stringSizeLimit = copy.stringSizeLimit;
             this.bufferSize = copy.bufferSize;
+            this.stringDecoderBufferSize = copy.stringDecoderBufferSize;
+            this.stringCacheSize = copy.stringCacheSize;
+            this.stringCacheMaxLength = copy.stringCacheMaxLength;
         }
 
         @Override
@@ -570,6 +599,8 @@ public class MessagePack
             result = 31 * result + stringSizeLimit;
             result = 31 * result + bufferSize;
             result = 31 * result + stringDecoderBufferSize;
+            result = 31 * result + stringCacheSize;
+            result = 31 * result + stringCacheMaxLength;
             return result;
         }
 
@@ -586,7 +617,9 @@ public class MessagePack
                     && this.actionOnUnmappableString == o.actionOnUnmappableString
                     && this.stringSizeLimit == o.stringSizeLimit
                     && this.stringDecoderBufferSize == o.stringDecoderBufferSize
-                    && this.bufferSize == o.bufferSize;
+                    && this.bufferSize == o.bufferSize
+                    && this.stringCacheSize == o.stringCacheSize
+                    && this.stringCacheMaxLength == o.stringCacheMaxLength;
         }
 
         /**
@@ -761,6 +794,38 @@ public class MessagePack
             return stringDecoderBufferSize;
         }
 
+        /**
+         * Number of decoded strings unpackString keeps per unpacker to return again, without decoding or allocating,
+         * when the same bytes recur in the input (default: 0, no cache).
+         * The cache is kept when the unpacker is reset, so it pays off for unpackers that are reused.
+         */
+        public UnpackerConfig withStringCacheSize(int strings)
+        {
+            UnpackerConfig copy = clone();
+            copy.stringCacheSize = strings;
+            return copy;
+        }
+
+        public int getStringCacheSize()
+        {
+            return stringCacheSize;
+        }
+
+        /**
+         * Maximum length in bytes of the strings kept by the string cache (default: 64).
+         */
+        public UnpackerConfig withStringCacheMaxLength(int bytes)
+        {
+            UnpackerConfig copy = clone();
+            copy.stringCacheMaxLength = bytes;
+            return copy;
+        }
+
+        public int getStringCacheMaxLength()
+        {
+            return stringCacheMaxLength;
+        }
+
         /**
          * When a packer is created with newUnpacker(OutputStream) or newUnpacker(WritableByteChannel), the stream will be
          * buffered with this size of buffer (default: 8192).
@@ -172,6 +172,11 @@ public class MessagePacker
 
     private final boolean str8FormatSupport;
 
+    /**
+     * Recently packed strings with their encoding, indexed by identity hash, or null if disabled.
+     */
+    private final PackedString[] stringCache;
+
     /**
      * Current internal buffer.
      */
@@ -204,6 +209,8 @@ public class MessagePacker
         this.smallStringOptimizationThreshold = config.getSmallStringOptimizationThreshold();
         this.bufferFlushThreshold = config.getBufferFlushThreshold();
         this.str8FormatSupport = config.isStr8FormatSupport();
+        this.stringCache = config.getStringCacheSize() > 0
+                ? new PackedString[Integer.highestOneBit(config.getStringCacheSize() * 2 - 1)] : null;
         this.position = 0;
         this.totalFlushBytes = 0;
     }
@@ -634,6 +641,200 @@ public class MessagePacker
         return this;
     }
 
+    /**
+     * Number of elements of a primitive array written per capacity check.
+     */
+    private static final int BULK_BATCH_SIZE = 512;
+
+    /**
+     * Writes an Array value of Integer values.
+     *
+     * <p>
+     * This method writes the same bytes as {@link #packArrayHeader(int)} followed by {@link #packLong(long)} for
+     * each element, but checks the buffer capacity once per batch of elements instead of once per element.
+     *
+     * @param src the array of values
+     * @param off the index of the first element to be written
+     * @param len the number of elements to be written
+     * @return this
+     * @throws IOException when underlying output throws IOException
+     */
+    public MessagePacker packLongArray(long[] src, int off, int len)
+            throws IOException
+    {
+        checkArrayRange(src.length, off, len);
+        packArrayHeader(len);
+        int end = off + len;
+        while (off < end) {
+            int batchEnd = Math.min(end, off + BULK_BATCH_SIZE);
+            ensureCapacity((batchEnd - off) * 9);
+            while (off < batchEnd) {
+                putLongValue(src[off++]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes an Array value of Integer values.
+     *
+     * <p>
+     * This method writes the same bytes as {@link #packArrayHeader(int)} followed by {@link #packInt(int)} for
+     * each element, but checks the buffer capacity once per batch of elements instead of once per element.
+     *
+     * @param src the array of values
+     * @param off the index of the first element to be written
+     * @param len the number of elements to be written
+     * @return this
+     * @throws IOException when underlying output throws IOException
+     */
+    public MessagePacker packIntArray(int[] src, int off, int len)
+            throws IOException
+    {
+        checkArrayRange(src.length, off, len);
+        packArrayHeader(len);
+        int end = off + len;
+        while (off < end) {
+            int batchEnd = Math.min(end, off + BULK_BATCH_SIZE);
+            ensureCapacity((batchEnd - off) * 5);
+            while (off < batchEnd) {
+                putLongValue(src[off++]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes an Array value of Float values.
+     *
+     * <p>
+     * This method writes the same bytes as {@link #packArrayHeader(int)} followed by {@link #packDouble(double)} for
+     * each element, but checks the buffer capacity once per batch of elements instead of once per element.
+     *
+     * @param src the array of values
+     * @param off the index of the first element to be written
+     * @param len the number of elements to be written
+     * @return this
+     * @throws IOException when underlying output throws IOException
+     */
+    public MessagePacker packDoubleArray(double[] src, int off, int len)
+            throws IOException
+    {
+        checkArrayRange(src.length, off, len);
+        packArrayHeader(len);
+        int end = off + len;
+        while (off < end) {
+            int batchEnd = Math.min(end, off + BULK_BATCH_SIZE);
+            ensureCapacity((batchEnd - off) * 9);
+            while (off < batchEnd) {
+                buffer.putByte(position++, MessagePack.Code.FLOAT64);
+                buffer.putDouble(position, src[off++]);
+                position += 8;
+            }
+        }
+        return this;
+    }
+
+    private static void checkArrayRange(int length, int off, int len)
+    {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException(String.format("offset %d and length %d are out of range of an array of %d elements", off, len, length));
+        }
+    }
+
+    /**
+     * Writes an integer like {@link #packLong(long)} into the buffer, whose capacity has been ensured by the caller.
+     */
+    private void putLongValue(long v)
+    {
+        if (v < -(1L << 5)) {
+            if (v < -(1L << 15)) {
+                if (v < -(1L << 31)) {
+                    buffer.putByte(position++, MessagePack.Code.INT64);
+                    buffer.putLong(position, v);
+                    position += 8;
+                }
+                else {
+                    buffer.putByte(position++, MessagePack.Code.INT32);
+                    buffer.putInt(position, (int) v);
+                    position += 4;
+                }
+            }
+            else {
+                if (v < -(1 << 7)) {
+                    buffer.putByte(position++, MessagePack.Code.INT16);
+                    buffer.putShort(position, (short) v);
+                    position += 2;
+                }
+                else {
+                    buffer.putByte(position++, MessagePack.Code.INT8);
+                    buffer.putByte(position++, (byte) v);
+                }
+            }
+        }
+        else if (v < (1 << 7)) {
+            // fixnum
+            buffer.putByte(position++, (byte) v);
+        }
+        else {
+            if (v < (1L << 16)) {
+                if (v < (1 << 8)) {
+                    buffer.putByte(position++, MessagePack.Code.UINT8);
+                    buffer.putByte(position++, (byte) v);
+                }
+                else {
+                    buffer.putByte(position++, MessagePack.Code.UINT16);
+                    buffer.putShort(position, (short) v);
+                    position += 2;
+                }
+            }
+            else {
+                if (v < (1L << 32)) {
+                    buffer.putByte(position++, MessagePack.Code.UINT32);
+                    buffer.putInt(position, (int) v);
+                    position += 4;
+                }
+                else {
+                    buffer.putByte(position++, MessagePack.Code.UINT64);
+                    buffer.putLong(position, v);
+                    position += 8;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a String value that has been encoded in advance.
+     *
+     * <p>
+     * The string is written with the shortest str header, or the shortest one but str8 if
+     * {@link MessagePack.PackerConfig#withStr8FormatSupport(boolean)} is set to false, with a single copy of the
+     * encoding. These are the same bytes {@link #packString(String)} writes for strings shorter than the small string
+     * optimization threshold. Longer strings are encoded by {@link #packString(String)} in the buffer behind a header
+     * picked from their length in chars, e.g. str8 for a string of fewer than 32 bytes, so the two methods may write
+     * different, but equally valid, headers for them.
+     *
+     * @param s the string to be written
+     * @return this
+     * @throws IOException when underlying output throws IOException
+     */
+    public MessagePacker packString(PackedString s)
+            throws IOException
+    {
+        byte[] encoded = s.encoded();
+        if (!str8FormatSupport && encoded[0] == MessagePack.Code.STR8) {
+            packRawStringHeader(encoded.length - 2);
+            return addPayload(encoded, 2, encoded.length - 2);
+        }
+        if (encoded.length > bufferFlushThreshold) {
+            return addPayload(encoded, 0, encoded.length);
+        }
+        ensureCapacity(encoded.length);
+        buffer.putBytes(position, encoded, 0, encoded.length);
+        position += encoded.length;
+        return this;
+    }
+
     private void packStringWithGetBytes(String s)
             throws IOException
     {
@@ -667,6 +868,10 @@ public class MessagePacker
 
     private int encodeStringToBufferAt(int pos, String s)
     {
+        int written = encodeAsciiToBufferAt(pos, s);
+        if (written >= 0) {
+            return written;
+        }
         prepareEncoder();
         ByteBuffer bb = buffer.sliceAsByteBuffer(pos, buffer.size() - pos);
         int startPosition = bb.position();
@@ -692,6 +897,37 @@ public class MessagePacker
         return bb.position() - startPosition;
     }
 
+    /**
+     * Writes the string as is if it consists of ASCII characters, which are encoded as themselves in UTF-8.
+     * Returns -1, possibly after writing a part of the string, if it doesn't.
+     * The caller has ensured the capacity for the string.
+     */
+    private int encodeAsciiToBufferAt(int pos, String s)
+    {
+        int len = s.length();
+        if (buffer.hasArray()) {
+            byte[] dst = buffer.array();
+            int offset = buffer.arrayOffset() + pos;
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    return -1;
+                }
+                dst[offset + i] = (byte) c;
+            }
+        }
+        else {
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    return -1;
+                }
+                buffer.putByte(pos + i, (byte) c);
+            }
+        }
+        return len;
+    }
+
     private static final int UTF_8_MAX_CHAR_SIZE = 6;
 
     /**
@@ -711,6 +947,16 @@ public class MessagePacker
             packRawStringHeader(0);
             return this;
         }
+        else if (stringCache != null && s.length() < smallStringOptimizationThreshold) {
+            // The same String instance is likely to be packed again, e.g. a map key
+            int slot = System.identityHashCode(s) & (stringCache.length - 1);
+            PackedString packed = stringCache[slot];
+            if (packed == null || packed.getString() != s) {
+                packed = PackedString.of(s);
+                stringCache[slot] = packed;
+            }
+            return packString(packed);
+        }
         else if (CORRUPTED_CHARSET_ENCODER || s.length() < smallStringOptimizationThreshold) {
             // Using String.getBytes is generally faster for small strings.
             // Also, when running on a platform that has a corrupted CharsetEncoder (i.e. Android 4.x), avoid using it.
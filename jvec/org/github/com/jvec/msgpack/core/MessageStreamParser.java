@@ -0,0 +1,446 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkArgument;
+import static org.github.com.jvec.msgpack.core.Preconditions.checkNotNull;
+
+/**
+ * A push-style parser that finds the boundaries of MessagePack values in data fed to it in arbitrary pieces, e.g. as
+ * it arrives on a non-blocking socket.
+ * <p>
+ * Unlike {@link MessageUnpacker}, which pulls its input and throws {@link MessageInsufficientBufferException} when it
+ * runs out, this parser keeps its position within the current value across calls of {@link #feed(ByteBuffer)}: the
+ * nesting of open arrays and maps and the number of payload bytes still to come. Every byte is scanned exactly once,
+ * a partially received value is never scanned again.
+ * <p>
+ * Values are grouped into messages by a {@link Framing}, by default every top-level value is a message of its own.
+ * Each complete message is passed to the {@link MessageHandler} as a range of the internal buffer, which can be
+ * decoded with {@link MessagePack#newDefaultUnpacker(byte[], int, int)} without running out of data. The range is
+ * only valid during the call. A parser is not thread-safe.
+ */
+public class MessageStreamParser
+{
+    /**
+     * Receives the complete messages found by a parser.
+     */
+    public interface MessageHandler
+    {
+        /**
+         * Called for every complete message.
+         *
+         * @param buffer the buffer holding the message, only valid during this call
+         * @param offset the offset of the message in buffer
+         * @param length the length of the message in bytes
+         */
+        void onMessage(byte[] buffer, int offset, int length)
+                throws IOException;
+    }
+
+    /**
+     * Decides which consecutive top-level values form a message.
+     */
+    public interface Framing
+    {
+        /**
+         * Called for every complete top-level value.
+         *
+         * @param index  the index of the value within the current message, starting at 0
+         * @param format the format of the value
+         * @return true if the value completes the message
+         */
+        boolean isComplete(int index, MessageFormat format);
+    }
+
+    /**
+     * Every top-level value is a message of its own.
+     */
+    public static final Framing SINGLE_VALUE = new Framing()
+    {
+        @Override
+        public boolean isComplete(int index, MessageFormat format)
+        {
+            return true;
+        }
+    };
+
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_MAX_DEPTH = 512;
+
+    private final MessageHandler handler;
+    private final Framing framing;
+    private final int maxMessageSize;
+    private final int maxDepth;
+
+    private byte[] buffer = new byte[256];
+    private int limit;
+    // Start of the current message in buffer
+    private int messageStart;
+    // Offset of the next byte to be scanned
+    private int scanPos;
+    // Number of values of the current message completed so far
+    private int messageValues;
+    // Format of the current top-level value
+    private MessageFormat topFormat;
+    // Payload bytes of the current string, binary or extension still to come
+    private long skipBytes;
+    // Number of values still to come in each open array or map, innermost last
+    private long[] pending = new long[8];
+    private int depth;
+
+    public MessageStreamParser(MessageHandler handler)
+    {
+        this(handler, SINGLE_VALUE, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * @param handler        receives the complete messages
+     * @param framing        groups top-level values into messages
+     * @param maxMessageSize the maximum size of a message in bytes, larger ones throw MessageSizeException
+     */
+    public MessageStreamParser(MessageHandler handler, Framing framing, int maxMessageSize)
+    {
+        this(handler, framing, maxMessageSize, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param handler        receives the complete messages
+     * @param framing        groups top-level values into messages
+     * @param maxMessageSize the maximum size of a message in bytes, larger ones throw MessageSizeException
+     * @param maxDepth       the maximum nesting of arrays and maps, deeper values throw MessageFormatException
+     */
+    public MessageStreamParser(MessageHandler handler, Framing framing, int maxMessageSize, int maxDepth)
+    {
+        this.handler = checkNotNull(handler, "handler is null");
+        this.framing = checkNotNull(framing, "framing is null");
+        checkArgument(maxMessageSize > 0, "maxMessageSize must be > 0");
+        checkArgument(maxDepth > 0, "maxDepth must be > 0");
+        this.maxMessageSize = maxMessageSize;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Parses the remaining bytes of "data" and calls the handler for every message they complete.
+     * The position of "data" is advanced to its limit.
+     */
+    public void feed(ByteBuffer data)
+            throws IOException
+    {
+        int length = data.remaining();
+        ensureCapacity(length);
+        data.get(buffer, limit, length);
+        limit += length;
+        scan();
+    }
+
+    /**
+     * Parses the given bytes and calls the handler for every message they complete.
+     */
+    public void feed(byte[] data, int offset, int length)
+            throws IOException
+    {
+        ensureCapacity(length);
+        System.arraycopy(data, offset, buffer, limit, length);
+        limit += length;
+        scan();
+    }
+
+    /**
+     * Returns the number of bytes of the incomplete message received so far.
+     */
+    public int getBufferedSize()
+    {
+        return limit - messageStart;
+    }
+
+    /**
+     * Drops any incomplete message, e.g. after the connection was reset.
+     */
+    public void reset()
+    {
+        limit = 0;
+        messageStart = 0;
+        scanPos = 0;
+        messageValues = 0;
+        skipBytes = 0;
+        depth = 0;
+    }
+
+    private void ensureCapacity(int length)
+            throws MessageSizeException
+    {
+        if (messageStart > 0) {
+            // Move the incomplete message to the front, its scan state is relative to it
+            System.arraycopy(buffer, messageStart, buffer, 0, limit - messageStart);
+            limit -= messageStart;
+            scanPos -= messageStart;
+            messageStart = 0;
+        }
+        long required = (long) limit + length;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min(Math.max(required, buffer.length * 2L), Integer.MAX_VALUE - 8));
+        }
+    }
+
+    private void scan()
+            throws IOException
+    {
+        while (true) {
+            if (skipBytes > 0) {
+                int available = limit - scanPos;
+                if (available == 0) {
+                    break;
+                }
+                int skipped = (int) Math.min(skipBytes, available);
+                scanPos += skipped;
+                skipBytes -= skipped;
+                if (skipBytes > 0) {
+                    break;
+                }
+                valueCompleted();
+                continue;
+            }
+            if (scanPos == limit || !scanHeader()) {
+                break;
+            }
+        }
+        if (limit - messageStart > maxMessageSize) {
+            throw new MessageSizeException("The message exceeds the maximum size of " + maxMessageSize + " bytes",
+                    limit - messageStart);
+        }
+    }
+
+    /**
+     * Scans the header of the next value if it is complete. Returns false if more data is needed.
+     */
+    private boolean scanHeader()
+            throws IOException
+    {
+        byte b = buffer[scanPos];
+        MessageFormat format = MessageFormat.valueOf(b);
+        if (depth == 0) {
+            topFormat = format;
+        }
+        int extra;
+        long payload = 0;
+        long elements = -1;
+        switch (format) {
+            case POSFIXINT:
+            case NEGFIXINT:
+            case NIL:
+            case BOOLEAN:
+                extra = 0;
+                break;
+            case FIXSTR:
+                extra = 0;
+                payload = b & 0x1f;
+                break;
+            case FIXARRAY:
+                extra = 0;
+                elements = b & 0x0f;
+                break;
+            case FIXMAP:
+                extra = 0;
+                elements = (b & 0x0f) * 2L;
+                break;
+            case UINT8:
+            case INT8:
+                extra = 1;
+                break;
+            case UINT16:
+            case INT16:
+                extra = 2;
+                break;
+            case UINT32:
+            case INT32:
+            case FLOAT32:
+                extra = 4;
+                break;
+            case UINT64:
+            case INT64:
+            case FLOAT64:
+                extra = 8;
+                break;
+            case FIXEXT1:
+                extra = 2;
+                break;
+            case FIXEXT2:
+                extra = 3;
+                break;
+            case FIXEXT4:
+                extra = 5;
+                break;
+            case FIXEXT8:
+                extra = 9;
+                break;
+            case FIXEXT16:
+                extra = 17;
+                break;
+            case STR8:
+            case BIN8:
+                extra = 1;
+                break;
+            case STR16:
+            case BIN16:
+            case ARRAY16:
+            case MAP16:
+                extra = 2;
+                break;
+            case STR32:
+            case BIN32:
+            case ARRAY32:
+            case MAP32:
+                extra = 4;
+                break;
+            case EXT8:
+                extra = 2;
+                break;
+            case EXT16:
+                extra = 3;
+                break;
+            case EXT32:
+                extra = 5;
+                break;
+            default:
+                throw new MessageNeverUsedFormatException(String.format("Encountered 0xC1 \"NEVER_USED\" byte at %d", scanPos));
+        }
+        if (limit - scanPos <= extra) {
+            // The header itself is incomplete
+            return false;
+        }
+        switch (format) {
+            case STR8:
+            case BIN8:
+            case EXT8:
+                payload = buffer[scanPos + 1] & 0xffL;
+                break;
+            case STR16:
+            case BIN16:
+            case EXT16:
+                payload = readUnsignedShort(scanPos + 1);
+                break;
+            case STR32:
+            case BIN32:
+            case EXT32:
+                payload = readUnsignedInt(scanPos + 1);
+                break;
+            case ARRAY16:
+                elements = readUnsignedShort(scanPos + 1);
+                break;
+            case ARRAY32:
+                elements = readUnsignedInt(scanPos + 1);
+                break;
+            case MAP16:
+                elements = readUnsignedShort(scanPos + 1) * 2L;
+                break;
+            case MAP32:
+                elements = readUnsignedInt(scanPos + 1) * 2L;
+                break;
+            default:
+                break;
+        }
+        scanPos += 1 + extra;
+        if (elements > 0) {
+            push(elements);
+        }
+        else if (payload > 0) {
+            if (payload > maxMessageSize) {
+                throw new MessageSizeException("The message exceeds the maximum size of " + maxMessageSize + " bytes",
+                        payload);
+            }
+            skipBytes = payload;
+        }
+        else {
+            valueCompleted();
+        }
+        return true;
+    }
+
+    private int readUnsignedShort(int at)
+    {
+        return ((buffer[at] & 0xff) << 8) | (buffer[at + 1] & 0xff);
+    }
+
+    private long readUnsignedInt(int at)
+    {
+        return ((buffer[at] & 0xffL) << 24) | ((buffer[at + 1] & 0xffL) << 16)
+                | ((buffer[at + 2] & 0xffL) << 8) | (buffer[at + 3] & 0xffL);
+    }
+
+    private void push(long elements)
+    {
+        if (depth == maxDepth) {
+            throw new MessageFormatException("Arrays and maps are nested deeper than " + maxDepth + " levels");
+        }
+        if (depth == pending.length) {
+            pending = Arrays.copyOf(pending, Math.min(depth * 2, maxDepth));
+        }
+        pending[depth++] = elements;
+    }
+
+    /**
+     * Counts a completed value against its enclosing containers and passes on completed messages.
+     */
+    private void valueCompleted()
+            throws IOException
+    {
+        while (depth > 0) {
+            if (--pending[depth - 1] > 0) {
+                return;
+            }
+            // The container is complete as well
+            depth--;
+        }
+        if (framing.isComplete(messageValues, topFormat)) {
+            int start = messageStart;
+            messageValues = 0;
+            messageStart = scanPos;
+            handler.onMessage(buffer, start, scanPos - start);
+        }
+        else {
+            messageValues++;
+        }
+    }
+}
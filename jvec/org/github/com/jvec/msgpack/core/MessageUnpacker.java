@@ -40,18 +40,25 @@
 //
 package org.github.com.jvec.msgpack.core;
 
+import org.github.com.jvec.msgpack.core.buffer.ArrayBufferInput;
+import org.github.com.jvec.msgpack.core.buffer.ByteBufferInput;
 import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
 import org.github.com.jvec.msgpack.core.buffer.MessageBufferInput;
 import org.github.com.jvec.msgpack.value.ImmutableValue;
 import org.github.com.jvec.msgpack.value.Value;
 import org.github.com.jvec.msgpack.value.ValueFactory;
 import org.github.com.jvec.msgpack.value.Variable;
+import org.github.com.jvec.msgpack.value.impl.LazyArrayValueImpl;
+import org.github.com.jvec.msgpack.value.impl.LazyBinaryValueImpl;
+import org.github.com.jvec.msgpack.value.impl.LazyMapValueImpl;
+import org.github.com.jvec.msgpack.value.impl.LazyStringValueImpl;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
@@ -176,12 +183,31 @@ public class MessageUnpacker
 {
     private static final MessageBuffer EMPTY_BUFFER = MessageBuffer.wrap(new byte[0]);
 
+    /**
+     * ASCII strings are decoded as ISO-8859-1, which copies the bytes into a compact String without decoding them.
+     */
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    private static final long ASCII_MASK = 0x8080808080808080L;
+
+    /**
+     * The size of {@link #asciiBuffer}. Longer ASCII strings in buffers without an array are decoded from a
+     * ByteBuffer view of the buffer, like any other string.
+     */
+    private static final int ASCII_BUFFER_SIZE = 128;
+
     private final boolean allowReadingStringAsBinary;
     private final boolean allowReadingBinaryAsString;
     private final CodingErrorAction actionOnMalformedString;
     private final CodingErrorAction actionOnUnmappableString;
     private final int stringSizeLimit;
     private final int stringDecoderBufferSize;
+    private final StringCache stringCache;
+
+    /**
+     * The configuration of the unpackers of the elements of lazy arrays and maps, without a string cache.
+     */
+    private final MessagePack.UnpackerConfig lazyConfig;
 
     private MessageBufferInput in;
 
@@ -226,6 +252,11 @@ public class MessageUnpacker
      */
     private CharBuffer decodeBuffer;
 
+    /**
+     * Buffer for copying short ASCII strings out of buffers without an array, allocated on first use
+     */
+    private byte[] asciiBuffer;
+
     /**
      * Create an MessageUnpacker that reads data from the given MessageBufferInput.
      * This method is available for subclasses to override. Use MessagePack.UnpackerConfig.newUnpacker method to instanciate this implementation.
@@ -241,6 +272,9 @@ public class MessageUnpacker
         this.actionOnUnmappableString = config.getActionOnUnmappableString();
         this.stringSizeLimit = config.getStringSizeLimit();
         this.stringDecoderBufferSize = config.getStringDecoderBufferSize();
+        this.stringCache = config.getStringCacheSize() > 0
+                ? new StringCache(config.getStringCacheSize(), config.getStringCacheMaxLength()) : null;
+        this.lazyConfig = config.getStringCacheSize() > 0 ? config.withStringCacheSize(0) : config;
     }
 
     /**
@@ -675,6 +709,57 @@ public class MessageUnpacker
         }
     }
 
+    /**
+     * Reads the next value like {@link #unpackValue()}, but without copying or decoding it if the input is a byte
+     * array or ByteBuffer held in memory.
+     * <p>
+     * Strings and binaries refer to their payload in the input and are only copied or decoded when they are
+     * accessed. Arrays and maps are views of their encoding: the offsets of their elements are found when an element
+     * is accessed for the first time, and only the elements accessed are unpacked, with the configuration of this
+     * unpacker. Reading a few fields out of a large map is therefore much cheaper than with {@link #unpackValue()}.
+     * <p>
+     * The returned value refers to the input, which must not be modified while the value is in use. For other
+     * inputs, whose buffers may be reused, this method is equivalent to {@link #unpackValue()}.
+     *
+     * @return the next value
+     * @throws IOException when underlying input throws IOException
+     */
+    public ImmutableValue unpackLazyValue()
+            throws IOException
+    {
+        if (!(in instanceof ArrayBufferInput || in instanceof ByteBufferInput)) {
+            return unpackValue();
+        }
+        // These inputs consist of a single buffer, so the whole value is contained in the current one
+        MessageFormat mf = getNextFormat();
+        switch (mf.getValueType()) {
+            case STRING: {
+                int length = unpackRawStringHeader();
+                return new LazyStringValueImpl(readPayloadAsReference(length));
+            }
+            case BINARY: {
+                int length = unpackBinaryHeader();
+                return new LazyBinaryValueImpl(readPayloadAsReference(length));
+            }
+            case ARRAY: {
+                int start = position;
+                int size = unpackArrayHeader();
+                int headerLength = position - start;
+                skipValue(size);
+                return new LazyArrayValueImpl(buffer.slice(start, position - start), headerLength, size, lazyConfig);
+            }
+            case MAP: {
+                int start = position;
+                int size = unpackMapHeader();
+                int headerLength = position - start;
+                skipValue(size * 2);
+                return new LazyMapValueImpl(buffer.slice(start, position - start), headerLength, size, lazyConfig);
+            }
+            default:
+                return unpackValue();
+        }
+    }
+
     public Variable unpackValue(Variable var)
             throws IOException
     {
@@ -1112,6 +1197,214 @@ public class MessageUnpacker
         throw unexpected("Float", b);
     }
 
+    /**
+     * Reads an Array value of Integer values into a new array.
+     *
+     * @return the read values
+     * @throws MessageIntegerOverflowException when a value doesn't fit in the range of long
+     * @throws MessageTypeException when the value is not an Array of MessagePack Integer values
+     * @throws IOException when underlying input throws IOException
+     */
+    public long[] unpackLongArray()
+            throws IOException
+    {
+        long[] dst = new long[unpackArrayHeader()];
+        readLongArray(dst, dst.length);
+        return dst;
+    }
+
+    /**
+     * Reads an Array value of Integer values into the given array.
+     * <p>
+     * While the input holds the encoding of at least one more element in its current buffer, elements are decoded
+     * straight from the buffer, without the per-value boundary checks of {@link #unpackLong()}.
+     *
+     * @param dst the array to store the values in, from index 0
+     * @return the number of values read
+     * @throws MessageSizeException when the Array value has more elements than dst
+     * @throws MessageIntegerOverflowException when a value doesn't fit in the range of long
+     * @throws MessageTypeException when the value is not an Array of MessagePack Integer values
+     * @throws IOException when underlying input throws IOException
+     */
+    public int unpackLongArray(long[] dst)
+            throws IOException
+    {
+        int size = unpackArrayHeader();
+        checkArraySize(size, dst.length);
+        readLongArray(dst, size);
+        return size;
+    }
+
+    /**
+     * Reads an Array value of Integer values into a new array.
+     *
+     * @return the read values
+     * @throws MessageIntegerOverflowException when a value doesn't fit in the range of int
+     * @throws MessageTypeException when the value is not an Array of MessagePack Integer values
+     * @throws IOException when underlying input throws IOException
+     */
+    public int[] unpackIntArray()
+            throws IOException
+    {
+        int[] dst = new int[unpackArrayHeader()];
+        readIntArray(dst, dst.length);
+        return dst;
+    }
+
+    /**
+     * Reads an Array value of Integer values into the given array, like {@link #unpackLongArray(long[])}.
+     *
+     * @param dst the array to store the values in, from index 0
+     * @return the number of values read
+     * @throws MessageSizeException when the Array value has more elements than dst
+     * @throws MessageIntegerOverflowException when a value doesn't fit in the range of int
+     * @throws MessageTypeException when the value is not an Array of MessagePack Integer values
+     * @throws IOException when underlying input throws IOException
+     */
+    public int unpackIntArray(int[] dst)
+            throws IOException
+    {
+        int size = unpackArrayHeader();
+        checkArraySize(size, dst.length);
+        readIntArray(dst, size);
+        return size;
+    }
+
+    /**
+     * Reads an Array value of Float values into a new array.
+     *
+     * @return the read values
+     * @throws MessageTypeException when the value is not an Array of MessagePack Float values
+     * @throws IOException when underlying input throws IOException
+     */
+    public double[] unpackDoubleArray()
+            throws IOException
+    {
+        double[] dst = new double[unpackArrayHeader()];
+        readDoubleArray(dst, dst.length);
+        return dst;
+    }
+
+    /**
+     * Reads an Array value of Float values into the given array, like {@link #unpackLongArray(long[])}.
+     *
+     * @param dst the array to store the values in, from index 0
+     * @return the number of values read
+     * @throws MessageSizeException when the Array value has more elements than dst
+     * @throws MessageTypeException when the value is not an Array of MessagePack Float values
+     * @throws IOException when underlying input throws IOException
+     */
+    public int unpackDoubleArray(double[] dst)
+            throws IOException
+    {
+        int size = unpackArrayHeader();
+        checkArraySize(size, dst.length);
+        readDoubleArray(dst, size);
+        return size;
+    }
+
+    private static void checkArraySize(int size, int capacity)
+            throws MessageSizeException
+    {
+        if (size > capacity) {
+            throw new MessageSizeException(String.format("Array of %d elements doesn't fit in an array of %d elements", size, capacity), size);
+        }
+    }
+
+    private void readLongArray(long[] dst, int size)
+            throws IOException
+    {
+        for (int i = 0; i < size; i++) {
+            // An integer takes at most 9 bytes
+            dst[i] = buffer.size() - position >= 9 ? readLongInBuffer() : unpackLong();
+        }
+    }
+
+    private void readIntArray(int[] dst, int size)
+            throws IOException
+    {
+        for (int i = 0; i < size; i++) {
+            if (buffer.size() - position >= 9) {
+                long v = readLongInBuffer();
+                if (v != (int) v) {
+                    throw new MessageIntegerOverflowException(v);
+                }
+                dst[i] = (int) v;
+            }
+            else {
+                dst[i] = unpackInt();
+            }
+        }
+    }
+
+    private void readDoubleArray(double[] dst, int size)
+            throws IOException
+    {
+        for (int i = 0; i < size; i++) {
+            if (buffer.size() - position >= 9) {
+                byte b = buffer.getByte(position);
+                if (b == MessagePack.Code.FLOAT64) {
+                    dst[i] = buffer.getDouble(position + 1);
+                    position += 9;
+                    continue;
+                }
+                else if (b == MessagePack.Code.FLOAT32) {
+                    dst[i] = buffer.getFloat(position + 1);
+                    position += 5;
+                    continue;
+                }
+            }
+            dst[i] = unpackDouble();
+        }
+    }
+
+    /**
+     * Reads an integer like {@link #unpackLong()} from the current buffer, which holds at least 9 more bytes.
+     */
+    private long readLongInBuffer()
+            throws IOException
+    {
+        byte b = buffer.getByte(position);
+        if (MessagePack.Code.isFixInt(b)) {
+            position++;
+            return (long) b;
+        }
+        long v;
+        switch (b) {
+            case MessagePack.Code.UINT8: // unsigned int 8
+                v = buffer.getByte(position + 1) & 0xffL;
+                position += 2;
+                return v;
+            case MessagePack.Code.UINT16: // unsigned int 16
+                v = buffer.getShort(position + 1) & 0xffffL;
+                position += 3;
+                return v;
+            case MessagePack.Code.UINT32: // unsigned int 32
+                v = buffer.getInt(position + 1) & 0xffffffffL;
+                position += 5;
+                return v;
+            case MessagePack.Code.INT8: // signed int 8
+                v = buffer.getByte(position + 1);
+                position += 2;
+                return v;
+            case MessagePack.Code.INT16: // signed int 16
+                v = buffer.getShort(position + 1);
+                position += 3;
+                return v;
+            case MessagePack.Code.INT32: // signed int 32
+                v = buffer.getInt(position + 1);
+                position += 5;
+                return v;
+            case MessagePack.Code.INT64: // signed int 64
+                v = buffer.getLong(position + 1);
+                position += 9;
+                return v;
+            default:
+                // UINT64 needs an overflow check, other formats are errors
+                return unpackLong();
+        }
+    }
+
     private static final String EMPTY_STRING = "";
 
     private void resetDecoder()
@@ -1144,6 +1437,10 @@ public class MessageUnpacker
             throw new MessageSizeException(String.format("cannot unpack a String of size larger than %,d: %,d", stringSizeLimit, len), len);
         }
 
+        if (stringCache != null && stringCache.accepts(len) && buffer.size() - position >= len) {
+            return decodeCachedString(len);
+        }
+
         resetDecoder(); // should be invoked only once per value
 
         if (buffer.size() - position >= len) {
@@ -1233,15 +1530,69 @@ public class MessageUnpacker
         }
     }
 
+    /**
+     * Returns the cached string encoded by the next bytes of the buffer, or decodes and caches it.
+     */
+    private String decodeCachedString(int length)
+    {
+        int slot = stringCache.slot(buffer, position, length);
+        String s = stringCache.get(slot, buffer, position, length);
+        if (s != null) {
+            position += length;
+            return s;
+        }
+        resetDecoder();
+        int start = position;
+        s = decodeStringFastPath(length);
+        stringCache.put(slot, buffer, start, length, s);
+        return s;
+    }
+
+    /**
+     * Returns true if the bytes are ASCII, checking 8 of them at a time.
+     */
+    private static boolean isAscii(MessageBuffer buffer, int position, int length)
+    {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if ((buffer.getLong(position + i) & ASCII_MASK) != 0) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (buffer.getByte(position + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private String decodeStringFastPath(int length)
     {
         if (actionOnMalformedString == CodingErrorAction.REPLACE &&
                 actionOnUnmappableString == CodingErrorAction.REPLACE &&
                 buffer.hasArray()) {
+            // The UTF-8 decoder of String has an ASCII fast path of its own
             String s = new String(buffer.array(), buffer.arrayOffset() + position, length, MessagePack.UTF8);
             position += length;
             return s;
         }
+        else if ((buffer.hasArray() || length <= ASCII_BUFFER_SIZE) && isAscii(buffer, position, length)) {
+            // Valid in any mode of the decoder
+            String s;
+            if (buffer.hasArray()) {
+                s = new String(buffer.array(), buffer.arrayOffset() + position, length, LATIN1);
+            }
+            else {
+                if (asciiBuffer == null) {
+                    asciiBuffer = new byte[ASCII_BUFFER_SIZE];
+                }
+                buffer.getBytes(position, asciiBuffer, 0, length);
+                s = new String(asciiBuffer, 0, length, LATIN1);
+            }
+            position += length;
+            return s;
+        }
         else {
             ByteBuffer bb = buffer.sliceAsByteBuffer(position, length);
             CharBuffer cb;
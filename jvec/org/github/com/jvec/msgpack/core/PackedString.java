@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkNotNull;
+
+/**
+ * A String together with its MessagePack encoding, header included, for strings that are packed over and over
+ * again. {@link MessagePacker#packString(PackedString)} writes it with a single copy, without encoding the string or
+ * allocating anything.
+ * <p>
+ * Instances are immutable and can be shared between packers and threads.
+ */
+public final class PackedString
+{
+    private final String string;
+    private final byte[] encoded;
+
+    private PackedString(String string, byte[] encoded)
+    {
+        this.string = string;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Encodes the string in UTF-8 with the shortest str header.
+     */
+    public static PackedString of(String string)
+    {
+        byte[] bytes = checkNotNull(string, "string is null").getBytes(MessagePack.UTF8);
+        int len = bytes.length;
+        int headerLength;
+        if (len < (1 << 5)) {
+            headerLength = 1;
+        }
+        else if (len < (1 << 8)) {
+            headerLength = 2;
+        }
+        else if (len < (1 << 16)) {
+            headerLength = 3;
+        }
+        else {
+            headerLength = 5;
+        }
+        byte[] encoded = new byte[headerLength + len];
+        switch (headerLength) {
+            case 1:
+                encoded[0] = (byte) (MessagePack.Code.FIXSTR_PREFIX | len);
+                break;
+            case 2:
+                encoded[0] = MessagePack.Code.STR8;
+                encoded[1] = (byte) len;
+                break;
+            case 3:
+                encoded[0] = MessagePack.Code.STR16;
+                encoded[1] = (byte) (len >>> 8);
+                encoded[2] = (byte) len;
+                break;
+            default:
+                encoded[0] = MessagePack.Code.STR32;
+                encoded[1] = (byte) (len >>> 24);
+                encoded[2] = (byte) (len >>> 16);
+                encoded[3] = (byte) (len >>> 8);
+                encoded[4] = (byte) len;
+                break;
+        }
+        System.arraycopy(bytes, 0, encoded, headerLength, len);
+        return new PackedString(string, encoded);
+    }
+
+    public String getString()
+    {
+        return string;
+    }
+
+    /**
+     * Returns the size of the encoding in bytes, header included.
+     */
+    public int getEncodedSize()
+    {
+        return encoded.length;
+    }
+
+    /**
+     * Returns the encoding, which must not be modified.
+     */
+    byte[] encoded()
+    {
+        return encoded;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof PackedString && string.equals(((PackedString) o).string);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return string.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return string;
+    }
+}
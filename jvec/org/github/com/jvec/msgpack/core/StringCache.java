@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core;
+
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+
+/**
+ * A cache of decoded strings, looked up by their UTF-8 encoding in the buffer of an unpacker, so that strings that
+ * recur in the input, like map keys or process names, are neither decoded nor allocated again.
+ * <p>
+ * The cache is a direct-mapped table: each encoding hashes to a single slot, and a new string evicts the one in its
+ * slot. An unpacker owns its cache, so it keeps working across calls of {@link MessageUnpacker#reset}.
+ */
+final class StringCache
+{
+    private final byte[][] encodings;
+    private final String[] strings;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * @param size      the number of strings, rounded up to a power of two
+     * @param maxLength the maximum length of a cached string in bytes
+     */
+    StringCache(int size, int maxLength)
+    {
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1);
+        this.encodings = new byte[capacity][];
+        this.strings = new String[capacity];
+        this.mask = capacity - 1;
+        this.maxLength = maxLength;
+    }
+
+    boolean accepts(int length)
+    {
+        return length <= maxLength;
+    }
+
+    int slot(MessageBuffer buffer, int position, int length)
+    {
+        int h = length;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + buffer.getByte(position + i);
+        }
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the string in the slot if it is encoded by the given bytes, or null.
+     */
+    String get(int slot, MessageBuffer buffer, int position, int length)
+    {
+        byte[] encoding = encodings[slot];
+        if (encoding == null || encoding.length != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (encoding[i] != buffer.getByte(position + i)) {
+                return null;
+            }
+        }
+        return strings[slot];
+    }
+
+    void put(int slot, MessageBuffer buffer, int position, int length, String string)
+    {
+        byte[] encoding = new byte[length];
+        buffer.getBytes(position, encoding, 0, length);
+        encodings[slot] = encoding;
+        strings[slot] = string;
+    }
+}
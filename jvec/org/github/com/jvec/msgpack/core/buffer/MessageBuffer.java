@@ -67,7 +67,8 @@ import static org.github.com.jvec.msgpack.core.Preconditions.checkNotNull;
  * unnecessary classes such as MessagePackBE. On big-endian CPU archtectures, it automatically uses a subclass that
  * includes TypeProfile overhead but still faster than stndard ByteBuffer class. On JVMs older than Java 7 and JVMs
  * without Unsafe API (such as Android), implementation falls back to an universal implementation that uses ByteBuffer
- * internally.
+ * internally. On Java 9 and later, the multi-release jar provides an implementation based on VarHandles, which is
+ * as fast as Unsafe without depending on it, and which is preferred when it is available.
  */
 public class MessageBuffer
 {
@@ -88,9 +89,11 @@ public class MessageBuffer
     private static final String UNIVERSAL_MESSAGE_BUFFER = "org.github.com.jvec.msgpack.core.buffer.MessageBufferU";
     private static final String BIGENDIAN_MESSAGE_BUFFER = "org.github.com.jvec.msgpack.core.buffer.MessageBufferBE";
     private static final String DEFAULT_MESSAGE_BUFFER = "org.github.com.jvec.msgpack.core.buffer.MessageBuffer";
+    private static final String VARHANDLE_MESSAGE_BUFFER = "org.github.com.jvec.msgpack.core.buffer.MessageBufferVH";
 
     static {
         boolean useUniversalBuffer = false;
+        boolean useVarHandleBuffer = false;
         Unsafe unsafeInstance = null;
         int arrayByteBaseOffset = 16;
 
@@ -109,6 +112,14 @@ public class MessageBuffer
                     e.printStackTrace(System.err);
                 }
             }
+            boolean isJavaAtLeast9 = false;
+            if (dotPos == -1) {
+                try {
+                    isJavaAtLeast9 = Integer.parseInt(javaVersion) >= 9;
+                }
+                catch (NumberFormatException e) {
+                }
+            }
 
             boolean hasUnsafe = false;
             try {
@@ -124,8 +135,20 @@ public class MessageBuffer
             boolean isGAE = System.getProperty("com.google.appengine.runtime.version") != null;
 
             // For Java6, android and JVM that has no Unsafe class, use Universal MessageBuffer
+            boolean forceUniversalBuffer = Boolean.parseBoolean(System.getProperty("msgpack.universal-buffer", "false"));
+
+            // On Java 9+, the VarHandle implementation is only visible if loaded from the multi-release jar
+            if (isJavaAtLeast9 && !forceUniversalBuffer && !isAndroid) {
+                try {
+                    useVarHandleBuffer = Class.forName(VARHANDLE_MESSAGE_BUFFER) != null;
+                }
+                catch (ClassNotFoundException e) {
+                }
+            }
+
             useUniversalBuffer =
-                    Boolean.parseBoolean(System.getProperty("msgpack.universal-buffer", "false"))
+                    forceUniversalBuffer
+                            || useVarHandleBuffer
                             || isAndroid
                             || isGAE
                             || !isJavaAtLeast7
@@ -161,7 +184,11 @@ public class MessageBuffer
             // Switch MessageBuffer implementation according to the environment
             isUniversalBuffer = useUniversalBuffer;
             String bufferClsName;
-            if (isUniversalBuffer) {
+            if (useVarHandleBuffer) {
+                // Needs no Unsafe and supports direct buffers, otherwise treated like the universal buffer
+                bufferClsName = VARHANDLE_MESSAGE_BUFFER;
+            }
+            else if (isUniversalBuffer) {
                 bufferClsName = UNIVERSAL_MESSAGE_BUFFER;
             }
             else {
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.github.com.jvec.msgpack.core.Preconditions.checkArgument;
+
+/**
+ * A lock-free pool of fixed-size MessageBuffer chunks, either heap arrays or direct buffers.
+ * <p>
+ * Chunks are kept in a fixed array of slots that are taken and filled with compare-and-set, so borrowing and
+ * releasing a chunk neither locks nor allocates. Each thread starts probing at a slot derived from its id, which keeps
+ * threads apart. If no chunk is pooled a new one is allocated, and chunks released to a full pool are dropped.
+ * A pool may be shared by any number of threads.
+ */
+public class MessageBufferPool
+{
+    private final int chunkSize;
+    private final boolean direct;
+    private final AtomicReferenceArray<MessageBuffer> slots;
+
+    /**
+     * @param chunkSize the size of every chunk in bytes
+     * @param maxPooled the maximum number of idle chunks kept by the pool
+     * @param direct    whether the chunks are direct buffers instead of heap arrays
+     */
+    public MessageBufferPool(int chunkSize, int maxPooled, boolean direct)
+    {
+        checkArgument(chunkSize > 0, "chunkSize must be > 0");
+        checkArgument(maxPooled > 0, "maxPooled must be > 0");
+        this.chunkSize = chunkSize;
+        this.direct = direct;
+        this.slots = new AtomicReferenceArray<MessageBuffer>(maxPooled);
+    }
+
+    public static MessageBufferPool heap(int chunkSize, int maxPooled)
+    {
+        return new MessageBufferPool(chunkSize, maxPooled, false);
+    }
+
+    /**
+     * Creates a pool of direct chunks.
+     *
+     * @throws UnsupportedOperationException on platforms whose MessageBuffer cannot wrap direct buffers
+     */
+    public static MessageBufferPool direct(int chunkSize, int maxPooled)
+    {
+        MessageBufferPool pool = new MessageBufferPool(chunkSize, maxPooled, true);
+        pool.release(pool.allocate());
+        return pool;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public boolean isDirect()
+    {
+        return direct;
+    }
+
+    /**
+     * Takes an idle chunk from the pool or allocates a new one.
+     */
+    public MessageBuffer borrow()
+    {
+        int n = slots.length();
+        int start = (int) (Thread.currentThread().getId() % n);
+        for (int i = 0; i < n; i++) {
+            int slot = (start + i) % n;
+            MessageBuffer chunk = slots.get(slot);
+            if (chunk != null && slots.compareAndSet(slot, chunk, null)) {
+                return chunk;
+            }
+        }
+        return allocate();
+    }
+
+    /**
+     * Returns a chunk borrowed from this pool. The caller must not use it afterwards.
+     */
+    public void release(MessageBuffer chunk)
+    {
+        if (chunk.size() != chunkSize) {
+            return;
+        }
+        int n = slots.length();
+        int start = (int) (Thread.currentThread().getId() % n);
+        for (int i = 0; i < n; i++) {
+            int slot = (start + i) % n;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, chunk)) {
+                return;
+            }
+        }
+    }
+
+    private MessageBuffer allocate()
+    {
+        return direct ? MessageBuffer.wrap(ByteBuffer.allocateDirect(chunkSize)) : MessageBuffer.allocate(chunkSize);
+    }
+}
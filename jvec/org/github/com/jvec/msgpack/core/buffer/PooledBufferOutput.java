@@ -0,0 +1,241 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MessageBufferOutput adapter that writes into chunks borrowed from a {@link MessageBufferPool}.
+ * <p>
+ * Unlike {@link ArrayBufferOutput}, which allocates a new chunk each time one fills, the chunks are returned to the
+ * pool by {@link #clear()} or {@link #close()} and reused by the next message. The written data can be sent with
+ * {@link #writeTo(GatheringByteChannel)} without copying the chunks into one array. Writes larger than a chunk
+ * get a dedicated buffer that is not pooled.
+ * <p>
+ * The packer writing to this output has to be flushed before the data is read or the output is cleared.
+ */
+public class PooledBufferOutput
+        implements MessageBufferOutput
+{
+    private final MessageBufferPool pool;
+    private final List<MessageBuffer> chunks = new ArrayList<MessageBuffer>();
+    private int[] used = new int[4];
+    private ByteBuffer[] views = new ByteBuffer[4];
+    // Number of bytes already written to a channel by writeTo
+    private long sent;
+
+    public PooledBufferOutput(MessageBufferPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Gets the size of the written data.
+     *
+     * @return number of bytes
+     */
+    public int getSize()
+    {
+        int size = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            size += used[i];
+        }
+        return size;
+    }
+
+    /**
+     * Gets a copy of the written data as a byte array.
+     *
+     * @return the byte array
+     */
+    public byte[] toByteArray()
+    {
+        byte[] data = new byte[getSize()];
+        int off = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            chunks.get(i).getBytes(0, data, off, used[i]);
+            off += used[i];
+        }
+        return data;
+    }
+
+    /**
+     * Gets the size of the written data that has not been written to a channel by {@link #writeTo} yet.
+     *
+     * @return number of bytes
+     */
+    public long getUnsentSize()
+    {
+        return getSize() - sent;
+    }
+
+    /**
+     * Writes the unsent data to the channel with gathering writes, straight from the chunks.
+     * <p>
+     * A non-blocking channel may accept only a part of the data. The rest stays unsent and the next call resumes
+     * where this one stopped, e.g. once the channel is writable again.
+     *
+     * @return the number of bytes written by this call
+     */
+    public long writeTo(GatheringByteChannel channel)
+            throws IOException
+    {
+        if (views.length < chunks.size()) {
+            views = new ByteBuffer[Math.max(chunks.size(), views.length * 2)];
+        }
+        // Views of the unsent data, skipping the chunks already sent
+        int count = 0;
+        long skip = sent;
+        for (int i = 0; i < chunks.size(); i++) {
+            if (skip >= used[i]) {
+                skip -= used[i];
+                continue;
+            }
+            views[count++] = chunks.get(i).sliceAsByteBuffer((int) skip, used[i] - (int) skip);
+            skip = 0;
+        }
+        long remaining = getUnsentSize();
+        long written = 0;
+        int first = 0;
+        try {
+            while (written < remaining) {
+                long n = channel.write(views, first, count - first);
+                if (n == 0) {
+                    // The channel cannot take more now
+                    break;
+                }
+                written += n;
+                while (first < count && !views[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        }
+        finally {
+            sent += written;
+            Arrays.fill(views, 0, count, null);
+        }
+        return written;
+    }
+
+    /**
+     * Clears the written data and returns the chunks to the pool.
+     */
+    public void clear()
+    {
+        for (MessageBuffer chunk : chunks) {
+            pool.release(chunk);
+        }
+        chunks.clear();
+        sent = 0;
+    }
+
+    private void addChunk(MessageBuffer chunk)
+    {
+        if (chunks.size() == used.length) {
+            used = Arrays.copyOf(used, used.length * 2);
+        }
+        used[chunks.size()] = 0;
+        chunks.add(chunk);
+    }
+
+    private int lastRemaining()
+    {
+        int last = chunks.size() - 1;
+        return last < 0 ? 0 : chunks.get(last).size() - used[last];
+    }
+
+    @Override
+    public MessageBuffer next(int minimumSize)
+    {
+        if (lastRemaining() < minimumSize) {
+            addChunk(minimumSize > pool.getChunkSize() ? MessageBuffer.allocate(minimumSize) : pool.borrow());
+        }
+        int last = chunks.size() - 1;
+        MessageBuffer chunk = chunks.get(last);
+        return chunk.slice(used[last], chunk.size() - used[last]);
+    }
+
+    @Override
+    public void writeBuffer(int length)
+    {
+        used[chunks.size() - 1] += length;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length)
+    {
+        while (length > 0) {
+            if (lastRemaining() == 0) {
+                addChunk(pool.borrow());
+            }
+            int last = chunks.size() - 1;
+            int n = Math.min(length, chunks.get(last).size() - used[last]);
+            chunks.get(last).putBytes(used[last], buffer, offset, n);
+            used[last] += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copies the data, pooled chunks cannot take ownership of an external array.
+     */
+    @Override
+    public void add(byte[] buffer, int offset, int length)
+    {
+        write(buffer, offset, length);
+    }
+
+    @Override
+    public void close()
+    {
+        clear();
+    }
+
+    @Override
+    public void flush()
+    { }
+}
@@ -195,6 +195,45 @@ public final class ValueFactory
         }
     }
 
+    public static ImmutableArrayValue newArray(long[] array)
+    {
+        return new ImmutableLongArrayValueImpl(Arrays.copyOf(array, array.length));
+    }
+
+    public static ImmutableArrayValue newArray(long[] array, boolean omitCopy)
+    {
+        if (omitCopy) {
+            return new ImmutableLongArrayValueImpl(array);
+        }
+        else {
+            return new ImmutableLongArrayValueImpl(Arrays.copyOf(array, array.length));
+        }
+    }
+
+    public static ImmutableArrayValue newArray(int[] array)
+    {
+        long[] values = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            values[i] = array[i];
+        }
+        return new ImmutableLongArrayValueImpl(values);
+    }
+
+    public static ImmutableArrayValue newArray(double[] array)
+    {
+        return new ImmutableDoubleArrayValueImpl(Arrays.copyOf(array, array.length));
+    }
+
+    public static ImmutableArrayValue newArray(double[] array, boolean omitCopy)
+    {
+        if (omitCopy) {
+            return new ImmutableDoubleArrayValueImpl(array);
+        }
+        else {
+            return new ImmutableDoubleArrayValueImpl(Arrays.copyOf(array, array.length));
+        }
+    }
+
     public static ImmutableArrayValue emptyArray()
     {
         return ImmutableArrayValueImpl.empty();
@@ -211,7 +250,7 @@ public final class ValueFactory
             kvs[index] = pair.getValue();
             index++;
         }
-        return new ImmutableMapValueImpl(kvs);
+        return ImmutableIndexedMapValueImpl.of(kvs);
     }
 
     public static ImmutableMapValue newMap(Value... kvs)
@@ -220,7 +259,7 @@ public final class ValueFactory
             return ImmutableMapValueImpl.empty();
         }
         else {
-            return new ImmutableMapValueImpl(Arrays.copyOf(kvs, kvs.length));
+            return ImmutableIndexedMapValueImpl.of(Arrays.copyOf(kvs, kvs.length));
         }
     }
 
@@ -230,10 +269,10 @@ public final class ValueFactory
             return ImmutableMapValueImpl.empty();
         }
         else if (omitCopy) {
-            return new ImmutableMapValueImpl(kvs);
+            return ImmutableIndexedMapValueImpl.of(kvs);
         }
         else {
-            return new ImmutableMapValueImpl(Arrays.copyOf(kvs, kvs.length));
+            return ImmutableIndexedMapValueImpl.of(Arrays.copyOf(kvs, kvs.length));
         }
     }
 
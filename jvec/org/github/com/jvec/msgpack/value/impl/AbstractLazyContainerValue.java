@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePackException;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.msgpack.core.buffer.ArrayBufferInput;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+import org.github.com.jvec.msgpack.value.Value;
+
+import java.io.IOException;
+
+/**
+ * {@code AbstractLazyContainerValue} is the base of array and map values that are views of their encoding in the
+ * buffer they were unpacked from. The offsets of the elements are found on the first access, each element is
+ * unpacked, lazily as well, when it is accessed for the first time.
+ */
+abstract class AbstractLazyContainerValue
+        extends AbstractImmutableValue
+{
+    /**
+     * The complete encoding of this value, including its header.
+     */
+    protected final MessageBuffer data;
+    private final int headerLength;
+    private final int count;
+    private final MessagePack.UnpackerConfig config;
+    private volatile int[] offsets;
+    private final Value[] elements;
+
+    AbstractLazyContainerValue(MessageBuffer data, int headerLength, int count, MessagePack.UnpackerConfig config)
+    {
+        this.data = data;
+        this.headerLength = headerLength;
+        this.count = count;
+        this.config = config;
+        this.elements = new Value[count];
+    }
+
+    /**
+     * Returns the number of elements, which is twice the number of entries for maps.
+     */
+    protected int count()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the configuration the elements are unpacked with.
+     */
+    MessagePack.UnpackerConfig config()
+    {
+        return config;
+    }
+
+    protected Value element(int index)
+    {
+        Value element = elements[index];
+        if (element == null) {
+            int[] offsets = offsets();
+            MessageBuffer encoded = data.slice(offsets[index], offsets[index + 1] - offsets[index]);
+            try {
+                element = newUnpacker(encoded).unpackLazyValue();
+            }
+            catch (IOException e) {
+                // The encoding was already checked when this value was unpacked
+                throw new MessagePackException(e);
+            }
+            elements[index] = element;
+        }
+        return element;
+    }
+
+    protected Value[] elements()
+    {
+        Value[] array = new Value[count];
+        for (int i = 0; i < count; i++) {
+            array[i] = element(i);
+        }
+        return array;
+    }
+
+    private int[] offsets()
+    {
+        int[] offsets = this.offsets;
+        if (offsets == null) {
+            offsets = new int[count + 1];
+            MessageUnpacker unpacker = newUnpacker(data.slice(headerLength, data.size() - headerLength));
+            try {
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = headerLength + (int) unpacker.getTotalReadBytes();
+                    unpacker.skipValue();
+                }
+            }
+            catch (IOException e) {
+                throw new MessagePackException(e);
+            }
+            offsets[count] = data.size();
+            this.offsets = offsets;
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns an unpacker with the configuration of the unpacker this value was unpacked from.
+     */
+    private MessageUnpacker newUnpacker(MessageBuffer encoded)
+    {
+        return config.newUnpacker(new ArrayBufferInput(encoded));
+    }
+
+    /**
+     * Writes the encoding this value was unpacked from, without unpacking its elements.
+     */
+    @Override
+    public void writeTo(MessagePacker pk)
+            throws IOException
+    {
+        if (data.hasArray()) {
+            pk.writePayload(data.array(), data.arrayOffset(), data.size());
+        }
+        else {
+            pk.writePayload(data.toByteArray());
+        }
+    }
+}
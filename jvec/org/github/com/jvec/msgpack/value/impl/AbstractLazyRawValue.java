@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageStringCodingException;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+import org.github.com.jvec.msgpack.value.ImmutableRawValue;
+import org.github.com.jvec.msgpack.value.RawValue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * {@code AbstractLazyRawValue} is the base of string and binary values that refer to their payload in the buffer
+ * they were unpacked from instead of copying it. The payload is only copied or decoded when it is accessed.
+ */
+public abstract class AbstractLazyRawValue
+        extends AbstractImmutableValue
+        implements ImmutableRawValue
+{
+    protected final MessageBuffer data;
+    private volatile String decodedStringCache;
+    private volatile CharacterCodingException codingException;
+
+    public AbstractLazyRawValue(MessageBuffer data)
+    {
+        this.data = data;
+    }
+
+    @Override
+    public ImmutableRawValue asRawValue()
+    {
+        return this;
+    }
+
+    @Override
+    public byte[] asByteArray()
+    {
+        return data.toByteArray();
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer()
+    {
+        return data.sliceAsByteBuffer().asReadOnlyBuffer();
+    }
+
+    @Override
+    public String asString()
+    {
+        if (decodedStringCache == null) {
+            decodeString();
+        }
+        if (codingException != null) {
+            throw new MessageStringCodingException(codingException);
+        }
+        else {
+            return decodedStringCache;
+        }
+    }
+
+    @Override
+    public String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        AbstractImmutableRawValue.appendJsonString(sb, toString());
+        return sb.toString();
+    }
+
+    private synchronized void decodeString()
+    {
+        if (decodedStringCache != null) {
+            return;
+        }
+        try {
+            CharsetDecoder reportDecoder = MessagePack.UTF8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            this.decodedStringCache = reportDecoder.decode(data.sliceAsByteBuffer()).toString();
+        }
+        catch (CharacterCodingException ex) {
+            try {
+                CharsetDecoder replaceDecoder = MessagePack.UTF8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                this.decodedStringCache = replaceDecoder.decode(data.sliceAsByteBuffer()).toString();
+            }
+            catch (CharacterCodingException neverThrown) {
+                throw new MessageStringCodingException(neverThrown);
+            }
+            this.codingException = ex;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        if (decodedStringCache == null) {
+            decodeString();
+        }
+        return decodedStringCache;
+    }
+
+    protected void writePayloadTo(MessagePacker pk)
+            throws IOException
+    {
+        if (data.hasArray()) {
+            pk.writePayload(data.array(), data.arrayOffset(), data.size());
+        }
+        else {
+            pk.writePayload(data.toByteArray());
+        }
+    }
+
+    /**
+     * Compares the payload with the one of another raw value without copying either of them.
+     */
+    protected boolean payloadEquals(RawValue v)
+    {
+        return data.sliceAsByteBuffer().equals(v.asByteBuffer());
+    }
+
+    /**
+     * Returns the same hash code as {@code Arrays.hashCode} of the payload, like the copying implementations.
+     */
+    @Override
+    public int hashCode()
+    {
+        int h = 1;
+        for (int i = 0; i < data.size(); i++) {
+            h = 31 * h + data.getByte(i);
+        }
+        return h;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.value.ArrayValue;
+import org.github.com.jvec.msgpack.value.ImmutableArrayValue;
+import org.github.com.jvec.msgpack.value.Value;
+import org.github.com.jvec.msgpack.value.ValueType;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@code AbstractPrimitiveArrayValue} is the base of array values backed by an array of a primitive type. Elements
+ * are only boxed into {@code Value} objects when they are accessed as values.
+ */
+abstract class AbstractPrimitiveArrayValue
+        extends AbstractImmutableValue
+        implements ImmutableArrayValue
+{
+    /**
+     * Returns the same hash code as the {@code Value} of the element at the index.
+     */
+    protected abstract int elementHashCode(int index);
+
+    protected abstract String elementToString(int index);
+
+    protected abstract String elementToJson(int index);
+
+    @Override
+    public ValueType getValueType()
+    {
+        return ValueType.ARRAY;
+    }
+
+    @Override
+    public ImmutableArrayValue immutableValue()
+    {
+        return this;
+    }
+
+    @Override
+    public ImmutableArrayValue asArrayValue()
+    {
+        return this;
+    }
+
+    @Override
+    public Value getOrNilValue(int index)
+    {
+        if (index < size() && index >= 0) {
+            return get(index);
+        }
+        return ImmutableNilValueImpl.get();
+    }
+
+    @Override
+    public Iterator<Value> iterator()
+    {
+        return list().iterator();
+    }
+
+    @Override
+    public List<Value> list()
+    {
+        return new AbstractList<Value>()
+        {
+            @Override
+            public Value get(int index)
+            {
+                return AbstractPrimitiveArrayValue.this.get(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return AbstractPrimitiveArrayValue.this.size();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Value)) {
+            return false;
+        }
+        Value v = (Value) o;
+        if (!v.isArrayValue()) {
+            return false;
+        }
+        ArrayValue av = v.asArrayValue();
+        if (size() != av.size()) {
+            return false;
+        }
+        Iterator<Value> oi = av.iterator();
+        for (int i = 0; i < size(); i++) {
+            if (!oi.hasNext() || !get(i).equals(oi.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int h = 1;
+        for (int i = 0; i < size(); i++) {
+            h = 31 * h + elementHashCode(i);
+        }
+        return h;
+    }
+
+    @Override
+    public String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(elementToJson(i));
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(elementToString(i));
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
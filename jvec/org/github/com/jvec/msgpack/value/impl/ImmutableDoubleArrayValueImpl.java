@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.value.ImmutableFloatValue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@code ImmutableDoubleArrayValueImpl} Implements {@code ImmutableArrayValue} of Float values using a
+ * {@code double[]} field.
+ *
+ * @see ImmutableArrayValueImpl
+ */
+public class ImmutableDoubleArrayValueImpl
+        extends AbstractPrimitiveArrayValue
+{
+    private final double[] array;
+
+    public ImmutableDoubleArrayValueImpl(double[] array)
+    {
+        this.array = array;
+    }
+
+    @Override
+    public int size()
+    {
+        return array.length;
+    }
+
+    @Override
+    public ImmutableFloatValue get(int index)
+    {
+        return new ImmutableDoubleValueImpl(array[index]);
+    }
+
+    /**
+     * Returns the element at the specified position without boxing it.
+     *
+     * @throws IndexOutOfBoundsException If the index is out of range
+     */
+    public double getDouble(int index)
+    {
+        return array[index];
+    }
+
+    /**
+     * Returns a copy of the elements.
+     */
+    public double[] toDoubleArray()
+    {
+        return Arrays.copyOf(array, array.length);
+    }
+
+    @Override
+    public void writeTo(MessagePacker pk)
+            throws IOException
+    {
+        pk.packDoubleArray(array, 0, array.length);
+    }
+
+    @Override
+    protected int elementHashCode(int index)
+    {
+        long v = Double.doubleToLongBits(array[index]);
+        return (int) (v ^ (v >>> 32));
+    }
+
+    @Override
+    protected String elementToString(int index)
+    {
+        return Double.toString(array[index]);
+    }
+
+    @Override
+    protected String elementToJson(int index)
+    {
+        double value = array[index];
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        else {
+            return Double.toString(value);
+        }
+    }
+}
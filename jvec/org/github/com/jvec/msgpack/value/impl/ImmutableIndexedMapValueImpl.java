@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.value.Value;
+
+/**
+ * {@code ImmutableIndexedMapValueImpl} Implements {@code ImmutableMapValue} like {@link ImmutableMapValueImpl}, but
+ * looks up keys with a hash index, which is built on the first lookup. It is used for maps of at least
+ * {@link MapIndex#MIN_SIZE} entries.
+ */
+public class ImmutableIndexedMapValueImpl
+        extends ImmutableMapValueImpl
+{
+    private volatile MapIndex index;
+
+    public ImmutableIndexedMapValueImpl(Value[] kvs)
+    {
+        super(kvs);
+    }
+
+    /**
+     * Returns {@code ImmutableIndexedMapValueImpl} for large maps and {@code ImmutableMapValueImpl} for small ones.
+     */
+    public static ImmutableMapValueImpl of(Value[] kvs)
+    {
+        if (kvs.length / 2 >= MapIndex.MIN_SIZE) {
+            return new ImmutableIndexedMapValueImpl(kvs);
+        }
+        return new ImmutableMapValueImpl(kvs);
+    }
+
+    @Override
+    int indexOf(Object key)
+    {
+        MapIndex index = this.index;
+        if (index == null) {
+            index = new MapIndex(kvs);
+            this.index = index;
+        }
+        return index.find(kvs, key);
+    }
+}
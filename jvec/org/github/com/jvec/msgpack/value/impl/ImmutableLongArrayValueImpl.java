@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.value.ImmutableIntegerValue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@code ImmutableLongArrayValueImpl} Implements {@code ImmutableArrayValue} of Integer values using a {@code long[]}
+ * field.
+ *
+ * @see ImmutableArrayValueImpl
+ */
+public class ImmutableLongArrayValueImpl
+        extends AbstractPrimitiveArrayValue
+{
+    private final long[] array;
+
+    public ImmutableLongArrayValueImpl(long[] array)
+    {
+        this.array = array;
+    }
+
+    @Override
+    public int size()
+    {
+        return array.length;
+    }
+
+    @Override
+    public ImmutableIntegerValue get(int index)
+    {
+        return new ImmutableLongValueImpl(array[index]);
+    }
+
+    /**
+     * Returns the element at the specified position without boxing it.
+     *
+     * @throws IndexOutOfBoundsException If the index is out of range
+     */
+    public long getLong(int index)
+    {
+        return array[index];
+    }
+
+    /**
+     * Returns a copy of the elements.
+     */
+    public long[] toLongArray()
+    {
+        return Arrays.copyOf(array, array.length);
+    }
+
+    @Override
+    public void writeTo(MessagePacker pk)
+            throws IOException
+    {
+        pk.packLongArray(array, 0, array.length);
+    }
+
+    @Override
+    protected int elementHashCode(int index)
+    {
+        long value = array[index];
+        if (Integer.MIN_VALUE <= value && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        else {
+            return (int) (value ^ (value >>> 32));
+        }
+    }
+
+    @Override
+    protected String elementToString(int index)
+    {
+        return Long.toString(array[index]);
+    }
+
+    @Override
+    protected String elementToJson(int index)
+    {
+        return Long.toString(array[index]);
+    }
+}
@@ -65,13 +65,21 @@ public class ImmutableMapValueImpl
         return EMPTY;
     }
 
-    private final Value[] kvs;
+    final Value[] kvs;
 
     public ImmutableMapValueImpl(Value[] kvs)
     {
         this.kvs = kvs;
     }
 
+    /**
+     * Returns the position of the key in {@code kvs}, or -1 if it is not found.
+     */
+    int indexOf(Object key)
+    {
+        return MapIndex.scan(kvs, key);
+    }
+
     @Override
     public ValueType getValueType()
     {
@@ -123,7 +131,7 @@ public class ImmutableMapValueImpl
     @Override
     public Map<Value, Value> map()
     {
-        return new ImmutableMapValueMap(kvs);
+        return new ImmutableMapValueMap(this);
     }
 
     @Override
@@ -151,7 +159,17 @@ public class ImmutableMapValueImpl
             return false;
         }
         MapValue mv = v.asMapValue();
-        return map().equals(mv.map());
+        if (mv.size() != size()) {
+            return false;
+        }
+        // Look up the entries of the other map instead of letting it look up ours, it may not be indexed
+        for (Map.Entry<Value, Value> entry : mv.entrySet()) {
+            int position = indexOf(entry.getKey());
+            if (position < 0 || !kvs[position + 1].equals(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -229,17 +247,30 @@ public class ImmutableMapValueImpl
     private static class ImmutableMapValueMap
             extends AbstractMap<Value, Value>
     {
-        private final Value[] kvs;
+        private final ImmutableMapValueImpl value;
 
-        public ImmutableMapValueMap(Value[] kvs)
+        public ImmutableMapValueMap(ImmutableMapValueImpl value)
         {
-            this.kvs = kvs;
+            this.value = value;
         }
 
         @Override
         public Set<Map.Entry<Value, Value>> entrySet()
         {
-            return new EntrySet(kvs);
+            return new EntrySet(value.kvs);
+        }
+
+        @Override
+        public Value get(Object key)
+        {
+            int position = value.indexOf(key);
+            return position < 0 ? null : value.kvs[position + 1];
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return value.indexOf(key) >= 0;
         }
     }
 
@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+import org.github.com.jvec.msgpack.value.ArrayValue;
+import org.github.com.jvec.msgpack.value.ImmutableArrayValue;
+import org.github.com.jvec.msgpack.value.Value;
+import org.github.com.jvec.msgpack.value.ValueType;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@code LazyArrayValueImpl} Implements {@code ImmutableArrayValue} as a view of its encoding in the buffer it was
+ * unpacked from. Only the elements that are accessed are unpacked. The buffer must not be modified while the value
+ * is in use.
+ *
+ * @see ImmutableArrayValueImpl
+ */
+public class LazyArrayValueImpl
+        extends AbstractLazyContainerValue
+        implements ImmutableArrayValue
+{
+    public LazyArrayValueImpl(MessageBuffer data, int headerLength, int size, MessagePack.UnpackerConfig config)
+    {
+        super(data, headerLength, size, config);
+    }
+
+    @Override
+    public ValueType getValueType()
+    {
+        return ValueType.ARRAY;
+    }
+
+    @Override
+    public ImmutableArrayValue immutableValue()
+    {
+        return this;
+    }
+
+    @Override
+    public ImmutableArrayValue asArrayValue()
+    {
+        return this;
+    }
+
+    @Override
+    public int size()
+    {
+        return count();
+    }
+
+    @Override
+    public Value get(int index)
+    {
+        if (index < 0 || index >= count()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count());
+        }
+        return element(index);
+    }
+
+    @Override
+    public Value getOrNilValue(int index)
+    {
+        if (index < count() && index >= 0) {
+            return element(index);
+        }
+        return ImmutableNilValueImpl.get();
+    }
+
+    @Override
+    public Iterator<Value> iterator()
+    {
+        return list().iterator();
+    }
+
+    @Override
+    public List<Value> list()
+    {
+        return new AbstractList<Value>()
+        {
+            @Override
+            public Value get(int index)
+            {
+                return LazyArrayValueImpl.this.get(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return count();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Value)) {
+            return false;
+        }
+        Value v = (Value) o;
+        if (!v.isArrayValue()) {
+            return false;
+        }
+        ArrayValue av = v.asArrayValue();
+        if (size() != av.size()) {
+            return false;
+        }
+        Iterator<Value> oi = av.iterator();
+        for (int i = 0; i < count(); i++) {
+            if (!oi.hasNext() || !element(i).equals(oi.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int h = 1;
+        for (int i = 0; i < count(); i++) {
+            h = 31 * h + element(i).hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public String toJson()
+    {
+        return new ImmutableArrayValueImpl(elements()).toJson();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ImmutableArrayValueImpl(elements()).toString();
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+import org.github.com.jvec.msgpack.value.ImmutableMapValue;
+import org.github.com.jvec.msgpack.value.MapValue;
+import org.github.com.jvec.msgpack.value.Value;
+import org.github.com.jvec.msgpack.value.ValueType;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@code LazyMapValueImpl} Implements {@code ImmutableMapValue} as a view of its encoding in the buffer it was
+ * unpacked from. Looking up a key only unpacks keys and the value found, maps of at least {@link MapIndex#MIN_SIZE}
+ * entries index their keys on the first lookup. The buffer must not be modified while the value is in use.
+ *
+ * @see ImmutableMapValueImpl
+ */
+public class LazyMapValueImpl
+        extends AbstractLazyContainerValue
+        implements ImmutableMapValue
+{
+    // Holds the keys at even positions and nothing at odd ones, the values are only unpacked when they are found
+    private volatile Value[] keys;
+    private volatile MapIndex index;
+
+    public LazyMapValueImpl(MessageBuffer data, int headerLength, int size, MessagePack.UnpackerConfig config)
+    {
+        super(data, headerLength, size * 2, config);
+    }
+
+    /**
+     * Returns the position of the key among the elements, or -1 if it is not found.
+     */
+    private int indexOf(Object key)
+    {
+        if (count() < MapIndex.MIN_SIZE * 2) {
+            for (int i = 0; i < count(); i += 2) {
+                if (element(i).equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        MapIndex index = this.index;
+        if (index == null) {
+            Value[] keys = new Value[count()];
+            for (int i = 0; i < count(); i += 2) {
+                keys[i] = element(i);
+            }
+            this.keys = keys;
+            index = new MapIndex(keys);
+            this.index = index;
+        }
+        return index.find(keys, key);
+    }
+
+    @Override
+    public ValueType getValueType()
+    {
+        return ValueType.MAP;
+    }
+
+    @Override
+    public ImmutableMapValue immutableValue()
+    {
+        return this;
+    }
+
+    @Override
+    public ImmutableMapValue asMapValue()
+    {
+        return this;
+    }
+
+    @Override
+    public Value[] getKeyValueArray()
+    {
+        return elements();
+    }
+
+    @Override
+    public int size()
+    {
+        return count() / 2;
+    }
+
+    @Override
+    public Set<Value> keySet()
+    {
+        return map().keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Value, Value>> entrySet()
+    {
+        return map().entrySet();
+    }
+
+    @Override
+    public Collection<Value> values()
+    {
+        return map().values();
+    }
+
+    @Override
+    public Map<Value, Value> map()
+    {
+        return new LazyMap();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Value)) {
+            return false;
+        }
+        Value v = (Value) o;
+
+        if (!v.isMapValue()) {
+            return false;
+        }
+        MapValue mv = v.asMapValue();
+        if (mv.size() != size()) {
+            return false;
+        }
+        for (Map.Entry<Value, Value> entry : mv.entrySet()) {
+            int position = indexOf(entry.getKey());
+            if (position < 0 || !element(position + 1).equals(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int h = 0;
+        for (int i = 0; i < count(); i += 2) {
+            h += element(i).hashCode() ^ element(i + 1).hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public String toJson()
+    {
+        return new ImmutableMapValueImpl(elements()).toJson();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ImmutableMapValueImpl(elements()).toString();
+    }
+
+    private class LazyMap
+            extends AbstractMap<Value, Value>
+    {
+        @Override
+        public Set<Map.Entry<Value, Value>> entrySet()
+        {
+            return new AbstractSet<Map.Entry<Value, Value>>()
+            {
+                @Override
+                public int size()
+                {
+                    return count() / 2;
+                }
+
+                @Override
+                public Iterator<Map.Entry<Value, Value>> iterator()
+                {
+                    return new EntryIterator();
+                }
+            };
+        }
+
+        @Override
+        public Value get(Object key)
+        {
+            int position = indexOf(key);
+            return position < 0 ? null : element(position + 1);
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return indexOf(key) >= 0;
+        }
+    }
+
+    private class EntryIterator
+            implements Iterator<Map.Entry<Value, Value>>
+    {
+        private int index;
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < count();
+        }
+
+        @Override
+        public Map.Entry<Value, Value> next()
+        {
+            if (index >= count()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Value, Value> entry = new LazyEntry(index);
+            index += 2;
+            return entry;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * An entry that only unpacks its value when it is asked for, so that a lookup skips the values of other keys.
+     */
+    private class LazyEntry
+            implements Map.Entry<Value, Value>
+    {
+        private final int index;
+
+        LazyEntry(int index)
+        {
+            this.index = index;
+        }
+
+        @Override
+        public Value getKey()
+        {
+            return element(index);
+        }
+
+        @Override
+        public Value getValue()
+        {
+            return element(index + 1);
+        }
+
+        @Override
+        public Value setValue(Value value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+//
+// MessagePack for Java
+//
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+//
+//        http://www.apache.org/licenses/LICENSE-2.0
+//
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.value.Value;
+
+/**
+ * {@code MapIndex} is an open-addressing hash index over the keys of a key-value array, where keys are at even
+ * positions. It only stores the positions of the keys, so it is built over the key-value array of a map value
+ * without copying it. If a key occurs more than once, the first occurrence is found, like a scan would.
+ */
+final class MapIndex
+{
+    /**
+     * Maps with fewer entries are scanned, which is faster than hashing their keys.
+     */
+    static final int MIN_SIZE = 8;
+
+    // Position of a key divided by two plus one, 0 marks an empty slot
+    private final int[] slots;
+    private final int mask;
+
+    /**
+     * @param kvs the key-value array, only the keys are read
+     */
+    MapIndex(Value[] kvs)
+    {
+        int size = kvs.length / 2;
+        int capacity = Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            Value key = kvs[i * 2];
+            int slot = hash(key) & mask;
+            while (true) {
+                int entry = slots[slot];
+                if (entry == 0) {
+                    slots[slot] = i + 1;
+                    break;
+                }
+                if (kvs[(entry - 1) * 2].equals(key)) {
+                    // Keep the first occurrence
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the key in the key-value array, or -1 if it is not found.
+     */
+    int find(Value[] kvs, Object key)
+    {
+        if (!(key instanceof Value)) {
+            return -1;
+        }
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int position = (entry - 1) * 2;
+            if (kvs[position].equals(key)) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the position of the key in the key-value array by scanning it, or -1 if it is not found.
+     */
+    static int scan(Value[] kvs, Object key)
+    {
+        for (int i = 0; i < kvs.length; i += 2) {
+            if (kvs[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(Object key)
+    {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package org.github.com.jvec.vclock;
+
+/**
+ * Storage of the entries of a vector clock.
+ * A clock picks its storage from its size: {@link InlineClockStore} for a few
+ * entries, {@link SortedClockStore} for medium sized clocks and
+ * {@link DenseClockStore} for large ones. Methods that may grow a store return
+ * the store holding the result, which is a larger representation once the
+ * current one is full. Clocks never shrink, so a store never has to move back.
+ * <p>
+ * All stores are copy-on-write: {@link #share()} returns a second store with
+ * the same entries in constant time, and each of the two copies the memory it
+ * shares only when it modifies it. A time value of zero marks an absent entry.
+ */
+abstract class ClockStore {
+
+    /**
+     * The largest clock kept by an {@link InlineClockStore}.
+     */
+    static final int INLINE_MAX = 4;
+
+    /**
+     * The largest clock kept by a {@link SortedClockStore}.
+     */
+    static final int SORTED_MAX = 128;
+
+    /**
+     * Returns the number of entries.
+     */
+    abstract int size();
+
+    /**
+     * Returns the time value of "pid", or zero if the store has no such entry.
+     */
+    abstract long get(String pid);
+
+    /**
+     * Sets the time value of "pid". "ticks" has to be positive.
+     *
+     * @return the store holding the result
+     */
+    abstract ClockStore put(String pid, long ticks);
+
+    /**
+     * Returns a store with the same entries that shares its memory with this
+     * store. Afterwards neither store modifies the shared memory in place.
+     */
+    abstract ClockStore share();
+
+    /**
+     * Returns the highest time value of all entries.
+     */
+    abstract long maxTicks();
+
+    /**
+     * Returns a cursor over the entries sorted by process id.
+     */
+    abstract VClock.Cursor cursor();
+
+    /**
+     * Sets every entry to the maximum of its own value and the value in "other".
+     *
+     * @return the store holding the result
+     */
+    ClockStore merge(ClockStore other) {
+        ClockStore result = this;
+        for (VClock.Cursor clock = other.cursor(); clock.next(); ) {
+            if (result.get(clock.pid()) < clock.ticks()) {
+                result = result.put(clock.pid(), clock.ticks());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies all entries into a store that can hold "capacity" entries.
+     */
+    static ClockStore grow(ClockStore store, int capacity) {
+        if (capacity > SORTED_MAX) {
+            DenseClockStore dense = new DenseClockStore();
+            for (VClock.Cursor clock = store.cursor(); clock.next(); ) {
+                dense.put(clock.pid(), clock.ticks());
+            }
+            return dense;
+        }
+        String[] pids = new String[Math.min(Math.max(capacity, store.size() * 2), SORTED_MAX)];
+        long[] ticks = new long[pids.length];
+        int n = 0;
+        for (VClock.Cursor clock = store.cursor(); clock.next(); n++) {
+            pids[n] = clock.pid();
+            ticks[n] = clock.ticks();
+        }
+        return new SortedClockStore(pids, ticks, n, true);
+    }
+
+    /**
+     * Iterates the first "size" entries of two parallel arrays.
+     */
+    static final class ArrayCursor implements VClock.Cursor {
+        private final String[] pids;
+        private final long[] ticks;
+        private final int size;
+        private int pos = -1;
+
+        ArrayCursor(String[] pids, long[] ticks, int size) {
+            this.pids = pids;
+            this.ticks = ticks;
+            this.size = size;
+        }
+
+        @Override
+        public boolean next() {
+            return ++pos < size;
+        }
+
+        @Override
+        public String pid() {
+            return pids[pos];
+        }
+
+        @Override
+        public long ticks() {
+            return ticks[pos];
+        }
+    }
+}
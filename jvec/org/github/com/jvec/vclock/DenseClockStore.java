@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package org.github.com.jvec.vclock;
+
+import java.util.Arrays;
+
+/**
+ * Storage for clocks with more than {@link ClockStore#SORTED_MAX} entries.
+ * The time values are kept in an array indexed by the ids of a
+ * {@link PidIndex}, which the store shares with all stores shared from it and
+ * with no other clock. The array is split into chunks of 32 entries, so that
+ * clocks can share their chunks: {@link #share()} hands out a second store in
+ * constant time and both stores copy a chunk only when they are about to
+ * modify it. A tick after a snapshot therefore copies a single chunk instead
+ * of the whole clock. A time value of zero marks an absent entry.
+ */
+final class DenseClockStore extends ClockStore {
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final Chunk[] EMPTY_SPINE = new Chunk[0];
+
+    /**
+     * A chunk may only be modified by the store whose edit token it carries.
+     */
+    private static final class Chunk {
+        final Object edit;
+        final long[] ticks;
+
+        Chunk(Object edit, long[] ticks) {
+            this.edit = edit;
+            this.ticks = ticks;
+        }
+    }
+
+    private final PidIndex index;
+    private Chunk[] spine;
+    private boolean spineOwned;
+    private Object edit;
+    private int size;
+
+    DenseClockStore() {
+        this(new PidIndex(), EMPTY_SPINE, 0);
+    }
+
+    private DenseClockStore(PidIndex index, Chunk[] spine, int size) {
+        this.index = index;
+        this.spine = spine;
+        this.spineOwned = false;
+        this.edit = new Object();
+        this.size = size;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long get(String pid) {
+        int id = index.find(pid);
+        if (id < 0) {
+            return 0;
+        }
+        return get(id);
+    }
+
+    private long get(int id) {
+        int c = id >>> CHUNK_SHIFT;
+        if (c >= spine.length || spine[c] == null) {
+            return 0;
+        }
+        return spine[c].ticks[id & CHUNK_MASK];
+    }
+
+    @Override
+    ClockStore put(String pid, long ticks) {
+        int id = index.register(pid);
+        long[] chunk = writableChunk(id >>> CHUNK_SHIFT);
+        if (chunk[id & CHUNK_MASK] == 0) {
+            size++;
+        }
+        chunk[id & CHUNK_MASK] = ticks;
+        return this;
+    }
+
+    @Override
+    ClockStore share() {
+        this.edit = new Object();
+        this.spineOwned = false;
+        return new DenseClockStore(index, spine, size);
+    }
+
+    /**
+     * Merges two dense clocks of the same family element-wise by their ids.
+     * Chunks that are shared with "other" are skipped without looking at them.
+     */
+    @Override
+    ClockStore merge(ClockStore store) {
+        if (!(store instanceof DenseClockStore) || ((DenseClockStore) store).index != index) {
+            return super.merge(store);
+        }
+        DenseClockStore other = (DenseClockStore) store;
+        Chunk[] otherSpine = other.spine;
+        for (int c = 0; c < otherSpine.length; c++) {
+            Chunk theirs = otherSpine[c];
+            if (theirs == null) {
+                continue;
+            }
+            Chunk mine = c < spine.length ? spine[c] : null;
+            if (mine == theirs) {
+                continue;
+            }
+            long[] writable = null;
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                long time = theirs.ticks[i];
+                long own = mine == null ? 0 : mine.ticks[i];
+                if (time > own) {
+                    if (writable == null) {
+                        writable = writableChunk(c);
+                    }
+                    if (own == 0) {
+                        size++;
+                    }
+                    writable[i] = time;
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    long maxTicks() {
+        long max = 0;
+        for (Chunk chunk : spine) {
+            if (chunk == null) {
+                continue;
+            }
+            for (long time : chunk.ticks) {
+                if (time > max) {
+                    max = time;
+                }
+            }
+        }
+        return max;
+    }
+
+    private long[] writableChunk(int c) {
+        if (!spineOwned || c >= spine.length) {
+            int length = Math.max(spine.length, c + 1);
+            if (c >= spine.length) {
+                length = Math.max(length, spine.length * 2);
+            }
+            spine = Arrays.copyOf(spine, length);
+            spineOwned = true;
+        }
+        Chunk chunk = spine[c];
+        if (chunk == null) {
+            chunk = new Chunk(edit, new long[CHUNK_SIZE]);
+            spine[c] = chunk;
+        } else if (chunk.edit != edit) {
+            chunk = new Chunk(edit, chunk.ticks.clone());
+            spine[c] = chunk;
+        }
+        return chunk.ticks;
+    }
+
+    @Override
+    VClock.Cursor cursor() {
+        PidIndex.Order order = index.sortedOrder();
+        if ((long) size * 8 < order.count) {
+            // Few entries, collect and sort them instead of walking all process ids of the family.
+            int[] ranks = new int[size];
+            int n = 0;
+            for (int c = 0; c < spine.length && n < size; c++) {
+                Chunk chunk = spine[c];
+                if (chunk == null) {
+                    continue;
+                }
+                for (int i = 0; i < CHUNK_SIZE; i++) {
+                    if (chunk.ticks[i] != 0) {
+                        ranks[n++] = order.rank[(c << CHUNK_SHIFT) | i];
+                    }
+                }
+            }
+            Arrays.sort(ranks, 0, n);
+            for (int i = 0; i < n; i++) {
+                ranks[i] = order.sorted[ranks[i]];
+            }
+            return new IdCursor(order, ranks, n);
+        }
+        return new IdCursor(order, order.sorted, order.count);
+    }
+
+    /**
+     * Walks a list of ids and skips those without an entry.
+     */
+    private final class IdCursor implements VClock.Cursor {
+        private final PidIndex.Order order;
+        private final int[] ids;
+        private final int count;
+        private int pos = -1;
+        private int id;
+        private long ticks;
+
+        IdCursor(PidIndex.Order order, int[] ids, int count) {
+            this.order = order;
+            this.ids = ids;
+            this.count = count;
+        }
+
+        @Override
+        public boolean next() {
+            while (++pos < count) {
+                id = ids[pos];
+                ticks = get(id);
+                if (ticks != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String pid() {
+            return order.pids[id];
+        }
+
+        @Override
+        public long ticks() {
+            return ticks;
+        }
+    }
+}
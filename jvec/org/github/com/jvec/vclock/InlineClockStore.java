@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package org.github.com.jvec.vclock;
+
+/**
+ * Storage for clocks of up to {@link ClockStore#INLINE_MAX} entries, the
+ * common case for processes that only talk to a handful of peers.
+ * The entries are kept sorted in two arrays of exactly the clock's size and
+ * are looked up by a linear scan, which beats any index at this size.
+ */
+final class InlineClockStore extends ClockStore {
+
+    private static final String[] NO_PIDS = new String[0];
+    private static final long[] NO_TICKS = new long[0];
+
+    private String[] pids;
+    private long[] ticks;
+    private boolean owned;
+
+    InlineClockStore() {
+        this(NO_PIDS, NO_TICKS, false);
+    }
+
+    private InlineClockStore(String[] pids, long[] ticks, boolean owned) {
+        this.pids = pids;
+        this.ticks = ticks;
+        this.owned = owned;
+    }
+
+    @Override
+    int size() {
+        return pids.length;
+    }
+
+    private int indexOf(String pid) {
+        for (int i = 0; i < pids.length; i++) {
+            if (pids[i].equals(pid)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    long get(String pid) {
+        int i = indexOf(pid);
+        return i < 0 ? 0 : ticks[i];
+    }
+
+    @Override
+    ClockStore put(String pid, long time) {
+        int i = indexOf(pid);
+        if (i >= 0) {
+            if (!owned) {
+                ticks = ticks.clone();
+                owned = true;
+            }
+            ticks[i] = time;
+            return this;
+        }
+        int n = pids.length;
+        if (n == INLINE_MAX) {
+            return grow(this, n + 1).put(pid, time);
+        }
+        int pos = 0;
+        while (pos < n && pids[pos].compareTo(pid) < 0) {
+            pos++;
+        }
+        String[] newPids = new String[n + 1];
+        long[] newTicks = new long[n + 1];
+        System.arraycopy(pids, 0, newPids, 0, pos);
+        System.arraycopy(ticks, 0, newTicks, 0, pos);
+        newPids[pos] = pid;
+        newTicks[pos] = time;
+        System.arraycopy(pids, pos, newPids, pos + 1, n - pos);
+        System.arraycopy(ticks, pos, newTicks, pos + 1, n - pos);
+        pids = newPids;
+        ticks = newTicks;
+        owned = true;
+        return this;
+    }
+
+    @Override
+    ClockStore share() {
+        owned = false;
+        return new InlineClockStore(pids, ticks, false);
+    }
+
+    @Override
+    long maxTicks() {
+        long max = 0;
+        for (long time : ticks) {
+            if (time > max) {
+                max = time;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    VClock.Cursor cursor() {
+        return new ArrayCursor(pids, ticks, pids.length);
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package org.github.com.jvec.vclock;
+
+import org.github.com.jvec.clock.ClockStrategy;
+import org.github.com.jvec.msgpack.core.ExtensionTypeHeader;
+import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageTypeException;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.msgpack.value.ValueType;
+
+import java.io.IOException;
+
+/**
+ * An Interval Tree Clock (Almeida, Baquero and Fonte, 2008) for systems whose
+ * processes come and go.
+ * Instead of one entry per process id, the clock consists of an id tree, which
+ * splits the interval [0, 1) among the live participants, and an event tree
+ * counting the events within each part of the interval. A new participant
+ * receives half of the interval of an existing one by {@link #fork()} and gives
+ * it back by {@link #join(IntervalTreeClock)} when it leaves, so the size of
+ * the clock follows the number of live participants rather than everyone who
+ * ever existed.
+ * An interval tree clock can be used as the ClockStrategy of a JVec instance,
+ * which then carries the event tree in its messages.
+ * Like a vector clock, it is not safe to modify a clock from several threads
+ * at once; clocks used by a JVec instance have to be forked and joined while
+ * holding the lock of that instance.
+ */
+public class IntervalTreeClock implements ClockStrategy {
+
+    /**
+     * The MessagePack extension type of an interval tree clock.
+     */
+    public static final byte EXT_TYPE = 4;
+
+    private Id id;
+    private Event event;
+
+    /**
+     * Creates the seed clock, which owns the whole interval. All other clocks
+     * of the system are forked from it.
+     */
+    public IntervalTreeClock() {
+        this(Id.ONE, Event.ZERO);
+    }
+
+    private IntervalTreeClock(Id id, Event event) {
+        this.id = id;
+        this.event = event;
+    }
+
+    /**
+     * Splits the interval of this clock in two. This clock keeps the first
+     * half, the returned clock owns the second half and knows the same events.
+     */
+    public IntervalTreeClock fork() {
+        Id[] halves = this.id.split();
+        this.id = halves[0];
+        return new IntervalTreeClock(halves[1], this.event);
+    }
+
+    /**
+     * Merges another clock into this one, taking over its interval and events.
+     * The other clock must not be used anymore afterwards.
+     *
+     * @param other The clock of a retiring participant or a clock returned by peek.
+     */
+    public void join(IntervalTreeClock other) {
+        this.id = Id.sum(this.id, other.id);
+        this.event = Event.join(this.event, other.event);
+    }
+
+    /**
+     * Records an event in the interval of this clock.
+     */
+    public void event() {
+        if (this.id == Id.ZERO) {
+            throw new IllegalStateException("An anonymous clock cannot record events.");
+        }
+        Event filled = Event.fill(this.id, this.event);
+        if (!filled.equals(this.event)) {
+            this.event = filled;
+        } else {
+            this.event = Event.grow(this.id, this.event).event;
+        }
+    }
+
+    /**
+     * Returns an anonymous copy of this clock, which knows the same events but
+     * owns no interval. Anonymous clocks are what is carried in messages.
+     */
+    public IntervalTreeClock peek() {
+        return new IntervalTreeClock(Id.ZERO, this.event);
+    }
+
+    /**
+     * Returns true if this clock knows no event that "other" does not know,
+     * i.e. if it happened before or is equal to "other".
+     */
+    public boolean leq(IntervalTreeClock other) {
+        return Event.leq(this.event, other.event);
+    }
+
+    /**
+     * Returns true if neither clock happened before the other one.
+     */
+    public boolean isConcurrent(IntervalTreeClock other) {
+        return !leq(other) && !other.leq(this);
+    }
+
+    /**
+     * Returns true if this clock owns no interval.
+     */
+    public boolean isAnonymous() {
+        return this.id == Id.ZERO;
+    }
+
+    /**
+     * Encodes the complete clock, including its interval, e.g. to hand a
+     * forked clock to a new process.
+     */
+    public byte[] toByteArray() throws IOException {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packArrayHeader(2);
+        this.id.pack(packer);
+        this.event.pack(packer);
+        return packer.toByteArray();
+    }
+
+    /**
+     * Decodes a clock encoded by toByteArray.
+     */
+    public static IntervalTreeClock fromByteArray(byte[] encoded) throws IOException {
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(encoded);
+        if (unpacker.unpackArrayHeader() != 2) {
+            throw new MessageTypeException("Expected an interval tree clock.");
+        }
+        IntervalTreeClock clock = new IntervalTreeClock(Id.unpack(unpacker), Event.unpack(unpacker));
+        unpacker.close();
+        return clock;
+    }
+
+    @Override
+    public void tick() {
+        event();
+    }
+
+    /**
+     * Writes the event tree of this clock as an extension value. The interval
+     * of the clock stays with the sender.
+     */
+    @Override
+    public void pack(MessagePacker packer) throws IOException {
+        MessageBufferPacker buffer = MessagePack.newDefaultBufferPacker();
+        this.event.pack(buffer);
+        byte[] payload = buffer.toByteArray();
+        packer.packExtensionTypeHeader(EXT_TYPE, payload.length);
+        packer.writePayload(payload);
+    }
+
+    @Override
+    public Object unpack(MessageUnpacker unpacker) throws IOException {
+        ExtensionTypeHeader header = unpacker.unpackExtensionTypeHeader();
+        if (header.getType() != EXT_TYPE) {
+            throw new MessageTypeException("Expected an interval tree clock but got " + header);
+        }
+        MessageUnpacker payload = MessagePack.newDefaultUnpacker(unpacker.readPayload(header.getLength()));
+        Event remoteEvent = Event.unpack(payload);
+        payload.close();
+        return remoteEvent;
+    }
+
+    @Override
+    public void merge(Object timestamp) {
+        this.event = Event.join(this.event, (Event) timestamp);
+    }
+
+    /**
+     * Returns the clock in the notation of the paper, e.g. "itc=((1, 0), (0, 2, 1))".
+     */
+    @Override
+    public String toString() {
+        return "itc=(" + this.id + ", " + this.event + ")";
+    }
+
+    /**
+     * An id tree: 0, 1 or a node with two subtrees for the halves of its interval.
+     * Trees are immutable and kept normalized, i.e. (0, 0) is 0 and (1, 1) is 1.
+     */
+    private static final class Id {
+        static final Id ZERO = new Id(null, null);
+        static final Id ONE = new Id(null, null);
+
+        final Id left;
+        final Id right;
+
+        private Id(Id left, Id right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        static Id node(Id left, Id right) {
+            if (left == ZERO && right == ZERO) return ZERO;
+            if (left == ONE && right == ONE) return ONE;
+            return new Id(left, right);
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+
+        Id[] split() {
+            if (this == ZERO) {
+                return new Id[]{ZERO, ZERO};
+            }
+            if (this == ONE) {
+                return new Id[]{new Id(ONE, ZERO), new Id(ZERO, ONE)};
+            }
+            if (left == ZERO) {
+                Id[] halves = right.split();
+                return new Id[]{node(ZERO, halves[0]), node(ZERO, halves[1])};
+            }
+            if (right == ZERO) {
+                Id[] halves = left.split();
+                return new Id[]{node(halves[0], ZERO), node(halves[1], ZERO)};
+            }
+            return new Id[]{node(left, ZERO), node(ZERO, right)};
+        }
+
+        static Id sum(Id a, Id b) {
+            if (a == ZERO) return b;
+            if (b == ZERO) return a;
+            if (a.isLeaf() || b.isLeaf()) {
+                throw new IllegalArgumentException("The intervals of the clocks overlap.");
+            }
+            return node(sum(a.left, b.left), sum(a.right, b.right));
+        }
+
+        void pack(MessagePacker packer) throws IOException {
+            if (isLeaf()) {
+                packer.packInt(this == ONE ? 1 : 0);
+            } else {
+                packer.packArrayHeader(2);
+                left.pack(packer);
+                right.pack(packer);
+            }
+        }
+
+        static Id unpack(MessageUnpacker unpacker) throws IOException {
+            if (unpacker.getNextFormat().getValueType() != ValueType.ARRAY) {
+                int value = unpacker.unpackInt();
+                if (value != 0 && value != 1) {
+                    throw new MessageTypeException("Invalid interval tree clock id " + value);
+                }
+                return value == 1 ? ONE : ZERO;
+            }
+            if (unpacker.unpackArrayHeader() != 2) {
+                throw new MessageTypeException("Expected an interval tree clock id.");
+            }
+            Id left = unpack(unpacker);
+            return node(left, unpack(unpacker));
+        }
+
+        @Override
+        public String toString() {
+            if (isLeaf()) return this == ONE ? "1" : "0";
+            return "(" + left + ", " + right + ")";
+        }
+    }
+
+    /**
+     * An event tree: a leaf counting events, or a node with a base count and
+     * two subtrees whose counts are relative to the base.
+     * Trees are immutable and kept normalized, i.e. the smaller subtree of
+     * a node has a base count of zero and a node of two equal leaves is a leaf.
+     */
+    private static final class Event {
+        static final Event ZERO = new Event(0, null, null);
+
+        final long n;
+        final Event left;
+        final Event right;
+
+        private Event(long n, Event left, Event right) {
+            this.n = n;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Event leaf(long n) {
+            return n == 0 ? ZERO : new Event(n, null, null);
+        }
+
+        static Event node(long n, Event left, Event right) {
+            if (left.isLeaf() && right.isLeaf() && left.n == right.n) {
+                return leaf(n + left.n);
+            }
+            long m = Math.min(left.min(), right.min());
+            return new Event(n + m, left.sink(m), right.sink(m));
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+
+        long min() {
+            return isLeaf() ? n : n + Math.min(left.min(), right.min());
+        }
+
+        long max() {
+            return isLeaf() ? n : n + Math.max(left.max(), right.max());
+        }
+
+        Event lift(long m) {
+            return isLeaf() ? leaf(n + m) : new Event(n + m, left, right);
+        }
+
+        Event sink(long m) {
+            return isLeaf() ? leaf(n - m) : new Event(n - m, left, right);
+        }
+
+        static Event join(Event a, Event b) {
+            if (a.isLeaf() && b.isLeaf()) {
+                return a.n >= b.n ? a : b;
+            }
+            if (a.isLeaf()) a = new Event(a.n, ZERO, ZERO);
+            if (b.isLeaf()) b = new Event(b.n, ZERO, ZERO);
+            if (a.n > b.n) {
+                Event t = a;
+                a = b;
+                b = t;
+            }
+            long d = b.n - a.n;
+            return node(a.n, join(a.left, b.left.lift(d)), join(a.right, b.right.lift(d)));
+        }
+
+        static boolean leq(Event a, Event b) {
+            if (a.isLeaf()) {
+                return a.n <= b.n;
+            }
+            if (b.isLeaf()) {
+                return a.n <= b.n && leq(a.left.lift(a.n), b) && leq(a.right.lift(a.n), b);
+            }
+            return a.n <= b.n
+                    && leq(a.left.lift(a.n), b.left.lift(b.n))
+                    && leq(a.right.lift(a.n), b.right.lift(b.n));
+        }
+
+        /**
+         * Inflates the event tree within the interval "id" without adding
+         * nodes, or returns "e" unchanged if that is not possible.
+         */
+        static Event fill(Id id, Event e) {
+            if (id == Id.ZERO) return e;
+            if (id == Id.ONE) return leaf(e.max());
+            if (e.isLeaf()) return e;
+            if (id.left == Id.ONE) {
+                Event right = fill(id.right, e.right);
+                return node(e.n, leaf(Math.max(e.left.max(), right.min())), right);
+            }
+            if (id.right == Id.ONE) {
+                Event left = fill(id.left, e.left);
+                return node(e.n, left, leaf(Math.max(e.right.max(), left.min())));
+            }
+            return node(e.n, fill(id.left, e.left), fill(id.right, e.right));
+        }
+
+        /**
+         * Inflates the event tree within the interval "id" by adding as few
+         * nodes as possible.
+         */
+        static Grown grow(Id id, Event e) {
+            if (id == Id.ONE) {
+                return new Grown(leaf(e.max() + 1), 0);
+            }
+            if (e.isLeaf()) {
+                Grown g = grow(id, new Event(e.n, ZERO, ZERO));
+                return new Grown(g.event, g.cost + 1000);
+            }
+            if (id.left == Id.ZERO) {
+                Grown g = grow(id.right, e.right);
+                return new Grown(new Event(e.n, e.left, g.event), g.cost + 1);
+            }
+            if (id.right == Id.ZERO) {
+                Grown g = grow(id.left, e.left);
+                return new Grown(new Event(e.n, g.event, e.right), g.cost + 1);
+            }
+            Grown l = grow(id.left, e.left);
+            Grown r = grow(id.right, e.right);
+            if (l.cost < r.cost) {
+                return new Grown(new Event(e.n, l.event, e.right), l.cost + 1);
+            }
+            return new Grown(new Event(e.n, e.left, r.event), r.cost + 1);
+        }
+
+        void pack(MessagePacker packer) throws IOException {
+            if (isLeaf()) {
+                packer.packLong(n);
+            } else {
+                packer.packArrayHeader(3);
+                packer.packLong(n);
+                left.pack(packer);
+                right.pack(packer);
+            }
+        }
+
+        static Event unpack(MessageUnpacker unpacker) throws IOException {
+            if (unpacker.getNextFormat().getValueType() != ValueType.ARRAY) {
+                return leaf(unpacker.unpackLong());
+            }
+            if (unpacker.unpackArrayHeader() != 3) {
+                throw new MessageTypeException("Expected an interval tree clock event.");
+            }
+            long n = unpacker.unpackLong();
+            Event left = unpack(unpacker);
+            return node(n, left, unpack(unpacker));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Event)) return false;
+            Event other = (Event) o;
+            if (n != other.n || isLeaf() != other.isLeaf()) return false;
+            return isLeaf() || (left.equals(other.left) && right.equals(other.right));
+        }
+
+        @Override
+        public int hashCode() {
+            return isLeaf() ? (int) n : 31 * (31 * (int) n + left.hashCode()) + right.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            if (isLeaf()) return Long.toString(n);
+            return "(" + n + ", " + left + ", " + right + ")";
+        }
+    }
+
+    private static final class Grown {
+        final Event event;
+        final int cost;
+
+        Grown(Event event, int cost) {
+            this.event = event;
+            this.cost = cost;
+        }
+    }
+}
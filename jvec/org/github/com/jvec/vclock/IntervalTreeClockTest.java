@@ -0,0 +1,72 @@
+package org.github.com.jvec.vclock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IntervalTreeClockTest {
+    IntervalTreeClock seed;
+
+    @Before
+    public void setUp() throws Exception {
+        seed = new IntervalTreeClock();
+    }
+
+    @Test
+    public void forkAndEvent() throws Exception {
+        IntervalTreeClock forked = seed.fork();
+        assertEquals("The interval was not split!", "itc=((1, 0), 0)", seed.toString());
+        assertEquals("The interval was not split!", "itc=((0, 1), 0)", forked.toString());
+        seed.event();
+        forked.event();
+        assertEquals("The event was not recorded!", "itc=((1, 0), (0, 1, 0))", seed.toString());
+        assertEquals("The event was not recorded!", "itc=((0, 1), (0, 0, 1))", forked.toString());
+        assertTrue("The clocks are not concurrent!", seed.isConcurrent(forked));
+    }
+
+    @Test
+    public void peekAndJoin() throws Exception {
+        IntervalTreeClock forked = seed.fork();
+        seed.event();
+        forked.event();
+        forked.join(seed.peek());
+        assertEquals("The event tree was not normalized!", "itc=((0, 1), 1)", forked.toString());
+        assertTrue("The clocks are not ordered!", seed.leq(forked));
+        assertFalse("The clocks are not ordered!", forked.leq(seed));
+        forked.event();
+        assertEquals("itc=((0, 1), (1, 0, 1))", forked.toString());
+    }
+
+    @Test
+    public void retire() throws Exception {
+        IntervalTreeClock forked = seed.fork();
+        IntervalTreeClock forked2 = forked.fork();
+        forked2.event();
+        seed.join(forked2);
+        seed.join(forked);
+        assertEquals("The interval was not given back!", "itc=(1, (0, 0, (0, 0, 1)))", seed.toString());
+        seed.event();
+        assertEquals("The event tree was not simplified!", "itc=(1, 1)", seed.toString());
+    }
+
+    @Test
+    public void encoding() throws Exception {
+        IntervalTreeClock forked = seed.fork();
+        forked.event();
+        forked.event();
+        IntervalTreeClock decoded = IntervalTreeClock.fromByteArray(forked.toByteArray());
+        assertEquals("The clock was not decoded correctly!", forked.toString(), decoded.toString());
+        assertTrue(decoded.leq(forked) && forked.leq(decoded));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void anonymousEvent() throws Exception {
+        seed.peek().event();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlappingJoin() throws Exception {
+        seed.join(IntervalTreeClock.fromByteArray(seed.toByteArray()));
+    }
+}
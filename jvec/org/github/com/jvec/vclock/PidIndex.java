@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package org.github.com.jvec.vclock;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every process id that appears in a family of dense clocks a small
+ * integer id. A family is a dense clock together with all stores shared from
+ * it; they store their time values in arrays indexed by these ids and merge
+ * each other id by id. Unrelated clocks use their own index, so the ids of a
+ * clock only cover the process ids its family has seen, and the index is
+ * released together with the last clock of the family.
+ * The index also keeps the ids sorted by process id, so that clocks can list
+ * their entries in the same order as a map sorted by process id would. The
+ * sorted ids are only brought up to date when a clock lists its entries, by
+ * merging the ids registered since the last time into them.
+ */
+final class PidIndex {
+
+    /**
+     * The process ids ordered by id. An Order is replaced whenever a new
+     * process id is registered; its ids sorted by process id are filled in
+     * once by sortedOrder.
+     */
+    static final class Order {
+        // Shared by later orders, which only append behind "count"
+        final String[] pids;
+        final int count;
+        int[] rank;
+        volatile int[] sorted;
+
+        Order(String[] pids, int count) {
+            this.pids = pids;
+            this.count = count;
+        }
+    }
+
+    private static final Order UNSORTED = new Order(new String[0], 0);
+
+    static {
+        UNSORTED.rank = new int[0];
+        UNSORTED.sorted = new int[0];
+    }
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Order order = new Order(new String[8], 0);
+    private Order lastSorted = UNSORTED;
+
+    /**
+     * Returns the id of "pid" or -1 if the process id was never registered.
+     */
+    int find(String pid) {
+        Integer id = ids.get(pid);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the id of "pid", assigning a new id if necessary.
+     */
+    int register(String pid) {
+        Integer id = ids.get(pid);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(pid);
+            if (id != null) {
+                return id;
+            }
+            Order old = order;
+            int newId = old.count;
+            String[] pids = old.pids;
+            if (newId == pids.length) {
+                pids = Arrays.copyOf(pids, newId * 2);
+            }
+            pids[newId] = pid;
+            order = new Order(pids, newId + 1);
+            ids.put(pid, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Returns the current order with its sorted ids. It contains at least
+     * every id returned by register before this call.
+     */
+    Order sortedOrder() {
+        Order current = order;
+        if (current.sorted == null) {
+            sort(current);
+        }
+        return current;
+    }
+
+    private synchronized void sort(final Order current) {
+        if (current.sorted != null) {
+            return;
+        }
+        // Sort the ids registered since the last sort and merge them into its sorted ids.
+        Order base = lastSorted.count <= current.count ? lastSorted : UNSORTED;
+        Integer[] added = new Integer[current.count - base.count];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = base.count + i;
+        }
+        Arrays.sort(added, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return current.pids[a].compareTo(current.pids[b]);
+            }
+        });
+        int[] sorted = new int[current.count];
+        int[] rank = new int[current.count];
+        int i = 0;
+        int j = 0;
+        for (int pos = 0; pos < sorted.length; pos++) {
+            if (j == added.length || (i < base.count && current.pids[base.sorted[i]].compareTo(current.pids[added[j]]) < 0)) {
+                sorted[pos] = base.sorted[i++];
+            } else {
+                sorted[pos] = added[j++];
+            }
+            rank[sorted[pos]] = pos;
+        }
+        current.rank = rank;
+        current.sorted = sorted;
+        if (current.count >= lastSorted.count) {
+            lastSorted = current;
+        }
+    }
+}
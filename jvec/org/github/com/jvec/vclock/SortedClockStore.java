@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Distributed clocks
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+
+package org.github.com.jvec.vclock;
+
+import java.util.Arrays;
+
+/**
+ * Storage for clocks of up to {@link ClockStore#SORTED_MAX} entries.
+ * The entries are kept in two parallel arrays sorted by process id and are
+ * found by binary search. Merging two such clocks walks both arrays once.
+ */
+final class SortedClockStore extends ClockStore {
+
+    private String[] pids;
+    private long[] ticks;
+    private int size;
+    private boolean owned;
+
+    SortedClockStore(String[] pids, long[] ticks, int size, boolean owned) {
+        this.pids = pids;
+        this.ticks = ticks;
+        this.size = size;
+        this.owned = owned;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long get(String pid) {
+        int i = Arrays.binarySearch(pids, 0, size, pid);
+        return i < 0 ? 0 : ticks[i];
+    }
+
+    @Override
+    ClockStore put(String pid, long time) {
+        int i = Arrays.binarySearch(pids, 0, size, pid);
+        if (i >= 0) {
+            if (!owned) {
+                copyArrays(pids.length);
+            }
+            ticks[i] = time;
+            return this;
+        }
+        if (size == SORTED_MAX) {
+            return grow(this, size + 1).put(pid, time);
+        }
+        int pos = -(i + 1);
+        if (!owned || size == pids.length) {
+            copyArrays(size == pids.length ? Math.min(size * 2, SORTED_MAX) : pids.length);
+        }
+        System.arraycopy(pids, pos, pids, pos + 1, size - pos);
+        System.arraycopy(ticks, pos, ticks, pos + 1, size - pos);
+        pids[pos] = pid;
+        ticks[pos] = time;
+        size++;
+        return this;
+    }
+
+    private void copyArrays(int capacity) {
+        pids = Arrays.copyOf(pids, capacity);
+        ticks = Arrays.copyOf(ticks, capacity);
+        owned = true;
+    }
+
+    @Override
+    ClockStore share() {
+        owned = false;
+        return new SortedClockStore(pids, ticks, size, false);
+    }
+
+    @Override
+    ClockStore merge(ClockStore other) {
+        if (!(other instanceof SortedClockStore || other instanceof InlineClockStore)) {
+            if (other.size() > SORTED_MAX) {
+                return grow(this, other.size()).merge(other);
+            }
+            return super.merge(other);
+        }
+        // Walk both sorted lists once to find out whether "other" brings new entries.
+        int added = 0;
+        int i = 0;
+        for (VClock.Cursor theirs = other.cursor(); theirs.next(); ) {
+            while (i < size && pids[i].compareTo(theirs.pid()) < 0) {
+                i++;
+            }
+            if (i < size && pids[i].equals(theirs.pid())) {
+                if (ticks[i] < theirs.ticks()) {
+                    if (!owned) {
+                        copyArrays(pids.length);
+                    }
+                    ticks[i] = theirs.ticks();
+                }
+            } else {
+                added++;
+            }
+        }
+        if (added == 0) {
+            return this;
+        }
+
+        // Merge-join the two sorted lists into fresh arrays.
+        int n = 0;
+        int capacity = size + added;
+        String[] mergedPids = new String[capacity];
+        long[] mergedTicks = new long[capacity];
+        i = 0;
+        VClock.Cursor theirs = other.cursor();
+        boolean more = theirs.next();
+        while (i < size || more) {
+            int cmp = !more ? -1 : i == size ? 1 : pids[i].compareTo(theirs.pid());
+            if (cmp < 0) {
+                mergedPids[n] = pids[i];
+                mergedTicks[n++] = ticks[i++];
+            } else if (cmp > 0) {
+                mergedPids[n] = theirs.pid();
+                mergedTicks[n++] = theirs.ticks();
+                more = theirs.next();
+            } else {
+                // The values were already merged in place above.
+                mergedPids[n] = pids[i];
+                mergedTicks[n++] = ticks[i++];
+                more = theirs.next();
+            }
+        }
+        SortedClockStore merged = new SortedClockStore(mergedPids, mergedTicks, n, true);
+        if (n > SORTED_MAX) {
+            return grow(merged, n);
+        }
+        return merged;
+    }
+
+    @Override
+    long maxTicks() {
+        long max = 0;
+        for (int i = 0; i < size; i++) {
+            if (ticks[i] > max) {
+                max = ticks[i];
+            }
+        }
+        return max;
+    }
+
+    @Override
+    VClock.Cursor cursor() {
+        return new ArrayCursor(pids, ticks, size);
+    }
+}
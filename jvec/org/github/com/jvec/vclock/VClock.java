@@ -27,6 +27,7 @@
 package org.github.com.jvec.vclock;
 
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -34,21 +35,65 @@ import java.util.TreeMap;
  * This is the vector clock class, which contains a map of id and time.
  * "id" is a string representing the id of the particular clock entry.
  * "time" is a 64 bit integer denoting the current time value of a clock.
+ * <p>
+ * The entries are stored in a representation that fits the size of the
+ * clock: a few inline entries for small clocks, sorted arrays for medium
+ * sized clocks and arrays indexed by process for large clocks. A clock
+ * switches its representation automatically as it grows.
+ * Clocks are copy-on-write: {@link #copy()} and {@link #snapshot()} take
+ * constant time and share the memory of the clock. Only the parts of the
+ * clock that are modified afterwards get copied. Calling {@link #getClockMap()}
+ * hands out the underlying map and turns this clock into a plain map-backed
+ * clock, whose copies take time proportional to its size again.
  */
 public class VClock {
 
-    protected final TreeMap<String, Long> vc;
+    private ClockStore store;
+    private TreeMap<String, Long> clockMap;
+    private final boolean snapshot;
+    private int modCount;
 
+    /**
+     * Iterates the entries of a clock sorted by their ids.
+     * The clock must not be modified while a cursor is in use.
+     */
+    public interface Cursor {
+        /**
+         * Moves to the next entry. Returns false if there are no more entries.
+         */
+        boolean next();
+
+        /**
+         * Returns the id of the current entry.
+         */
+        String pid();
+
+        /**
+         * Returns the time value of the current entry.
+         */
+        long ticks();
+    }
 
     public VClock() {
-        this.vc = clockInit();
+        this(new InlineClockStore(), null, false);
     }
 
-    /**
-     * Returns a new vector clock map and initiliases the map containing the clocks.
-     */
-    private TreeMap<String, Long> clockInit() {
-        return new TreeMap<>();
+    private VClock(ClockStore store, TreeMap<String, Long> clockMap, boolean snapshot) {
+        this.store = store;
+        this.clockMap = clockMap;
+        this.snapshot = snapshot;
+    }
+
+    private static void checkPid(String pid) {
+        if (pid == null) {
+            throw new NullPointerException("The process id must not be null.");
+        }
+    }
+
+    private void checkMutable() {
+        if (this.snapshot) {
+            throw new UnsupportedOperationException("Vector clock snapshots are immutable.");
+        }
     }
 
     /**
@@ -59,10 +104,15 @@ public class VClock {
      * @param pid The process id as string representation.
      */
     public void tick(String pid) {
-
-        if (this.vc.containsKey(pid)) this.vc.put(pid, this.vc.get(pid) + 1);
-        else this.vc.put(pid, (long) 1);
-
+        checkPid(pid);
+        checkMutable();
+        this.modCount++;
+        if (this.clockMap != null) {
+            if (this.clockMap.containsKey(pid)) this.clockMap.put(pid, this.clockMap.get(pid) + 1);
+            else this.clockMap.put(pid, (long) 1);
+            return;
+        }
+        this.store = this.store.put(pid, this.store.get(pid) + 1);
     }
 
     /**
@@ -74,6 +124,8 @@ public class VClock {
      * @param ticks The value of time to be set as.
      */
     public void set(String pid, long ticks) {
+        checkPid(pid);
+        checkMutable();
 
         // Anything less than 1 does not conform to specification.
         // We automatically set ticks to the lowest possible value.
@@ -81,17 +133,46 @@ public class VClock {
             ticks = 1;
         }
 
-        if (this.vc.containsKey(pid)) this.vc.put(pid, ticks);
-        else this.vc.put(pid, ticks);
+        this.modCount++;
+        if (this.clockMap != null) this.clockMap.put(pid, ticks);
+        else this.store = this.store.put(pid, ticks);
     }
 
     /**
      * Returns a copy of the vector clock map. Both clock maps remain valid.
+     * The copy shares its memory with this clock until either of them is
+     * modified.
      */
     public VClock copy() {
-        VClock clock = new VClock();
-        clock.vc.putAll(this.vc);
-        return clock;
+        if (this.clockMap != null) {
+            return new VClock(null, new TreeMap<>(this.clockMap), false);
+        }
+        return new VClock(this.store.share(), null, false);
+    }
+
+    /**
+     * Returns an immutable copy of the current state of this clock.
+     * Taking a snapshot does not copy the clock, the snapshot shares its memory
+     * with this clock. Later changes of this clock copy only the modified parts
+     * and are not visible in the snapshot. Snapshots can be read, merged into
+     * other clocks and copied, but all modifying methods throw an
+     * UnsupportedOperationException.
+     */
+    public VClock snapshot() {
+        if (this.snapshot) {
+            return this;
+        }
+        if (this.clockMap != null) {
+            return new VClock(null, new TreeMap<>(this.clockMap), true);
+        }
+        return new VClock(this.store.share(), null, true);
+    }
+
+    /**
+     * Returns true if this clock is an immutable snapshot.
+     */
+    public boolean isSnapshot() {
+        return this.snapshot;
     }
 
     /**
@@ -101,11 +182,59 @@ public class VClock {
      * @param pid The process id as string representation.
      */
     public long findTicks(String pid) {
+        checkPid(pid);
+        if (this.clockMap != null) {
+            if (!this.clockMap.containsKey(pid)) {
+                return -1;
+            }
+            return this.clockMap.get(pid);
+        }
+        long time = this.store.get(pid);
+        return time == 0 ? -1 : time;
+    }
+
+    /**
+     * Returns the number of entries in this clock.
+     */
+    public int size() {
+        if (this.clockMap != null) {
+            return this.clockMap.size();
+        }
+        return this.store.size();
+    }
 
-        if (!this.vc.containsKey(pid)) {
-            return -1;
+    /**
+     * Returns a cursor over the entries of this clock, sorted by their ids.
+     * Unlike iterating the map of {@link #getClockMap()}, this does not box the
+     * time values and keeps the clock copy-on-write.
+     */
+    public Cursor cursor() {
+        if (this.clockMap != null) {
+            final Iterator<Map.Entry<String, Long>> it = this.clockMap.entrySet().iterator();
+            return new Cursor() {
+                private Map.Entry<String, Long> entry;
+
+                @Override
+                public boolean next() {
+                    if (!it.hasNext()) {
+                        return false;
+                    }
+                    entry = it.next();
+                    return true;
+                }
+
+                @Override
+                public String pid() {
+                    return entry.getKey();
+                }
+
+                @Override
+                public long ticks() {
+                    return entry.getValue();
+                }
+            };
         }
-        return this.vc.get(pid);
+        return this.store.cursor();
     }
 
     /**
@@ -114,8 +243,11 @@ public class VClock {
      * clocks.
      */
     public long lastUpdate() {
+        if (this.clockMap == null) {
+            return this.store.maxTicks();
+        }
         long last = 0;
-        for (Map.Entry<String, Long> clock : this.vc.entrySet()) {
+        for (Map.Entry<String, Long> clock : this.clockMap.entrySet()) {
             if (clock.getValue() > last) {
                 last = clock.getValue();
             }
@@ -132,31 +264,49 @@ public class VClock {
      * @param other The vector clock map to merge with.
      */
     public void merge(VClock other) {
-        for (Map.Entry<String, Long> clock : other.vc.entrySet()) {
-            Long time = this.vc.get(clock.getKey());
-            if (time == null) {
-                this.vc.put(clock.getKey(), clock.getValue());
-            } else {
-                if (time < clock.getValue())
-                    this.vc.put(clock.getKey(), clock.getValue());
+        checkMutable();
+        this.modCount++;
+        if (this.clockMap == null && other.clockMap == null) {
+            this.store = this.store.merge(other.store);
+            return;
+        }
+        for (Cursor clock = other.cursor(); clock.next(); ) {
+            long time = findTicks(clock.pid());
+            if (time < clock.ticks()) {
+                if (this.clockMap != null) this.clockMap.put(clock.pid(), clock.ticks());
+                else this.store = this.store.put(clock.pid(), clock.ticks());
             }
         }
     }
 
+    /**
+     * Returns a counter that changes whenever this clock is modified, which
+     * lets callers keep values derived from the clock, e.g. its encoding,
+     * until it changes.
+     * Modifications through the map of {@link #getClockMap()} cannot be
+     * counted, so the counter of a map-backed clock changes on every call.
+     */
+    public int getModCount() {
+        if (this.clockMap != null && !this.snapshot) {
+            return ++this.modCount;
+        }
+        return this.modCount;
+    }
+
     /**
      * Returns a string representation of the vector map in the following format:
      * {"ProcessID 1": Time1, "ProcessID 2": Time2, ...}
      */
     public String returnVCString() {
-        int mapSize = this.vc.size();
+        int mapSize = size();
         int i = 0;
         StringBuilder vcString = new StringBuilder();
         vcString.append("{");
-        for (Map.Entry<String, Long> clock : this.vc.entrySet()) {
+        for (Cursor clock = cursor(); clock.next(); ) {
             vcString.append("\"");
-            vcString.append(clock.getKey());
+            vcString.append(clock.pid());
             vcString.append("\":");
-            vcString.append(clock.getValue());
+            vcString.append(clock.ticks());
             if (i < mapSize - 1) vcString.append(", ");
             i++;
         }
@@ -173,8 +323,38 @@ public class VClock {
 
     /**
      * Get the current vector clock map.
+     * The map is the live storage of this clock, changes to the map change the
+     * clock and vice versa. From now on this clock stays map-backed, so its
+     * copies and snapshots copy the whole map. For a snapshot the returned map
+     * is a copy.
      */
     public TreeMap<String, Long> getClockMap() {
-        return this.vc;
+        if (this.clockMap == null) {
+            TreeMap<String, Long> map = new TreeMap<>();
+            for (Cursor clock = this.store.cursor(); clock.next(); ) {
+                map.put(clock.pid(), clock.ticks());
+            }
+            if (this.snapshot) {
+                return map;
+            }
+            this.clockMap = map;
+            this.store = null;
+        }
+        if (this.snapshot) {
+            return new TreeMap<>(this.clockMap);
+        }
+        return this.clockMap;
+    }
+
+    /**
+     * Returns the map of this clock like {@link #getClockMap()}. Subclasses
+     * used to access it through the protected field "vc", which was removed
+     * when clocks became copy-on-write.
+     *
+     * @deprecated Use {@link #getClockMap()}.
+     */
+    @Deprecated
+    protected TreeMap<String, Long> vc() {
+        return getClockMap();
     }
 }
@@ -103,6 +103,53 @@ public class VClockTest {
         assertEquals("Copy failed! The clock values do not match.", clockTicks, clockTicksCopy);
     }
 
+    @Test
+    public void copyOnWrite() throws Exception {
+        testClock.set("Proc1", 50);
+        VClock nc = testClock.copy();
+        nc.tick("Proc1");
+        testClock.tick("Proc2");
+        assertEquals("Modifying the copy changed the original!", 50L, testClock.findTicks("Proc1"));
+        assertEquals("Modifying the original changed the copy!", -1L, nc.findTicks("Proc2"));
+        assertEquals("The copy did not keep its own modification!", 51L, nc.findTicks("Proc1"));
+    }
+
+    @Test
+    public void snapshot() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            testClock.set("Proc" + i, i + 1);
+        }
+        VClock snapshot = testClock.snapshot();
+        String before = snapshot.returnVCString();
+        testClock.tick("Proc7");
+        testClock.set("Proc100", 5);
+        testClock.merge(snapshot);
+        assertTrue("The snapshot is not marked as immutable!", snapshot.isSnapshot());
+        assertEquals("The snapshot changed with its clock!", before, snapshot.returnVCString());
+        assertEquals("The clock did not keep its modification!", 9L, testClock.findTicks("Proc7"));
+        assertEquals("The snapshot changed with its clock!", 8L, snapshot.findTicks("Proc7"));
+        assertEquals(100, snapshot.size());
+        assertEquals(101, testClock.size());
+        VClock copy = snapshot.copy();
+        copy.tick("Proc7");
+        assertEquals("A copy of a snapshot is not mutable!", 9L, copy.findTicks("Proc7"));
+        assertEquals("Modifying a copy changed the snapshot!", 8L, snapshot.findTicks("Proc7"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotUnsupportedOperationException() {
+        testClock.snapshot().tick("Proc1");
+    }
+
+    @Test
+    public void snapshotOfClockMap() throws Exception {
+        testClock.getClockMap().put("Proc1", 3L);
+        VClock snapshot = testClock.snapshot();
+        testClock.tick("Proc1");
+        assertEquals("The snapshot changed with its clock map!", 3L, snapshot.findTicks("Proc1"));
+        assertEquals("The clock map was not updated!", 4L, (long) testClock.getClockMap().get("Proc1"));
+    }
+
     @Test
     public void lastUpdate() throws Exception {
         testClock.set("Proc1", 2);
@@ -137,6 +184,98 @@ public class VClockTest {
                 " \"Proc3\":1}", mergeClock.returnVCString());
     }
 
+    @Test
+    public void growAcrossRepresentations() throws Exception {
+        VClock copies[] = new VClock[3];
+        int sizes[] = {3, 100, 300};
+        int n = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            for (; n < sizes[i]; n++) {
+                testClock.set("Proc" + (1000 - n), n + 1);
+            }
+            copies[i] = testClock.snapshot();
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals("The snapshot does not have the correct size!", sizes[i], copies[i].size());
+            String last = null;
+            for (VClock.Cursor clock = copies[i].cursor(); clock.next(); ) {
+                assertTrue("The entries are not sorted!", last == null || last.compareTo(clock.pid()) < 0);
+                assertEquals("The entry has the wrong value!", 1000 - Long.parseLong(clock.pid().substring(4)) + 1,
+                        clock.ticks());
+                last = clock.pid();
+            }
+        }
+        assertEquals("The clock lost an entry!", 1, testClock.findTicks("Proc1000"));
+        assertEquals("The clock lost an entry!", 300, testClock.findTicks("Proc701"));
+    }
+
+    @Test
+    public void mergeAcrossRepresentations() throws Exception {
+        VClock small = new VClock();
+        small.set("Proc1", 5);
+        small.set("Proc2", 1);
+        VClock large = new VClock();
+        for (int i = 0; i < 200; i++) {
+            large.set("Proc" + i, 2);
+        }
+        VClock merged = small.copy();
+        merged.merge(large);
+        assertEquals("The clock did not merge correctly!", 200, merged.size());
+        assertEquals("The clock did not merge correctly!", 5, merged.findTicks("Proc1"));
+        assertEquals("The clock did not merge correctly!", 2, merged.findTicks("Proc2"));
+        large.merge(small);
+        assertEquals("The clock did not merge correctly!", merged.returnVCString(), large.returnVCString());
+        assertEquals("The merge modified its argument!", 2, small.size());
+    }
+
+    @Test
+    public void mergeUnrelatedLargeClocks() throws Exception {
+        VClock first = new VClock();
+        VClock second = new VClock();
+        TreeMap<String, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 300; i++) {
+            first.set("Proc" + i, i + 1);
+            second.set("Proc" + (i + 150), 2 * i + 1);
+            expected.put("Proc" + i, (long) i + 1);
+        }
+        for (int i = 0; i < 300; i++) {
+            Long own = expected.get("Proc" + (i + 150));
+            expected.put("Proc" + (i + 150), Math.max(own == null ? 0 : own, 2L * i + 1));
+        }
+        VClock snapshot = first.snapshot();
+        first.merge(second);
+        assertEquals("The clock did not merge correctly!", expected.size(), first.size());
+        String last = null;
+        for (VClock.Cursor clock = first.cursor(); clock.next(); ) {
+            assertTrue("The entries are not sorted!", last == null || last.compareTo(clock.pid()) < 0);
+            assertEquals("The entry has the wrong value!", (long) expected.get(clock.pid()), clock.ticks());
+            last = clock.pid();
+        }
+        assertEquals("The merge modified the snapshot!", 300, snapshot.size());
+        assertEquals("The merge modified its argument!", 300, second.size());
+        assertEquals("The merge modified its argument!", 1, second.findTicks("Proc150"));
+        assertEquals("The merge modified its argument!", -1, second.findTicks("Proc0"));
+    }
+
+    static class LegacyClock extends VClock {
+        @SuppressWarnings("deprecation")
+        long legacyTicks(String pid) {
+            Long ticks = vc().get(pid);
+            return ticks == null ? 0 : ticks;
+        }
+    }
+
+    @Test
+    public void subclassesReachTheMap() throws Exception {
+        LegacyClock clock = new LegacyClock();
+        clock.tick("Proc1");
+        clock.tick("Proc1");
+        assertEquals("The map of the subclass is not live!", 2, clock.legacyTicks("Proc1"));
+        clock.tick("Proc1");
+        assertEquals(3, clock.legacyTicks("Proc1"));
+        assertEquals(3, clock.copy().findTicks("Proc1"));
+    }
+
     @Test
     public void printVC() throws Exception {
         ByteArrayOutputStream outContent = new ByteArrayOutputStream();
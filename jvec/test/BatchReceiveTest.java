@@ -0,0 +1,101 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.clock.LamportClock;
+import org.github.com.jvec.msgpack.core.MessageInsufficientBufferException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchReceiveTest {
+    MemoryLogSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+    }
+
+    @Test
+    public void batchMatchesSingleReceives() throws Exception {
+        JVec proc2 = new JVec("proc2", sink);
+        JVec proc3 = new JVec("proc3", sink);
+        for (int i = 0; i < 20; i++) {
+            proc3.getVc().set("worker" + i, i + 1);
+        }
+        List<byte[]> msgs = Arrays.asList(
+                proc2.prepareSend("Sending", "a".getBytes()),
+                proc3.prepareSend("Sending", "b".getBytes()),
+                proc2.prepareSend("Sending", "c".getBytes()));
+
+        JVec single = new JVec("a-single", sink);
+        for (byte[] msg : msgs) {
+            single.unpackReceive("Receiving", msg);
+        }
+        JVec batch = new JVec("a-batch", sink);
+        sink.clear();
+        List<byte[]> decoded = batch.unpackReceiveBatch("Receiving", msgs);
+
+        assertEquals("The data was not decoded in order!", "a", new String(decoded.get(0)));
+        assertEquals("The data was not decoded in order!", "b", new String(decoded.get(1)));
+        assertEquals("The data was not decoded in order!", "c", new String(decoded.get(2)));
+        assertEquals("The batch clock differs from single receives!",
+                single.getVc().returnVCString().replace("a-single", "a-batch"), batch.getVc().returnVCString());
+        assertEquals("Not every receive event was logged!", 3, sink.records().size());
+        assertEquals("The intermediate clock was not logged!",
+                "a-batch {\"a-batch\":2, \"proc2\":2} Receiving", sink.records().get(0));
+        assertTrue("The intermediate clock was not logged!", sink.records().get(1).startsWith("a-batch {\"a-batch\":3, "));
+        assertTrue("The intermediate clock was not logged!", sink.records().get(2).contains("\"proc2\":3"));
+    }
+
+    @Test
+    public void batchWithClockStrategy() throws Exception {
+        LamportClock clock = new LamportClock();
+        JVec proc1 = new JVec("proc1", sink, new LamportClock());
+        JVec proc2 = new JVec("proc2", sink, clock);
+        List<byte[]> msgs = Arrays.asList(
+                proc1.prepareSend("Sending", new byte[0]),
+                proc1.prepareSend("Sending", new byte[0]));
+        proc2.unpackReceiveBatch("Receiving", msgs);
+        assertEquals("The receive events were not ordered after the send events!", 4, clock.getTime());
+    }
+
+    @Test
+    public void corruptFrameLeavesClockUnchanged() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        JVec proc2 = new JVec("proc2", sink);
+        proc1.getVc().set("other", 2);
+        byte[] msg = proc1.prepareSend("Sending", "a".getBytes());
+        String before = proc2.getVc().returnVCString();
+        sink.clear();
+        try {
+            proc2.unpackReceive("Receiving", Arrays.copyOf(msg, msg.length - 1));
+            fail("The truncated frame was not rejected!");
+        } catch (MessageInsufficientBufferException e) {
+            // expected
+        }
+        assertEquals("The clock was changed by a truncated frame!", before, proc2.getVc().returnVCString());
+        assertTrue("A truncated frame was logged!", sink.records().isEmpty());
+    }
+
+    @Test
+    public void corruptFrameRejectsWholeBatch() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        JVec proc2 = new JVec("proc2", sink);
+        byte[] msg1 = proc1.prepareSend("Sending", "a".getBytes());
+        byte[] msg2 = proc1.prepareSend("Sending", "b".getBytes());
+        String before = proc2.getVc().returnVCString();
+        sink.clear();
+        try {
+            proc2.unpackReceiveBatch("Receiving", Arrays.asList(msg1, Arrays.copyOf(msg2, msg2.length - 1), msg1));
+            fail("The truncated frame was not rejected!");
+        } catch (MessageInsufficientBufferException e) {
+            // expected
+        }
+        assertEquals("The clock was changed by a rejected batch!", before, proc2.getVc().returnVCString());
+        assertTrue("A rejected batch was logged!", sink.records().isEmpty());
+        proc2.unpackReceiveBatch("Receiving", Arrays.asList(msg1, msg2));
+        assertEquals("The batch was not received after a rejected one!", 3, proc2.getVc().findTicks("proc2"));
+    }
+}
@@ -0,0 +1,94 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.log.Attributes;
+import org.github.com.jvec.log.BinaryLogReader;
+import org.github.com.jvec.log.BinaryLogSink;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinaryLogSinkTest {
+    static String logName = "binaryLog";
+    BinaryLogSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new BinaryLogSink(logName);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sink.close();
+        new File(logName + "-jvec.bin").delete();
+        new File(logName + "-shiviz.txt").delete();
+    }
+
+    private List<String> readLines(String fileName) throws Exception {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        return lines;
+    }
+
+    @Test
+    public void attributes() throws Exception {
+        Attributes attributes = Attributes.create()
+                .put("requestId", 42L).put("status", 200).put("cached", true).put("user", "alice").put("none", null);
+        assertEquals(5, attributes.size());
+        assertEquals(" requestId=42 status=200 cached=true user=alice none=null", attributes.toString());
+        Map<String, Object> values = attributes.toMap();
+        assertEquals(42L, values.get("requestId"));
+        assertEquals(200L, values.get("status"));
+        assertEquals(true, values.get("cached"));
+        assertEquals("alice", values.get("user"));
+
+        attributes.clear().put("requestId", 43L);
+        assertEquals(" requestId=43", attributes.toString());
+    }
+
+    @Test
+    public void storesAndExportsAttributes() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        JVec proc2 = new JVec("proc2", sink);
+        Attributes attributes = Attributes.create();
+        proc1.logLocalEvent("Handled", attributes.put("requestId", 7L).put("ok", true));
+        byte[] msg = proc1.prepareSend("Sending", attributes.clear().put("size", 3), new byte[]{1, 2, 3});
+        proc2.unpackReceive("Receiving", attributes.clear().put("from", "proc1"), msg);
+        sink.close();
+
+        BinaryLogReader reader = new BinaryLogReader(logName + "-jvec.bin");
+        List<String> pids = new ArrayList<>();
+        List<Map<String, Object>> records = new ArrayList<>();
+        while (reader.next()) {
+            pids.add(reader.getPid());
+            records.add(reader.getAttributes());
+        }
+        reader.close();
+        assertEquals(5, records.size());
+        assertEquals(7L, records.get(2).get("requestId"));
+        assertEquals(true, records.get(2).get("ok"));
+        assertEquals(3L, records.get(3).get("size"));
+        assertEquals("proc2", pids.get(4));
+        assertEquals("proc1", records.get(4).get("from"));
+
+        BinaryLogSink.export(logName);
+        List<String> lines = readLines(logName + "-shiviz.txt");
+        assertEquals(10, lines.size());
+        assertEquals("proc1 {\"proc1\":2}", lines.get(4));
+        assertEquals("Handled requestId=7 ok=true", lines.get(5));
+        assertEquals("proc2 {\"proc1\":3, \"proc2\":2}", lines.get(8));
+        assertEquals("Receiving from=proc1", lines.get(9));
+    }
+}
@@ -0,0 +1,88 @@
+import org.github.com.jvec.concurrent.CausalExecutorService;
+import org.github.com.jvec.concurrent.ThreadJVecs;
+import org.github.com.jvec.vclock.VClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CausalExecutorServiceTest {
+    ThreadJVecs jvecs;
+    CausalExecutorService executor;
+    MemoryLogSink sink;
+    String main;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+        jvecs = new ThreadJVecs("", sink);
+        executor = new CausalExecutorService(Executors.newSingleThreadExecutor(r -> new Thread(r, "worker")), jvecs);
+        main = Thread.currentThread().getName();
+    }
+
+    @Test
+    public void submitPropagatesClock() throws Exception {
+        jvecs.current().logLocalEvent("Before submit.");
+        VClock workerClock = executor.submit(new Callable<VClock>() {
+            @Override
+            public VClock call() {
+                return jvecs.current().getVc().copy();
+            }
+        }).get();
+        assertEquals("The submitting clock was not merged!", 3L, workerClock.findTicks(main));
+        assertEquals("The worker did not record a receive event!", 2L, workerClock.findTicks("worker"));
+        VClock submitClock = new VClock();
+        submitClock.set(main, 3);
+        assertTrue(sink.records().contains(main + " " + submitClock.returnVCString() + " Submitting task"));
+        submitClock.set("worker", 2);
+        assertTrue(sink.records().contains("worker " + submitClock.returnVCString() + " Running task"));
+    }
+
+    @Test
+    public void completableFuturePropagatesClock() throws Exception {
+        VClock clock = CompletableFuture.supplyAsync(() -> 1, executor)
+                .thenApplyAsync(i -> i + 1, executor)
+                .thenApplyAsync(i -> jvecs.current().getVc().copy(), executor)
+                .get();
+        // Each of the three stages records at least a receive event on the worker.
+        assertTrue("The asynchronous stages were not ordered!", clock.findTicks("worker") >= 4L);
+        assertTrue("The submitting clock was not merged!", clock.findTicks(main) >= 2L);
+    }
+
+    @Test
+    public void rejectedTasksAreLogged() throws Exception {
+        executor.shutdown();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fail("A rejected task was run!");
+                }
+            });
+            fail("The shut down executor accepted a task!");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        List<String> records = sink.records();
+        VClock clock = new VClock();
+        clock.set(main, 2);
+        assertEquals(main + " " + clock.returnVCString() + " Submitting task", records.get(records.size() - 2));
+        clock.set(main, 3);
+        assertEquals("The rejection was not logged!", main + " " + clock.returnVCString() + " Task rejected",
+                records.get(records.size() - 1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,85 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.vclock.VClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClockDigestTest {
+    MemoryLogSink sink;
+    JVec server;
+    JVec client;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+        server = new JVec("server", sink);
+        client = new JVec("client", sink);
+        for (int i = 0; i < 30; i++) {
+            JVec worker = new JVec("worker" + i, sink);
+            server.unpackReceive("Receiving", worker.prepareSend("Sending", new byte[0]));
+        }
+    }
+
+    /**
+     * Receives "msg" and checks that the clock equals a full merge of "remoteClock".
+     */
+    void receive(JVec receiver, byte[] msg, VClock remoteClock) throws Exception {
+        VClock expected = receiver.getVc().copy();
+        expected.tick(receiver.getPid());
+        expected.merge(remoteClock);
+        receiver.unpackReceive("Receiving", msg);
+        assertEquals("The clock was not merged correctly!", expected.returnVCString(),
+                receiver.getVc().returnVCString());
+    }
+
+    /**
+     * Returns the index after the encoded process id "pid" in "msg".
+     */
+    int find(byte[] msg, String pid) {
+        byte[] key = pid.getBytes();
+        for (int i = 0; i + key.length < msg.length; i++) {
+            boolean found = msg[i] == (byte) (0xa0 | key.length);
+            for (int j = 0; found && j < key.length; j++) {
+                found = msg[i + 1 + j] == key[j];
+            }
+            if (found) return i + 1 + key.length;
+        }
+        return -1;
+    }
+
+    @Test
+    public void requestResponse() throws Exception {
+        byte[] msg = client.prepareSend("Request", new byte[0]);
+        receive(server, msg, client.getVc());
+        msg = server.prepareSend("Response", new byte[0]);
+        assertEquals("A large frontier was sent!", (byte) 0xde, msg[9]);
+        receive(client, msg, server.getVc());
+
+        msg = client.prepareSend("Request", new byte[0]);
+        assertEquals("The digest was not sent!", (byte) 0x93, msg[9]);
+        receive(server, msg, client.getVc());
+
+        msg = server.prepareSend("Response", new byte[0]);
+        assertEquals("The digest was not sent!", (byte) 0x93, msg[9]);
+        VClock serverClock = server.getVc().copy();
+        // A dominated clock is skipped, so changing one of its entries must not matter
+        int slot = find(msg, "worker7");
+        assertEquals((byte) 0xd3, msg[slot]);
+        msg[slot + 1] = 0x7f;
+        receive(client, msg, serverClock);
+    }
+
+    @Test
+    public void externalModification() throws Exception {
+        byte[] msg = client.prepareSend("Request", new byte[0]);
+        receive(server, msg, client.getVc());
+        receive(client, server.prepareSend("Response", new byte[0]), server.getVc());
+        receive(server, client.prepareSend("Request", new byte[0]), client.getVc());
+        server.getVc().set("worker3", 1000);
+        msg = server.prepareSend("Response", new byte[0]);
+        assertEquals("The frontier was not reset!", (byte) 0xde, msg[9]);
+        receive(client, msg, server.getVc());
+        assertEquals(1000, client.getVc().findTicks("worker3"));
+    }
+}
@@ -0,0 +1,136 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.clock.BloomClock;
+import org.github.com.jvec.clock.HybridLogicalClock;
+import org.github.com.jvec.clock.LamportClock;
+import org.github.com.jvec.msgpack.core.MessageTypeException;
+import org.github.com.jvec.vclock.IntervalTreeClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ClockStrategyTest {
+    MemoryLogSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+    }
+
+    @Test
+    public void lamportClock() throws Exception {
+        LamportClock clock1 = new LamportClock();
+        LamportClock clock2 = new LamportClock();
+        JVec proc1 = new JVec("proc1", sink, clock1);
+        JVec proc2 = new JVec("proc2", sink, clock2);
+        proc1.logLocalEvent("Local");
+        proc1.logLocalEvent("Local");
+        byte[] msg = proc1.prepareSend("Sending", "Hello".getBytes());
+        assertEquals("The timestamp does not have a fixed size!",
+                proc1.getPid().length() + 1 + "Hello".length() + 2 + 10, msg.length);
+        assertEquals("Hello", new String(proc2.unpackReceive("Receiving", msg)));
+        assertEquals("The clock did not tick!", 4, clock1.getTime());
+        assertEquals("The receive event is not ordered after the send event!", 5, clock2.getTime());
+        assertEquals("The vector clock was merged!", 1, proc2.getVc().size());
+        assertTrue(sink.records().contains("proc1 {\"proc1\":4} Sending [lamport=4]"));
+        assertTrue(sink.records().contains("proc2 {\"proc2\":2} Receiving [lamport=5]"));
+    }
+
+    @Test
+    public void hybridLogicalClock() throws Exception {
+        final long[] now = {1000};
+        HybridLogicalClock clock1 = new HybridLogicalClock() {
+            @Override
+            protected long physicalTime() {
+                return now[0];
+            }
+        };
+        HybridLogicalClock clock2 = new HybridLogicalClock() {
+            @Override
+            protected long physicalTime() {
+                return now[0] - 500;
+            }
+        };
+        JVec proc1 = new JVec("proc1", sink, clock1);
+        JVec proc2 = new JVec("proc2", sink, clock2);
+        proc1.logLocalEvent("Local");
+        assertEquals("The logical counter did not tick!", 1, clock1.getLogical());
+        now[0] = 2000;
+        byte[] msg = proc1.prepareSend("Sending", new byte[0]);
+        assertEquals(2000, clock1.getWallTime());
+        assertEquals("The logical counter was not reset!", 0, clock1.getLogical());
+        proc2.unpackReceive("Receiving", msg);
+        assertEquals("The receive event is not ordered after the send event!", 2000, clock2.getWallTime());
+        assertEquals("The receive event is not ordered after the send event!", 1, clock2.getLogical());
+        assertTrue(sink.records().contains("proc2 {\"proc2\":2} Receiving [hlc=2000.1]"));
+    }
+
+    @Test
+    public void bloomClock() throws Exception {
+        BloomClock clock1 = new BloomClock("proc1", 64, 3);
+        BloomClock clock2 = new BloomClock("proc2", 64, 3);
+        JVec proc1 = new JVec("proc1", sink, clock1);
+        JVec proc2 = new JVec("proc2", sink, clock2);
+        proc2.logLocalEvent("Local");
+        BloomClock local = clock2.copy();
+        byte[] msg = proc1.prepareSend("Sending", new byte[0]);
+        BloomClock send = clock1.copy();
+        assertEquals("The clocks are not concurrent!", BloomClock.Order.CONCURRENT, send.compare(local));
+        proc2.unpackReceive("Receiving", msg);
+        assertEquals("The send event does not precede the receive event!", BloomClock.Order.BEFORE,
+                send.compare(clock2));
+        assertEquals(BloomClock.Order.AFTER, clock2.compare(local));
+        assertEquals(BloomClock.Order.EQUAL, send.compare(send.copy()));
+        assertTrue(send.falsePositiveRate(clock2) < 0.05);
+
+        long sum = 0;
+        for (int i = 0; i < clock2.getWidth(); i++) {
+            sum += clock2.getCell(i);
+        }
+        assertTrue("The clock is not logged compactly!", clock2.toString().startsWith("bloom=" + sum + "#"));
+        List<String> records = sink.records();
+        assertTrue(records.get(records.size() - 1).endsWith(" Receiving [" + clock2 + "]"));
+        assertEquals(send.toString(), send.copy().toString());
+        assertNotEquals(send.toString(), local.toString());
+        BloomClock wide = new BloomClock("proc3", 4096, 3);
+        wide.tick();
+        assertEquals("The string grows with the width!", "bloom=3#".length(), wide.toString().indexOf('#') + 1);
+        assertTrue(wide.toString().length() <= "bloom=3#12345678".length());
+    }
+
+    @Test
+    public void intervalTreeClock() throws Exception {
+        IntervalTreeClock clock1 = new IntervalTreeClock();
+        IntervalTreeClock clock2 = clock1.fork();
+        JVec proc1 = new JVec("proc1", sink, clock1);
+        JVec proc2 = new JVec("proc2", sink, clock2);
+        byte[] msg = proc1.prepareSend("Sending", new byte[0]);
+        IntervalTreeClock send = clock1.peek();
+        assertTrue("The clocks are not concurrent!", send.isConcurrent(clock2));
+        proc2.unpackReceive("Receiving", msg);
+        assertTrue("The send event does not precede the receive event!", send.leq(clock2));
+        assertFalse(clock2.leq(send));
+        assertTrue(sink.records().contains("proc1 {\"proc1\":2} Sending [itc=((1, 0), (0, 2, 0))]"));
+    }
+
+    @Test(expected = MessageTypeException.class)
+    public void mismatchingBloomClocks() throws Exception {
+        JVec proc1 = new JVec("proc1", sink, new BloomClock("proc1", 64, 3));
+        JVec proc2 = new JVec("proc2", sink, new BloomClock("proc2", 32, 3));
+        proc2.unpackReceive("Receiving", proc1.prepareSend("Sending", new byte[0]));
+    }
+
+    @Test(expected = MessageTypeException.class)
+    public void mismatchingClocks() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        JVec proc2 = new JVec("proc2", sink, new LamportClock());
+        proc2.unpackReceive("Receiving", proc1.prepareSend("Sending", new byte[0]));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void clockHandOver() throws Exception {
+        new JVec("proc1", sink, new LamportClock()).prepareClockSend("Sending");
+    }
+}
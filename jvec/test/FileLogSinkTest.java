@@ -0,0 +1,75 @@
+import org.github.com.jvec.log.FileLogSink;
+import org.github.com.jvec.vclock.VClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class FileLogSinkTest {
+    static final String logName = "fileSinkLog";
+    final File file = new File(logName + "-shiviz.txt");
+    VClock clock;
+
+    @Before
+    public void setUp() throws Exception {
+        file.delete();
+        clock = new VClock();
+        clock.set("proc1", 1);
+    }
+
+    private String readLog() throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+    }
+
+    @Test
+    public void newSinkTruncatesTheFile() throws Exception {
+        FileLogSink first = new FileLogSink(logName);
+        first.append("proc1", clock, "First");
+        assertEquals("proc1 {\"proc1\":1}\nFirst\n", readLog());
+        FileLogSink second = new FileLogSink(logName);
+        assertEquals("The file was not truncated!", "", readLog());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void sinksOfTheSameFileAppend() throws Exception {
+        FileLogSink first = new FileLogSink(logName);
+        FileLogSink second = new FileLogSink(logName);
+        first.append("proc1", clock, "First");
+        second.append("proc2", clock, "Second");
+        first.append("proc1", clock, "Third");
+        first.close();
+        first.append("proc1", clock, "Fourth");
+        first.close();
+        second.close();
+        assertEquals("The records were not appended!",
+                "proc1 {\"proc1\":1}\nFirst\nproc2 {\"proc1\":1}\nSecond\nproc1 {\"proc1\":1}\nThird\n"
+                        + "proc1 {\"proc1\":1}\nFourth\n", readLog());
+    }
+
+    @Test
+    public void largeRecordsAreWrittenWhole() throws Exception {
+        FileLogSink sink = new FileLogSink(logName);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            message.append(i % 10);
+        }
+        sink.append("proc1", clock, "Small");
+        sink.append("proc1", clock, message.toString());
+        sink.append("proc1", clock, "Small");
+        sink.close();
+        assertEquals("proc1 {\"proc1\":1}\nSmall\nproc1 {\"proc1\":1}\n" + message
+                + "\nproc1 {\"proc1\":1}\nSmall\n", readLog());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+}
@@ -0,0 +1,122 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.log.FlightRecorderSink;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FlightRecorderSinkTest {
+    static String logName = "flightLog";
+    FlightRecorderSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new FlightRecorderSink(logName, 4, 64);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sink.close();
+        new File(logName + "-shiviz.txt").delete();
+    }
+
+    private List<String> readLines(String fileName) throws Exception {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        return lines;
+    }
+
+    @Test
+    public void keepsMostRecentRecords() throws Exception {
+        JVec proc = new JVec("proc1", sink);
+        for (int i = 0; i < 6; i++) {
+            proc.logLocalEvent("Event " + i);
+        }
+        assertFalse("The flight recorder wrote a file before being dumped!",
+                new File(logName + "-shiviz.txt").exists());
+        assertEquals(4, sink.getRecordCount());
+        assertEquals(3, sink.getDroppedCount());
+
+        sink.dump();
+        List<String> lines = readLines(logName + "-shiviz.txt");
+        assertEquals("The dump does not contain the most recent records!", 8, lines.size());
+        assertEquals("proc1 {\"proc1\":4}", lines.get(0));
+        assertEquals("Event 2", lines.get(1));
+        assertEquals("proc1 {\"proc1\":7}", lines.get(6));
+        assertEquals("Event 5", lines.get(7));
+    }
+
+    @Test
+    public void cutsLongRecords() throws Exception {
+        JVec proc = new JVec("proc1", sink);
+        StringBuilder longMsg = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longMsg.append('\u00e9');
+        }
+        proc.logLocalEvent(longMsg.toString());
+        proc.logLocalEvent("Short");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sink.dump(out);
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(6, lines.length);
+        assertTrue("The long record was not cut!", lines[3].length() < longMsg.length());
+        assertTrue(longMsg.toString().startsWith(lines[3]));
+        assertEquals("proc1 {\"proc1\":3}", lines[4]);
+        assertEquals("Short", lines[5]);
+    }
+
+    @Test
+    public void growsSlotsForLargeClocks() throws Exception {
+        JVec proc = new JVec("proc1", sink);
+        proc.logLocalEvent("Small clock");
+        for (int i = 0; i < 30; i++) {
+            proc.getVc().set("worker" + i, i + 1);
+        }
+        proc.logLocalEvent("Large clock");
+        proc.logLocalEvent("Large clock again");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sink.dump(out);
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals("The records lost their pairing!", 8, lines.length);
+        assertEquals("Small clock", lines[3]);
+        assertEquals("The clock line was cut!", "proc1 " + proc.getVc().returnVCString(), lines[6]);
+        assertEquals("Large clock again", lines[7]);
+        assertTrue("The clock line was cut!", lines[4].endsWith("\"worker9\":10}"));
+        assertEquals("Large clock", lines[5]);
+    }
+
+    @Test
+    public void dumpsThroughJmx() throws Exception {
+        JVec proc = new JVec("proc1", sink);
+        proc.logLocalEvent("Recorded");
+        sink.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.github.com.jvec:type=FlightRecorderSink,name=\"" + logName + "\"");
+        assertEquals(2, server.getAttribute(name, "RecordCount"));
+        server.invoke(name, "dump", new Object[0], new String[0]);
+        List<String> lines = readLines(logName + "-shiviz.txt");
+        assertEquals("Recorded", lines.get(3));
+
+        sink.close();
+        assertFalse("Closing the sink did not unregister it!", server.isRegistered(name));
+    }
+}
@@ -0,0 +1,108 @@
+import org.github.com.jvec.FrameParser;
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.clock.LamportClock;
+import org.github.com.jvec.msgpack.core.MessageSizeException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrameParserTest {
+    final List<byte[]> frames = new ArrayList<>();
+    MemoryLogSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+    }
+
+    private FrameParser newParser() {
+        return new FrameParser(new FrameParser.FrameHandler() {
+            @Override
+            public void onFrame(byte[] frame) {
+                frames.add(frame);
+            }
+        });
+    }
+
+    @Test
+    public void framesSplitAtEveryByte() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        for (int i = 0; i < 20; i++) {
+            proc1.getVc().set("worker" + i, i + 1);
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        List<byte[]> sent = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            byte[] msg = proc1.prepareSend("Sending", new byte[i * 100]);
+            sent.add(msg);
+            stream.write(msg);
+        }
+        byte[] bytes = stream.toByteArray();
+        FrameParser parser = newParser();
+        for (int i = 0; i < bytes.length; i++) {
+            parser.feed(bytes, i, 1);
+        }
+        assertEquals("Not every frame was found!", sent.size(), frames.size());
+        for (int i = 0; i < sent.size(); i++) {
+            assertArrayEquals("The frame was not split at its boundary!", sent.get(i), frames.get(i));
+        }
+        assertEquals("Bytes were left over after the last frame!", 0, parser.getBufferedSize());
+
+        JVec proc2 = new JVec("proc2", sink);
+        for (byte[] frame : frames) {
+            proc2.unpackReceive("Receiving", frame);
+        }
+        assertEquals("The clock of the frames was not merged!", 20, proc2.getVc().findTicks("worker19"));
+    }
+
+    @Test
+    public void framesInRandomChunks() throws Exception {
+        JVec proc1 = new JVec("proc1", sink, new LamportClock());
+        JVec proc2 = new JVec("proc2", sink);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            stream.write(proc1.prepareSend("Sending", ("lamport" + i).getBytes()));
+            stream.write(proc2.prepareSend("Sending", ("vector" + i).getBytes()));
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(stream.toByteArray());
+        FrameParser parser = newParser();
+        Random random = new Random(42);
+        while (bytes.hasRemaining()) {
+            ByteBuffer chunk = bytes.slice();
+            chunk.limit(Math.min(chunk.remaining(), 1 + random.nextInt(64)));
+            bytes.position(bytes.position() + chunk.remaining());
+            parser.feed(chunk);
+            assertFalse("The chunk was not consumed!", chunk.hasRemaining());
+        }
+        assertEquals("Not every frame was found!", 100, frames.size());
+        assertEquals("The frames were not found in order!", "vector49",
+                new String(new JVec("proc3", sink).unpackReceive("Receiving", frames.get(99))));
+    }
+
+    @Test
+    public void oversizedFrameIsRejected() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        byte[] msg = proc1.prepareSend("Sending", new byte[4096]);
+        FrameParser parser = new FrameParser(new FrameParser.FrameHandler() {
+            @Override
+            public void onFrame(byte[] frame) {
+                frames.add(frame);
+            }
+        }, 1024);
+        try {
+            parser.feed(msg, 0, 16);
+            fail("The oversized payload was accepted!");
+        } catch (MessageSizeException expected) {
+        }
+        parser.reset();
+        parser.feed(ByteBuffer.wrap(proc1.prepareSend("Sending", new byte[10])));
+        assertEquals("The parser did not recover after reset!", 1, frames.size());
+    }
+}
@@ -0,0 +1,85 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.jfr.JfrEvents;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JfrEventsTest {
+    JVec proc1;
+    JVec proc2;
+
+    @Before
+    public void setUp() throws Exception {
+        MemoryLogSink sink = new MemoryLogSink();
+        proc1 = new JVec("proc1", sink);
+        proc2 = new JVec("proc2", sink);
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        assertTrue(JfrEvents.isAvailable());
+        assertNull("An event was started without a recording!", JfrEvents.begin(JfrEvents.SEND));
+        Recording recording = new Recording();
+        recording.start();
+        try {
+            assertNull("An event was started without being enabled!", JfrEvents.begin(JfrEvents.SEND));
+        } finally {
+            recording.close();
+        }
+    }
+
+    @Test
+    public void recordsOperations() throws Exception {
+        File file = File.createTempFile("jvec", ".jfr");
+        List<RecordedEvent> events = new ArrayList<>();
+        try {
+            Recording recording = new Recording();
+            recording.enable("org.github.com.jvec.Local");
+            recording.enable("org.github.com.jvec.Send");
+            recording.enable("org.github.com.jvec.Receive");
+            recording.start();
+            proc1.logLocalEvent("Local");
+            byte[] msg = proc1.prepareSend("Sending", new byte[]{1, 2, 3});
+            proc2.unpackReceive("Receiving", msg);
+            recording.stop();
+            recording.dump(file.toPath());
+            recording.close();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+                if (event.getEventType().getName().startsWith("org.github.com.jvec.")) {
+                    events.add(event);
+                }
+            }
+
+            assertEquals(3, events.size());
+            RecordedEvent send = null;
+            RecordedEvent receive = null;
+            for (RecordedEvent event : events) {
+                if (event.getEventType().getName().equals("org.github.com.jvec.Send")) {
+                    send = event;
+                } else if (event.getEventType().getName().equals("org.github.com.jvec.Receive")) {
+                    receive = event;
+                }
+            }
+            assertNotNull(send);
+            assertEquals("proc1", send.getString("pid"));
+            assertEquals(3, send.getLong("ticks"));
+            assertEquals(1, send.getInt("clockSize"));
+            assertEquals(msg.length, send.getInt("encodedBytes"));
+            assertNotNull(receive);
+            assertEquals("proc2", receive.getString("pid"));
+            assertEquals(2, receive.getLong("ticks"));
+            assertEquals(2, receive.getInt("clockSize"));
+            assertEquals(msg.length, receive.getInt("encodedBytes"));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.log.LogMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogMessageTest {
+    MemoryLogSink sink;
+    JVec proc;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+        proc = new JVec("proc1", sink);
+    }
+
+    @Test
+    public void templates() throws Exception {
+        assertEquals("Sent 42 bytes to proc2", LogMessage.of("Sent {} bytes to {}", 42, "proc2").toString());
+        assertEquals("Sent 42 bytes to {}", LogMessage.of("Sent {} bytes to {}", 42L).toString());
+        assertEquals("Sent 42 bytes to 7", LogMessage.of("Sent {} bytes to {}", 42L, 7L).toString());
+        assertEquals("No placeholder", LogMessage.of("No placeholder", 1L, 2L).toString());
+        assertEquals("Extra 1", LogMessage.of("Extra {}", 1, 2).toString());
+        assertEquals("Supplied", LogMessage.of(() -> "Supplied").toString());
+    }
+
+    @Test
+    public void deferredMessages() throws Exception {
+        proc.logLocalEventDeferred(LogMessage.of("Local {}", 1L));
+        byte[] msg = proc.prepareSendDeferred(LogMessage.of(() -> "Sending"), new byte[0]);
+        proc.unpackReceiveDeferred(LogMessage.of("Receiving from {}", "proc1"), msg);
+        assertEquals("proc1 {\"proc1\":2} Local 1", sink.records().get(1));
+        assertEquals("proc1 {\"proc1\":3} Sending", sink.records().get(2));
+        assertEquals("proc1 {\"proc1\":4} Receiving from proc1", sink.records().get(3));
+    }
+
+    @Test
+    public void disabledLoggingSkipsFormatting() throws Exception {
+        proc.disableLogging();
+        proc.logLocalEventDeferred(LogMessage.of(() -> {
+            fail("The message of a disabled log was formatted!");
+            return null;
+        }));
+        assertEquals("The clock did not tick!", 2, proc.getVc().findTicks("proc1"));
+    }
+
+    @Test
+    public void nullMessagesAreUnambiguous() throws Exception {
+        proc.logLocalEvent(null);
+        byte[] msg = proc.prepareSend(null, new byte[0]);
+        proc.unpackReceive(null, msg);
+        assertEquals("proc1 {\"proc1\":2} null", sink.records().get(1));
+        assertEquals("proc1 {\"proc1\":4} null", sink.records().get(3));
+    }
+}
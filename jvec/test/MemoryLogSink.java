@@ -0,0 +1,37 @@
+import org.github.com.jvec.log.LogSink;
+import org.github.com.jvec.vclock.VClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A LogSink that keeps the records of a test in memory, each as a single
+ * line "pid {clock} logMsg".
+ */
+class MemoryLogSink implements LogSink {
+    private final List<String> records = new ArrayList<>();
+
+    @Override
+    public synchronized void append(String pid, VClock clock, String logMsg) {
+        records.add(pid + " " + clock.returnVCString() + " " + logMsg);
+    }
+
+    /**
+     * Returns a copy of the records logged so far.
+     */
+    public synchronized List<String> records() {
+        return new ArrayList<>(records);
+    }
+
+    public synchronized void clear() {
+        records.clear();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,152 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.log.LogMessage;
+import org.github.com.jvec.log.SharedLogSink;
+import org.github.com.jvec.vclock.VClock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SharedLogSinkTest {
+    static String logName = "sharedLog";
+    SharedLogSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new SharedLogSink(logName);
+    }
+
+    private List<String> readLines(String fileName) throws Exception {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        return lines;
+    }
+
+    @Test
+    public void multiplexesInstances() throws Exception {
+        JVec proc1 = new JVec("proc1", sink);
+        JVec proc2 = new JVec("proc2", sink);
+        assertFalse("Registering an instance created a file of its own!", new File("proc1-shiviz.txt").exists());
+        byte[] msg = proc1.prepareSend("Sending.", "Test".getBytes());
+        proc2.unpackReceive("Receiving.", msg);
+        sink.flush();
+
+        List<String> lines = readLines(logName + "-shiviz.txt");
+        assertEquals("The shared log does not contain all records!", 8, lines.size());
+        assertEquals("proc1 {\"proc1\":1}", lines.get(0));
+        assertEquals("Initialization Complete", lines.get(1));
+        assertEquals("proc2 {\"proc2\":1}", lines.get(2));
+        assertEquals("proc1 {\"proc1\":2}", lines.get(4));
+        assertEquals("Sending.", lines.get(5));
+        assertEquals("proc2 {\"proc1\":2, \"proc2\":2}", lines.get(6));
+        assertEquals("Receiving.", lines.get(7));
+    }
+
+    @Test
+    public void deferredMessagesKeepOrder() throws Exception {
+        final List<String> formattingThreads = new ArrayList<>();
+        JVec proc = new JVec("proc1", sink);
+        proc.logLocalEvent("First");
+        proc.logLocalEventDeferred(LogMessage.of("Second {} of {}", 2, "four"));
+        proc.logLocalEvent("Third");
+        proc.logLocalEventDeferred(LogMessage.of(() -> {
+            formattingThreads.add(Thread.currentThread().getName());
+            return "Fourth";
+        }));
+        assertTrue("The message was formatted by the logging thread!", formattingThreads.isEmpty());
+        sink.close();
+
+        List<String> lines = readLines(logName + "-shiviz.txt");
+        assertEquals("The shared log does not contain all records!", 10, lines.size());
+        assertEquals("First", lines.get(3));
+        assertEquals("proc1 {\"proc1\":3}", lines.get(4));
+        assertEquals("Second 2 of four", lines.get(5));
+        assertEquals("Third", lines.get(7));
+        assertEquals("proc1 {\"proc1\":5}", lines.get(8));
+        assertEquals("Fourth", lines.get(9));
+        assertEquals(1, formattingThreads.size());
+    }
+
+    @Test
+    public void closeWritesPendingRecords() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            new JVec("proc" + i, sink).logLocalEvent("Local event.");
+        }
+        sink.close();
+        assertEquals("Closing the sink lost records!", 400, readLines(logName + "-shiviz.txt").size());
+    }
+
+    @Test
+    public void appendsRacingCloseAreWrittenOrRejected() throws Exception {
+        final VClock clock = new VClock();
+        clock.tick("proc1");
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final String pid = "proc" + t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            sink.append(pid, clock, "Local event.");
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        // The sink was closed
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        Thread.sleep(20);
+        sink.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("An accepted record was dropped!", accepted.get() * 2,
+                readLines(logName + "-shiviz.txt").size());
+    }
+
+    @Test
+    public void spreadsProcessesOverFiles() throws Exception {
+        sink.close();
+        sink = new SharedLogSink(logName, 2);
+        JVec proc = new JVec("proc1", sink);
+        proc.logLocalEvent("Local event.");
+        proc.closeJVectorLog();
+        int records = 0;
+        for (int i = 0; i < 2; i++) {
+            File file = new File(logName + "-" + i + "-shiviz.txt");
+            assertTrue("Creating the file failed!", file.exists());
+            records += readLines(file.getName()).size();
+            file.delete();
+        }
+        assertEquals("The records of a process were not written!", 4, records);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sink.close();
+        new File(logName + "-shiviz.txt").delete();
+    }
+}
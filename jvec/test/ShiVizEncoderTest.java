@@ -0,0 +1,60 @@
+import org.github.com.jvec.log.ShiVizEncoder;
+import org.github.com.jvec.vclock.VClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ShiVizEncoderTest {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    ShiVizEncoder encoder;
+    VClock clock;
+
+    @Before
+    public void setUp() throws Exception {
+        encoder = new ShiVizEncoder(16);
+        clock = new VClock();
+        clock.set("proc1", 1);
+        clock.set("proc2", 1234567890123L);
+        clock.set("proc3", 10);
+    }
+
+    String expected(String pid, VClock clock, String logMsg) {
+        return pid + " " + clock.returnVCString() + "\n" + logMsg + "\n";
+    }
+
+    String encoded() {
+        return new String(Arrays.copyOf(encoder.array(), encoder.length()), UTF8);
+    }
+
+    @Test
+    public void encodeAscii() throws Exception {
+        encoder.encode("proc1", clock, "Sending Message");
+        assertEquals("The record was not encoded correctly!", expected("proc1", clock, "Sending Message"), encoded());
+    }
+
+    @Test
+    public void encodeUnicode() throws Exception {
+        clock.set("pr\u00f6c", 7);
+        String logMsg = "Gr\u00fc\u00dfe \u20ac \ud83d\ude00 done";
+        encoder.encode("pr\u00f6c", clock, logMsg);
+        assertArrayEquals("The record was not encoded as UTF-8!", expected("pr\u00f6c", clock, logMsg).getBytes(UTF8),
+                Arrays.copyOf(encoder.array(), encoder.length()));
+    }
+
+    @Test
+    public void appendAndReset() throws Exception {
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            encoder.encode("proc1", clock, "Event " + i);
+            records.append(expected("proc1", clock, "Event " + i));
+        }
+        assertEquals("The records were not appended!", records.toString(), encoded());
+        encoder.reset();
+        encoder.encode("proc1", new VClock(), "");
+        assertEquals("proc1 {}\n\n", encoded());
+    }
+}
@@ -0,0 +1,69 @@
+import org.github.com.jvec.JVec;
+import org.github.com.jvec.vclock.VClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WireClockTest {
+    MemoryLogSink sink;
+    JVec proc1;
+    JVec proc2;
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new MemoryLogSink();
+        proc1 = new JVec("proc1", sink);
+        proc2 = new JVec("proc2", sink);
+        for (int i = 0; i < 30; i++) {
+            proc1.getVc().set("worker" + i, i + 1);
+        }
+    }
+
+    /**
+     * Checks that a receiver of "msg" learns the current clock of proc1.
+     */
+    void assertReceivesClock(byte[] msg) throws Exception {
+        JVec receiver = new JVec("receiver", sink);
+        receiver.unpackReceive("Receiving", msg);
+        VClock clock = receiver.getVc();
+        assertEquals("The clock has the wrong size!", proc1.getVc().size() + 1, clock.size());
+        for (VClock.Cursor entry = proc1.getVc().cursor(); entry.next(); ) {
+            assertEquals("The clock has the wrong entry!", entry.ticks(), clock.findTicks(entry.pid()));
+        }
+    }
+
+    @Test
+    public void cachedClockFollowsTicks() throws Exception {
+        byte[] first = proc1.prepareSend("Sending", new byte[0]);
+        assertReceivesClock(first);
+        for (int i = 0; i < 200; i++) {
+            proc1.logLocalEvent("Local");
+        }
+        byte[] second = proc1.prepareSend("Sending", new byte[0]);
+        assertEquals("The time values are not fixed-width!", first.length, second.length);
+        assertReceivesClock(second);
+    }
+
+    @Test
+    public void cachedClockFollowsMerges() throws Exception {
+        proc1.prepareSend("Sending", new byte[0]);
+        proc2.getVc().set("worker3", 100);
+        proc1.unpackReceive("Receiving", proc2.prepareSend("Sending", new byte[0]));
+        assertEquals(100, proc1.getVc().findTicks("worker3"));
+        byte[] msg = proc1.prepareSend("Sending", new byte[0]);
+        assertReceivesClock(msg);
+    }
+
+    @Test
+    public void cachedClockFollowsModifications() throws Exception {
+        proc1.prepareSend("Sending", new byte[0]);
+        proc1.getVc().set("worker5", 1000);
+        proc1.getVc().getClockMap().put("worker6", 2000L);
+        byte[] msg = proc1.prepareSend("Sending", new byte[0]);
+        assertReceivesClock(msg);
+        proc1.getVc().getClockMap().put("worker7", 3000L);
+        msg = proc1.prepareSend("Sending", new byte[0]);
+        assertReceivesClock(msg);
+    }
+}
@@ -0,0 +1,80 @@
+package org.github.com.jvec.msgpack.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MessageStreamParserTest {
+    final List<byte[]> messages = new ArrayList<>();
+
+    private MessageStreamParser newParser(int maxDepth) {
+        return new MessageStreamParser(new MessageStreamParser.MessageHandler() {
+            @Override
+            public void onMessage(byte[] buffer, int offset, int length) {
+                messages.add(Arrays.copyOfRange(buffer, offset, offset + length));
+            }
+        }, MessageStreamParser.SINGLE_VALUE, 1024 * 1024, maxDepth);
+    }
+
+    private static byte[] nested(int depth) {
+        byte[] value = new byte[depth + 1];
+        // fixarrays of one element around a nil
+        Arrays.fill(value, 0, depth, (byte) 0x91);
+        value[depth] = (byte) 0xc0;
+        return value;
+    }
+
+    @Test
+    public void nestingUpToTheMaximumDepth() throws Exception {
+        MessageStreamParser parser = newParser(64);
+        byte[] value = nested(64);
+        for (byte b : value) {
+            parser.feed(new byte[] {b}, 0, 1);
+        }
+        assertEquals(1, messages.size());
+        assertArrayEquals(value, messages.get(0));
+        assertEquals(0, parser.getBufferedSize());
+    }
+
+    @Test
+    public void deeperNestingIsRejected() throws Exception {
+        MessageStreamParser parser = newParser(64);
+        try {
+            parser.feed(nested(65), 0, 65);
+            fail("A value nested deeper than the maximum depth was accepted!");
+        }
+        catch (MessageFormatException e) {
+            // expected
+        }
+        assertTrue(messages.isEmpty());
+
+        parser.reset();
+        parser.feed(new byte[] {(byte) 0x92, 1, 2}, 0, 3);
+        assertEquals("The parser did not recover after a reset!", 1, messages.size());
+    }
+
+    @Test
+    public void defaultDepthIsBounded() throws Exception {
+        MessageStreamParser parser = new MessageStreamParser(new MessageStreamParser.MessageHandler() {
+            @Override
+            public void onMessage(byte[] buffer, int offset, int length) {
+                fail("An endless nesting completed!");
+            }
+        });
+        byte[] arrays = new byte[4096];
+        Arrays.fill(arrays, (byte) 0x91);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                parser.feed(arrays, 0, arrays.length);
+            }
+            fail("Nested arrays were accepted without bounds!");
+        }
+        catch (MessageFormatException e) {
+            // expected
+        }
+    }
+}
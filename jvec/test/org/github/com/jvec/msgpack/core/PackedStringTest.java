@@ -0,0 +1,97 @@
+package org.github.com.jvec.msgpack.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PackedStringTest {
+
+    private static byte[] packString(MessagePack.PackerConfig config, String s) throws Exception {
+        MessageBufferPacker packer = config.newBufferPacker();
+        packer.packString(s);
+        return packer.toByteArray();
+    }
+
+    private static byte[] packPacked(MessagePack.PackerConfig config, String s) throws Exception {
+        MessageBufferPacker packer = config.newBufferPacker();
+        packer.packString(PackedString.of(s));
+        return packer.toByteArray();
+    }
+
+    private static String repeat(char c, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void sameBytesAsPackStringBelowTheThreshold() throws Exception {
+        MessagePack.PackerConfig config = new MessagePack.PackerConfig();
+        for (String s : new String[] {"", "proc1", "pr\u00f6c", repeat('x', 31), repeat('x', 32), repeat('x', 255),
+                repeat('x', 256), repeat('\u00e9', 200)}) {
+            assertArrayEquals("PackedString wrote other bytes than packString for length " + s.length() + "!",
+                    packString(config, s), packPacked(config, s));
+        }
+    }
+
+    @Test
+    public void shortestHeaderAboveTheThreshold() throws Exception {
+        MessagePack.PackerConfig config = new MessagePack.PackerConfig().withSmallStringOptimizationThreshold(4);
+        String s = "hello world!";
+        byte[] encoded = packString(config, s);
+        byte[] packed = packPacked(config, s);
+        assertEquals("packString did not use the encoder path!", MessagePack.Code.STR8, encoded[0]);
+        assertEquals("PackedString did not use the shortest header!", (byte) (MessagePack.Code.FIXSTR_PREFIX | 12), packed[0]);
+        assertEquals(s, MessagePack.newDefaultUnpacker(encoded).unpackString());
+        assertEquals(s, MessagePack.newDefaultUnpacker(packed).unpackString());
+    }
+
+    @Test
+    public void str8FormatSupportDisabled() throws Exception {
+        MessagePack.PackerConfig config = new MessagePack.PackerConfig().withStr8FormatSupport(false);
+        String s = repeat('x', 40);
+        byte[] packed = packPacked(config, s);
+        assertEquals("The str8 header was not replaced!", MessagePack.Code.STR16, packed[0]);
+        assertArrayEquals(packString(config, s), packed);
+        assertArrayEquals("The shared encoding was modified!", packString(new MessagePack.PackerConfig(), s),
+                packPacked(new MessagePack.PackerConfig(), s));
+    }
+
+    @Test
+    public void largeStringsBypassTheBuffer() throws Exception {
+        MessagePack.PackerConfig config = new MessagePack.PackerConfig().withBufferFlushThreshold(64);
+        String s = repeat('y', 1000);
+        MessageBufferPacker packer = config.newBufferPacker();
+        packer.packString("before");
+        packer.packString(PackedString.of(s));
+        packer.packString("after");
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(packer.toByteArray());
+        assertEquals("before", unpacker.unpackString());
+        assertEquals(s, unpacker.unpackString());
+        assertEquals("after", unpacker.unpackString());
+    }
+
+    @Test
+    public void cachedStringsMatchPackString() throws Exception {
+        MessagePack.PackerConfig cached = new MessagePack.PackerConfig().withStringCacheSize(4);
+        MessageBufferPacker packer = cached.newBufferPacker();
+        MessageBufferPacker plain = MessagePack.newDefaultBufferPacker();
+        String[] strings = {"proc1", "proc2", "proc1", "pr\u00f6c", "proc1", "pr\u00f6c"};
+        for (String s : strings) {
+            packer.packString(s);
+            plain.packString(s);
+        }
+        assertArrayEquals("The string cache changed the encoding!", plain.toByteArray(), packer.toByteArray());
+    }
+
+    @Test
+    public void equalsAndToString() throws Exception {
+        assertEquals(PackedString.of("proc1"), PackedString.of("proc1"));
+        assertEquals(PackedString.of("proc1").hashCode(), PackedString.of("proc1").hashCode());
+        assertNotEquals(PackedString.of("proc1"), PackedString.of("proc2"));
+        assertEquals("proc1", PackedString.of("proc1").toString());
+        assertEquals(6, PackedString.of("proc1").getEncodedSize());
+    }
+}
@@ -0,0 +1,209 @@
+package org.github.com.jvec.msgpack.core;
+
+import org.github.com.jvec.msgpack.value.ArrayValue;
+import org.github.com.jvec.msgpack.value.Value;
+import org.github.com.jvec.msgpack.value.impl.ImmutableDoubleArrayValueImpl;
+import org.github.com.jvec.msgpack.value.impl.ImmutableLongArrayValueImpl;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import static org.github.com.jvec.msgpack.value.ValueFactory.*;
+import static org.junit.Assert.*;
+
+public class PrimitiveArrayTest {
+    // Small buffers make the packer flush and the unpacker refill in the middle of the arrays
+    static final MessagePack.PackerConfig PACKER = new MessagePack.PackerConfig().withBufferSize(64);
+    static final MessagePack.UnpackerConfig UNPACKER = new MessagePack.UnpackerConfig().withBufferSize(64);
+
+    private static long[] longs(int n) {
+        Random random = new Random(42);
+        long[] values = new long[n];
+        long[] samples = {0, 1, -1, 127, 128, -32, -33, 255, 256, 65535, 65536, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, 1L << 32, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (int i = 0; i < n; i++) {
+            values[i] = i % 3 == 0 ? samples[i % samples.length] : random.nextLong() >> random.nextInt(64);
+        }
+        return values;
+    }
+
+    private static int[] ints(int n) {
+        long[] longs = longs(n);
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = (int) longs[i];
+        }
+        return values;
+    }
+
+    private static double[] doubles(int n) {
+        Random random = new Random(42);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i % 7 == 0 ? Double.NaN : random.nextGaussian() * i;
+        }
+        return values;
+    }
+
+    @Test
+    public void bulkPackingMatchesSingleValues() throws Exception {
+        long[] longs = longs(2000);
+        int[] ints = ints(2000);
+        double[] doubles = doubles(2000);
+
+        MessageBufferPacker bulk = PACKER.newBufferPacker();
+        bulk.packLongArray(longs, 0, longs.length);
+        bulk.packLongArray(longs, 10, 5);
+        bulk.packIntArray(ints, 0, ints.length);
+        bulk.packDoubleArray(doubles, 100, 1000);
+
+        MessageBufferPacker single = MessagePack.newDefaultBufferPacker();
+        single.packArrayHeader(longs.length);
+        for (long v : longs) {
+            single.packLong(v);
+        }
+        single.packArrayHeader(5);
+        for (int i = 10; i < 15; i++) {
+            single.packLong(longs[i]);
+        }
+        single.packArrayHeader(ints.length);
+        for (int v : ints) {
+            single.packInt(v);
+        }
+        single.packArrayHeader(1000);
+        for (int i = 100; i < 1100; i++) {
+            single.packDouble(doubles[i]);
+        }
+        assertArrayEquals("The bulk methods wrote other bytes!", single.toByteArray(), bulk.toByteArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void packRangeOutOfBounds() throws Exception {
+        MessagePack.newDefaultBufferPacker().packLongArray(new long[4], 2, 3);
+    }
+
+    @Test
+    public void bulkUnpacking() throws Exception {
+        long[] longs = longs(2000);
+        int[] ints = ints(2000);
+        double[] doubles = doubles(2000);
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        for (int i = 0; i < 2; i++) {
+            packer.packLongArray(longs, 0, longs.length);
+            packer.packIntArray(ints, 0, ints.length);
+            packer.packDoubleArray(doubles, 0, doubles.length);
+        }
+        byte[] encoded = packer.toByteArray();
+
+        for (MessageUnpacker unpacker : new MessageUnpacker[] {MessagePack.newDefaultUnpacker(encoded),
+                UNPACKER.newUnpacker(new ByteArrayInputStream(encoded))}) {
+            assertArrayEquals(longs, unpacker.unpackLongArray());
+            assertArrayEquals(ints, unpacker.unpackIntArray());
+            assertArrayEquals(doubles, unpacker.unpackDoubleArray(), 0);
+
+            long[] longDst = new long[2100];
+            assertEquals(2000, unpacker.unpackLongArray(longDst));
+            assertEquals(longs[1999], longDst[1999]);
+            assertEquals(0, longDst[2000]);
+            int[] intDst = new int[2000];
+            assertEquals(2000, unpacker.unpackIntArray(intDst));
+            assertArrayEquals(ints, intDst);
+            double[] doubleDst = new double[2000];
+            assertEquals(2000, unpacker.unpackDoubleArray(doubleDst));
+            assertArrayEquals(doubles, doubleDst, 0);
+            assertFalse(unpacker.hasNext());
+        }
+    }
+
+    @Test
+    public void unpackingChecksSizesAndRanges() throws Exception {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packLongArray(new long[] {1, 2, 3}, 0, 3);
+        packer.packLongArray(new long[] {1, 1L << 40}, 0, 2);
+        packer.packArrayHeader(1);
+        packer.packString("1");
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(packer.toByteArray());
+        try {
+            unpacker.unpackLongArray(new long[2]);
+            fail("An array larger than the destination was read!");
+        }
+        catch (MessageSizeException e) {
+            // expected
+        }
+        unpacker = MessagePack.newDefaultUnpacker(packer.toByteArray());
+        unpacker.skipValue();
+        try {
+            unpacker.unpackIntArray();
+            fail("A value out of the range of int was read!");
+        }
+        catch (MessageIntegerOverflowException e) {
+            // expected
+        }
+        unpacker = MessagePack.newDefaultUnpacker(packer.toByteArray());
+        unpacker.skipValue();
+        unpacker.skipValue();
+        try {
+            unpacker.unpackLongArray();
+            fail("A string was read as an Integer value!");
+        }
+        catch (MessageTypeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void primitiveArrayValues() throws Exception {
+        long[] longs = longs(100);
+        int[] ints = ints(100);
+        double[] doubles = {0.5, -1.25, 3e100, Double.MAX_VALUE};
+        Value[] longValues = new Value[longs.length];
+        for (int i = 0; i < longs.length; i++) {
+            longValues[i] = newInteger(longs[i]);
+        }
+        Value[] intValues = new Value[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            intValues[i] = newInteger(ints[i]);
+        }
+        Value[] doubleValues = new Value[doubles.length];
+        for (int i = 0; i < doubles.length; i++) {
+            doubleValues[i] = newFloat(doubles[i]);
+        }
+        assertPrimitiveArray(newArray(longs), newArray(longValues));
+        assertPrimitiveArray(newArray(longs, true), newArray(longValues));
+        assertPrimitiveArray(newArray(ints), newArray(intValues));
+        assertPrimitiveArray(newArray(doubles), newArray(doubleValues));
+        assertPrimitiveArray(newArray(doubles, true), newArray(doubleValues));
+
+        assertTrue("The int array is not long-backed!", newArray(ints) instanceof ImmutableLongArrayValueImpl);
+        ImmutableLongArrayValueImpl longArray = (ImmutableLongArrayValueImpl) newArray(longs);
+        assertEquals(longs[42], longArray.getLong(42));
+        assertArrayEquals(longs, longArray.toLongArray());
+        ImmutableDoubleArrayValueImpl doubleArray = (ImmutableDoubleArrayValueImpl) newArray(doubles);
+        assertEquals(doubles[2], doubleArray.getDouble(2), 0);
+
+        long[] source = {1, 2, 3};
+        ArrayValue copied = newArray(source);
+        source[0] = 7;
+        assertEquals("The array was not copied!", 1, copied.get(0).asIntegerValue().asLong());
+    }
+
+    private static void assertPrimitiveArray(ArrayValue primitive, ArrayValue boxed) throws Exception {
+        assertEquals("The primitive array differs from the boxed one!", boxed, primitive);
+        assertEquals("The boxed array differs from the primitive one!", primitive, boxed);
+        assertEquals("The hash codes differ!", boxed.hashCode(), primitive.hashCode());
+        assertEquals("The JSON differs!", boxed.toJson(), primitive.toJson());
+        assertEquals("The string differs!", boxed.toString(), primitive.toString());
+        assertEquals(boxed.size(), primitive.size());
+        assertEquals(boxed.list(), primitive.list());
+
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packValue(primitive);
+        MessageBufferPacker expected = MessagePack.newDefaultBufferPacker();
+        packer.packValue(boxed);
+        expected.packValue(boxed);
+        expected.packValue(boxed);
+        assertArrayEquals("The primitive array was not packed like the boxed one!",
+                expected.toByteArray(), packer.toByteArray());
+    }
+}
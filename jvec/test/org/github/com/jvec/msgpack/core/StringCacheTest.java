@@ -0,0 +1,89 @@
+package org.github.com.jvec.msgpack.core;
+
+import org.github.com.jvec.msgpack.core.buffer.ArrayBufferInput;
+import org.github.com.jvec.msgpack.core.buffer.MessageBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StringCacheTest {
+
+    private static byte[] pack(String... strings) throws Exception {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        for (String s : strings) {
+            packer.packString(s);
+        }
+        return packer.toByteArray();
+    }
+
+    private static MessageUnpacker newUnpacker(int cacheSize, byte[] encoded) {
+        return new MessagePack.UnpackerConfig().withStringCacheSize(cacheSize).newUnpacker(encoded);
+    }
+
+    @Test
+    public void recurringStringsAreShared() throws Exception {
+        MessageUnpacker unpacker = newUnpacker(16, pack("proc1", "proc2", "proc1", "pr\u00f6c", "pr\u00f6c"));
+        String first = unpacker.unpackString();
+        String second = unpacker.unpackString();
+        assertSame("The cached string was not returned!", first, unpacker.unpackString());
+        assertEquals("proc2", second);
+        String unicode = unpacker.unpackString();
+        assertEquals("pr\u00f6c", unicode);
+        assertSame("The cached string was not returned!", unicode, unpacker.unpackString());
+    }
+
+    @Test
+    public void collidingStringsEvictEachOther() throws Exception {
+        // A cache of a single slot maps every string to the same slot
+        MessageUnpacker unpacker = newUnpacker(1, pack("proc1", "proc2", "proc1", "proc1"));
+        String first = unpacker.unpackString();
+        assertEquals("proc2", unpacker.unpackString());
+        String again = unpacker.unpackString();
+        assertEquals("The evicted string was not decoded again!", "proc1", again);
+        assertNotSame("The evicted string was returned!", first, again);
+        assertSame("The string was not cached again!", again, unpacker.unpackString());
+    }
+
+    @Test
+    public void slotsCompareTheWholeEncoding() throws Exception {
+        StringCache cache = new StringCache(1, 64);
+        MessageBuffer buffer = MessageBuffer.wrap("abcdabce".getBytes("UTF-8"));
+        int slot = cache.slot(buffer, 0, 4);
+        assertEquals("A cache of one string has more than one slot!", slot, cache.slot(buffer, 4, 4));
+        cache.put(slot, buffer, 0, 4, "abcd");
+        assertEquals("abcd", cache.get(slot, buffer, 0, 4));
+        assertNull("A string with a different encoding was returned!", cache.get(slot, buffer, 4, 4));
+        assertNull("A string with a different length was returned!", cache.get(slot, buffer, 0, 3));
+    }
+
+    @Test
+    public void longStringsAreNotCached() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append('x');
+        }
+        String longString = sb.toString();
+        MessageUnpacker unpacker = newUnpacker(16, pack(longString, longString));
+        String first = unpacker.unpackString();
+        String second = unpacker.unpackString();
+        assertEquals(longString, first);
+        assertEquals(longString, second);
+        assertNotSame("A string above the maximum length was cached!", first, second);
+    }
+
+    @Test
+    public void cacheSurvivesReset() throws Exception {
+        MessageUnpacker unpacker = newUnpacker(16, pack("proc1"));
+        String first = unpacker.unpackString();
+        unpacker.reset(new ArrayBufferInput(pack("proc2", "proc1")));
+        assertEquals("proc2", unpacker.unpackString());
+        assertSame("The cache was dropped by reset!", first, unpacker.unpackString());
+        assertFalse(unpacker.hasNext());
+    }
+
+    @Test
+    public void disabledCacheDecodesEveryString() throws Exception {
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(pack("proc1", "proc1"));
+        assertNotSame("The default unpacker cached a string!", unpacker.unpackString(), unpacker.unpackString());
+    }
+}
@@ -0,0 +1,106 @@
+package org.github.com.jvec.msgpack.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StringDecodingTest {
+    static final MessagePack.UnpackerConfig REPORT = new MessagePack.UnpackerConfig()
+            .withActionOnMalformedString(CodingErrorAction.REPORT)
+            .withActionOnUnmappableString(CodingErrorAction.REPORT);
+
+    private static List<String> strings() {
+        List<String> strings = new ArrayList<>();
+        int[] lengths = {0, 1, 7, 8, 9, 16, 127, 128, 129, 1000};
+        for (int length : lengths) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('a' + i % 26));
+            }
+            strings.add(sb.toString());
+            if (length > 0) {
+                // A non-ASCII character at the start, in the middle and at the end
+                for (int pos : new int[] {0, length / 2, length - 1}) {
+                    strings.add(sb.substring(0, pos) + "\u00e9" + sb.substring(pos + 1));
+                }
+                strings.add(sb.substring(0, length - 1) + "\ud83d\ude00");
+            }
+        }
+        return strings;
+    }
+
+    private static byte[] pack(List<String> strings) throws Exception {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        for (String s : strings) {
+            packer.packString(s);
+        }
+        return packer.toByteArray();
+    }
+
+    private static ByteBuffer direct(byte[] encoded) {
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+        direct.put(encoded).flip();
+        return direct;
+    }
+
+    private static void assertDecoded(List<String> strings, MessageUnpacker unpacker) throws Exception {
+        for (String s : strings) {
+            assertEquals("The string of length " + s.length() + " was not decoded correctly!", s, unpacker.unpackString());
+        }
+        assertFalse(unpacker.hasNext());
+    }
+
+    @Test
+    public void decodeFromArrays() throws Exception {
+        List<String> strings = strings();
+        assertDecoded(strings, MessagePack.newDefaultUnpacker(pack(strings)));
+        assertDecoded(strings, REPORT.newUnpacker(pack(strings)));
+    }
+
+    @Test
+    public void decodeFromDirectBuffers() throws Exception {
+        List<String> strings = strings();
+        assertDecoded(strings, MessagePack.newDefaultUnpacker(direct(pack(strings))));
+        MessageUnpacker unpacker = REPORT.newUnpacker(direct(pack(strings)));
+        assertDecoded(strings, unpacker);
+
+        Field asciiBuffer = MessageUnpacker.class.getDeclaredField("asciiBuffer");
+        asciiBuffer.setAccessible(true);
+        assertTrue("The ASCII buffer grew with the strings!", ((byte[]) asciiBuffer.get(unpacker)).length <= 128);
+    }
+
+    @Test
+    public void decodeFromStreams() throws Exception {
+        List<String> strings = strings();
+        MessagePack.UnpackerConfig config = REPORT.withBufferSize(64);
+        assertDecoded(strings, config.newUnpacker(new ByteArrayInputStream(pack(strings))));
+    }
+
+    @Test
+    public void malformedStrings() throws Exception {
+        byte[] malformed = {(byte) 0xa3, 'a', (byte) 0xff, 'b'};
+        assertEquals("a\ufffdb", MessagePack.newDefaultUnpacker(malformed).unpackString());
+        assertEquals("a\ufffdb", MessagePack.newDefaultUnpacker(direct(malformed)).unpackString());
+        try {
+            REPORT.newUnpacker(malformed).unpackString();
+            fail("The malformed string was not reported!");
+        }
+        catch (MessageStringCodingException e) {
+            // expected
+        }
+        try {
+            REPORT.newUnpacker(direct(malformed)).unpackString();
+            fail("The malformed string was not reported!");
+        }
+        catch (MessageStringCodingException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.github.com.jvec.msgpack.core.buffer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PooledBufferOutputTest {
+    /**
+     * Accepts at most "budget" bytes until it is raised, like a non-blocking socket with a full send buffer.
+     */
+    static class ThrottledChannel implements GatheringByteChannel {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int budget;
+        int calls;
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            calls++;
+            long written = 0;
+            for (int i = offset; i < offset + length && budget > 0; i++) {
+                while (srcs[i].hasRemaining() && budget > 0) {
+                    received.write(srcs[i].get());
+                    budget--;
+                    written++;
+                }
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[] {src});
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static byte[] fill(PooledBufferOutput out, int length) throws Exception {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        out.write(data, 0, data.length);
+        return data;
+    }
+
+    @Test
+    public void writeToResumesAfterPartialWrites() throws Exception {
+        PooledBufferOutput out = new PooledBufferOutput(MessageBufferPool.heap(64, 4));
+        byte[] data = fill(out, 1000);
+        ThrottledChannel channel = new ThrottledChannel();
+
+        assertEquals("A full channel was written!", 0, out.writeTo(channel));
+        assertEquals("A full channel was not given up on!", 1, channel.calls);
+        assertEquals(1000, out.getUnsentSize());
+
+        // Stops within a chunk and at chunk boundaries
+        for (int budget : new int[] {10, 54, 64, 100, 1}) {
+            channel.budget = budget;
+            assertEquals(budget, out.writeTo(channel));
+        }
+        assertEquals(1000 - 229, out.getUnsentSize());
+        channel.budget = Integer.MAX_VALUE;
+        assertEquals(1000 - 229, out.writeTo(channel));
+        assertEquals(0, out.getUnsentSize());
+        assertArrayEquals("The data was not sent in order!", data, channel.received.toByteArray());
+        assertEquals("Sent data was written again!", 0, out.writeTo(channel));
+    }
+
+    @Test
+    public void dataWrittenAfterAPartialSendFollows() throws Exception {
+        PooledBufferOutput out = new PooledBufferOutput(MessageBufferPool.direct(64, 4));
+        byte[] first = fill(out, 100);
+        ThrottledChannel channel = new ThrottledChannel();
+        channel.budget = 70;
+        out.writeTo(channel);
+        byte[] second = fill(out, 50);
+        assertEquals(80, out.getUnsentSize());
+        channel.budget = Integer.MAX_VALUE;
+        assertEquals(80, out.writeTo(channel));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        assertArrayEquals(expected.toByteArray(), channel.received.toByteArray());
+
+        out.clear();
+        assertEquals(0, out.getUnsentSize());
+        byte[] third = fill(out, 10);
+        channel.received.reset();
+        assertEquals("The sent offset was not reset by clear!", 10, out.writeTo(channel));
+        assertArrayEquals(third, channel.received.toByteArray());
+    }
+}
@@ -0,0 +1,119 @@
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.github.com.jvec.msgpack.value.ImmutableValue;
+import org.github.com.jvec.msgpack.value.MapValue;
+import org.github.com.jvec.msgpack.value.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.github.com.jvec.msgpack.value.ValueFactory.*;
+import static org.junit.Assert.*;
+
+public class LazyValueTest {
+    Value eager;
+    byte[] encoded;
+
+    @Before
+    public void setUp() throws Exception {
+        Value[] kvs = new Value[40];
+        for (int i = 0; i < 20; i++) {
+            kvs[2 * i] = newString("key" + i);
+            kvs[2 * i + 1] = newArray(newInteger(i), newString("v\u00e4lue" + i), newBinary(new byte[] {(byte) i}));
+        }
+        eager = newMap(newString("name"), newString("proc1"),
+                newString("fields"), newMap(kvs),
+                newInteger(7), newArray(newNil(), newBoolean(true), newFloat(1.5), newInteger(Long.MAX_VALUE)));
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packValue(eager);
+        encoded = packer.toByteArray();
+    }
+
+    private ImmutableValue unpackLazy(MessageUnpacker unpacker) throws Exception {
+        ImmutableValue value = unpacker.unpackLazyValue();
+        assertFalse("The unpacker did not consume the value!", unpacker.hasNext());
+        return value;
+    }
+
+    @Test
+    public void lazyValuesEqualEagerValues() throws Exception {
+        ImmutableValue lazy = unpackLazy(MessagePack.newDefaultUnpacker(encoded));
+        assertTrue("The value was not unpacked lazily!", lazy instanceof LazyMapValueImpl);
+        assertEquals("The lazy value differs from the eager one!", eager, lazy);
+        assertEquals("The eager value differs from the lazy one!", lazy, eager);
+        assertEquals("The hash codes differ!", eager.hashCode(), lazy.hashCode());
+        assertEquals("The JSON differs!", eager.toJson(), lazy.toJson());
+        assertEquals("The string differs!", eager.toString(), lazy.toString());
+        Value fields = lazy.asMapValue().map().get(newString("fields"));
+        assertTrue("The nested map was not unpacked lazily!", fields instanceof LazyMapValueImpl);
+        assertEquals("The nested hash codes differ!",
+                eager.asMapValue().map().get(newString("fields")).hashCode(), fields.hashCode());
+    }
+
+    @Test
+    public void mapLookups() throws Exception {
+        MapValue lazy = unpackLazy(MessagePack.newDefaultUnpacker(encoded)).asMapValue();
+        assertEquals(newString("proc1"), lazy.map().get(newString("name")));
+        assertEquals(newNil(), lazy.map().get(newInteger(7)).asArrayValue().get(0));
+        assertNull("A missing key was found!", lazy.map().get(newString("missing")));
+        assertTrue(lazy.map().containsKey(newInteger(7L)));
+        MapValue fields = lazy.map().get(newString("fields")).asMapValue();
+        for (int i = 19; i >= 0; i--) {
+            Value entry = fields.map().get(newString("key" + i));
+            assertEquals("The entry was not found!", "v\u00e4lue" + i, entry.asArrayValue().get(1).asStringValue().asString());
+            assertEquals(i, entry.asArrayValue().get(0).asIntegerValue().asInt());
+        }
+        assertEquals(20, fields.size());
+        assertEquals(20, fields.map().size());
+    }
+
+    @Test
+    public void writeToRoundTrips() throws Exception {
+        ImmutableValue lazy = unpackLazy(MessagePack.newDefaultUnpacker(encoded));
+        // Access a few elements first, their encoding must not change
+        lazy.asMapValue().map().get(newString("fields")).asMapValue().map().get(newString("key3"));
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packValue(lazy);
+        packer.packValue(lazy.asMapValue().map().get(newString("fields")));
+        byte[] packed = packer.toByteArray();
+
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(packed);
+        assertEquals("The value did not round-trip!", eager, unpacker.unpackValue());
+        assertEquals("The nested value did not round-trip!",
+                eager.asMapValue().map().get(newString("fields")), unpacker.unpackValue());
+        assertArrayEquals("The encoding changed!", encoded, Arrays.copyOf(packed, encoded.length));
+    }
+
+    @Test
+    public void lazyValuesFromByteBuffers() throws Exception {
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+        direct.put(encoded).flip();
+        ImmutableValue lazy = unpackLazy(MessagePack.newDefaultUnpacker(direct));
+        assertTrue("The value was not unpacked lazily!", lazy instanceof LazyMapValueImpl);
+        assertEquals("The lazy value differs from the eager one!", eager, lazy);
+        assertEquals("The JSON differs!", eager.toJson(), lazy.toJson());
+    }
+
+    @Test
+    public void streamingInputsFallBackToEagerValues() throws Exception {
+        ImmutableValue value = unpackLazy(MessagePack.newDefaultUnpacker(new ByteArrayInputStream(encoded)));
+        assertFalse("A streaming input was unpacked lazily!", value instanceof LazyMapValueImpl);
+        assertEquals("The value differs from the eager one!", eager, value);
+    }
+
+    @Test
+    public void nestedElementsKeepTheConfig() throws Exception {
+        MessagePack.UnpackerConfig config = new MessagePack.UnpackerConfig().withStringCacheSize(16);
+        ImmutableValue lazy = unpackLazy(config.newUnpacker(encoded));
+        Value nested = lazy.asMapValue().map().get(newString("fields"));
+        assertEquals("The lazy value differs from the eager one!", eager, lazy);
+        assertEquals("The nested unpackers do not share the configuration!",
+                config.withStringCacheSize(0), ((AbstractLazyContainerValue) nested).config());
+    }
+}
@@ -0,0 +1,139 @@
+package org.github.com.jvec.msgpack.value.impl;
+
+import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.value.MapValue;
+import org.github.com.jvec.msgpack.value.Value;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.github.com.jvec.msgpack.value.ValueFactory.*;
+import static org.junit.Assert.*;
+
+public class MapIndexTest {
+    private static Value[] entries(int size) {
+        Value[] kvs = new Value[size * 2];
+        for (int i = 0; i < size; i++) {
+            kvs[2 * i] = i % 2 == 0 ? newInteger(i * 1000L) : newString("key" + i);
+            kvs[2 * i + 1] = newString("value" + i);
+        }
+        return kvs;
+    }
+
+    private static MapValue lazy(MapValue map) throws Exception {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packValue(map);
+        return MessagePack.newDefaultUnpacker(packer.toByteArray()).unpackLazyValue().asMapValue();
+    }
+
+    @Test
+    public void factoryIndexesLargeMaps() {
+        assertFalse("A small map was indexed!",
+                newMap(entries(MapIndex.MIN_SIZE - 1)) instanceof ImmutableIndexedMapValueImpl);
+        assertTrue("A large map was not indexed!",
+                newMap(entries(MapIndex.MIN_SIZE)) instanceof ImmutableIndexedMapValueImpl);
+        Map<Value, Value> map = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(newInteger(i), newNil());
+        }
+        assertTrue("A large map was not indexed!", newMap(map) instanceof ImmutableIndexedMapValueImpl);
+    }
+
+    @Test
+    public void lookups() throws Exception {
+        for (int size : new int[] {1, MapIndex.MIN_SIZE - 1, MapIndex.MIN_SIZE, 100, 1000}) {
+            Value[] kvs = entries(size);
+            MapValue eager = newMap(kvs);
+            for (MapValue map : new MapValue[] {eager, lazy(eager)}) {
+                Map<Value, Value> view = map.map();
+                for (int i = size - 1; i >= 0; i--) {
+                    assertEquals("The entry was not found!", kvs[2 * i + 1], view.get(kvs[2 * i]));
+                    assertTrue(view.containsKey(kvs[2 * i]));
+                }
+                assertNull("A missing key was found!", view.get(newString("missing")));
+                assertNull("A missing key was found!", view.get(newInteger(1)));
+                assertFalse(view.containsKey(newInteger(-1000)));
+                assertFalse("A key of another type was found!", view.containsKey("key1"));
+                assertFalse(view.containsKey(null));
+                assertEquals(size, view.size());
+            }
+        }
+    }
+
+    @Test
+    public void integerKeysOfOtherRepresentations() throws Exception {
+        Value[] kvs = entries(50);
+        kvs[0] = newInteger(BigInteger.valueOf(Long.MAX_VALUE));
+        kvs[4] = newInteger((byte) 7);
+        kvs[8] = newInteger(BigInteger.valueOf(-3));
+        MapValue eager = newMap(kvs);
+        for (MapValue map : new MapValue[] {eager, lazy(eager)}) {
+            Map<Value, Value> view = map.map();
+            assertEquals(kvs[1], view.get(newInteger(Long.MAX_VALUE)));
+            assertEquals(kvs[5], view.get(newInteger(7L)));
+            assertEquals(kvs[5], view.get(newInteger(BigInteger.valueOf(7))));
+            assertEquals(kvs[9], view.get(newInteger((short) -3)));
+            assertEquals(kvs[13], view.get(newInteger(BigInteger.valueOf(6000))));
+            assertTrue(view.containsKey(newInteger(BigInteger.valueOf(Long.MAX_VALUE))));
+            assertNull("A key out of the range of long was found!",
+                    view.get(newInteger(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE))));
+        }
+    }
+
+    @Test
+    public void duplicateKeysFindFirstOccurrence() throws Exception {
+        for (int size : new int[] {4, 40}) {
+            Value[] kvs = entries(size);
+            kvs[2 * (size - 1)] = kvs[2];
+            MapValue eager = newMap(kvs);
+            for (MapValue map : new MapValue[] {eager, lazy(eager)}) {
+                assertEquals("The first occurrence was not found!", kvs[3], map.map().get(kvs[2]));
+            }
+        }
+    }
+
+    @Test
+    public void equalityAcrossImplementations() throws Exception {
+        for (int size : new int[] {3, 100}) {
+            Value[] kvs = entries(size);
+            // The same entries in reverse order, with keys of other integer representations
+            Value[] reversed = new Value[kvs.length];
+            for (int i = 0; i < size; i++) {
+                Value key = kvs[2 * i];
+                if (key.isIntegerValue()) {
+                    key = newInteger(key.asIntegerValue().asBigInteger());
+                }
+                reversed[2 * (size - 1 - i)] = key;
+                reversed[2 * (size - 1 - i) + 1] = kvs[2 * i + 1];
+            }
+            MapValue indexed = newMap(kvs);
+            MapValue plain = new ImmutableMapValueImpl(reversed);
+            MapValue lazy = lazy(newMap(reversed));
+            Map<Value, Value> hashed = new HashMap<>(indexed.map());
+            MapValue[] maps = {indexed, plain, lazy, newMap(hashed)};
+            for (MapValue a : maps) {
+                for (MapValue b : maps) {
+                    assertEquals("The maps differ!", a, b);
+                    assertEquals("The hash codes differ!", a.hashCode(), b.hashCode());
+                }
+                assertEquals("The map views differ!", hashed, a.map());
+                assertEquals("The map views differ!", a.map(), hashed);
+            }
+
+            Value[] changed = kvs.clone();
+            changed[1] = newString("changed");
+            Value[] missing = kvs.clone();
+            missing[2] = newString("other");
+            for (MapValue other : new MapValue[] {newMap(changed), newMap(missing), lazy(newMap(missing)),
+                    newMap(entries(size + 1))}) {
+                for (MapValue map : maps) {
+                    assertNotEquals("Different maps are equal!", map, other);
+                    assertNotEquals("Different maps are equal!", other, map);
+                }
+            }
+        }
+    }
+}
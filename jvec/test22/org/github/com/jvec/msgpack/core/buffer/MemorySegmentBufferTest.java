@@ -0,0 +1,195 @@
+package org.github.com.jvec.msgpack.core.buffer;
+
+import org.github.com.jvec.msgpack.core.MessageBufferPacker;
+import org.github.com.jvec.msgpack.core.MessagePack;
+import org.github.com.jvec.msgpack.core.MessagePacker;
+import org.github.com.jvec.msgpack.core.MessageUnpacker;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MemorySegmentBufferTest {
+    private static final long GB = 1L << 30;
+
+    private static void pack(MessagePacker packer) throws IOException {
+        for (int i = 0; i < 50; i++) {
+            packer.packLong(i * 0x0123456789L);
+            packer.packString("message" + i);
+            byte[] payload = new byte[i * 7];
+            Arrays.fill(payload, (byte) i);
+            packer.packBinaryHeader(payload.length);
+            packer.writePayload(payload);
+            packer.packDouble(i / 3.0);
+        }
+        packer.flush();
+    }
+
+    private static void unpack(MessageUnpacker unpacker) throws IOException {
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i * 0x0123456789L, unpacker.unpackLong());
+            assertEquals("message" + i, unpacker.unpackString());
+            byte[] payload = new byte[i * 7];
+            Arrays.fill(payload, (byte) i);
+            assertArrayEquals(payload, unpacker.readPayload(unpacker.unpackBinaryHeader()));
+            assertEquals(i / 3.0, unpacker.unpackDouble(), 0);
+        }
+        assertFalse(unpacker.hasNext());
+    }
+
+    private static byte[] expected() throws IOException {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        pack(packer);
+        return packer.toByteArray();
+    }
+
+    @Test
+    public void getAndPutMatchArrayBuffer() {
+        try (Arena arena = Arena.ofConfined()) {
+            MessageBufferMS segment = MessageBufferMS.wrap(arena.allocate(64));
+            MessageBuffer array = MessageBuffer.wrap(new byte[64]);
+            for (MessageBuffer buffer : new MessageBuffer[] {segment, array}) {
+                buffer.putByte(0, (byte) 0xc3);
+                buffer.putShort(1, (short) 0xabcd);
+                buffer.putInt(3, 0x01020304);
+                buffer.putLong(7, 0x0102030405060708L);
+                buffer.putBoolean(15, true);
+                buffer.putBytes(16, new byte[] {9, 8, 7, 6}, 1, 3);
+            }
+            assertArrayEquals("The segment buffer was not written big-endian!", array.toByteArray(),
+                    segment.toByteArray());
+            assertEquals(array.getShort(1), segment.getShort(1));
+            assertEquals(array.getInt(3), segment.getInt(3));
+            assertEquals(array.getLong(7), segment.getLong(7));
+            assertEquals(0x0304050607080000L, segment.getLong(9) & 0xffffffffffff0000L);
+            assertTrue(segment.getBoolean(15));
+
+            MessageBuffer slice = segment.slice(3, 12);
+            assertEquals(0x01020304, slice.getInt(0));
+            slice.putInt(0, -1);
+            assertEquals("The slice does not share the segment!", -1, segment.getInt(3));
+
+            MessageBufferMS copy = MessageBufferMS.wrap(arena.allocate(64));
+            segment.copyTo(0, copy, 0, 64);
+            assertArrayEquals(segment.toByteArray(), copy.toByteArray());
+            copy.putMessageBuffer(32, array, 0, 32);
+            byte[] bytes = new byte[32];
+            copy.getBytes(32, bytes, 0, 32);
+            assertArrayEquals(Arrays.copyOf(array.toByteArray(), 32), bytes);
+        }
+    }
+
+    @Test
+    public void windowedPackAndUnpack() throws Exception {
+        try (Arena arena = Arena.ofConfined()) {
+            // Windows smaller than the values make the packer and the unpacker cross window boundaries
+            MemorySegmentBufferOutput out = new MemorySegmentBufferOutput(arena.allocate(64 * 1024), 16);
+            pack(MessagePack.newDefaultPacker(out));
+            byte[] expected = expected();
+            assertEquals(expected.length, out.position());
+            assertArrayEquals("The windows were not written contiguously!", expected,
+                    out.written().toArray(ValueLayout.JAVA_BYTE));
+
+            MemorySegmentBufferInput in = new MemorySegmentBufferInput(out.written(), 7);
+            unpack(MessagePack.newDefaultUnpacker(in));
+            assertEquals(expected.length, in.position());
+        }
+    }
+
+    @Test
+    public void writingPastTheEndFails() throws Exception {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegmentBufferOutput out = MemorySegmentBufferOutput.allocate(arena, 100);
+            try {
+                pack(MessagePack.newDefaultPacker(out));
+                fail("A full segment was written!");
+            }
+            catch (IOException e) {
+                // expected
+            }
+            assertTrue(out.position() <= 100);
+        }
+    }
+
+    @Test
+    public void closedArenaFailsSafely() {
+        MessageBufferMS buffer;
+        try (Arena arena = Arena.ofConfined()) {
+            buffer = MessageBufferMS.wrap(arena.allocate(16));
+            buffer.putLong(0, 1);
+        }
+        try {
+            buffer.getLong(0);
+            fail("A buffer of a closed arena was read!");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void offsetsBeyondTwoGigabytes() throws Exception {
+        // A sparse memory-mapped file, only the pages written at the end take up memory
+        Path file = Files.createTempFile("jvec-segment", ".bin");
+        try {
+            long size = 3 * GB;
+            byte[] expected = expected();
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment segment;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+                }
+                try {
+                    MessageBufferMS.wrap(segment);
+                    fail("A segment larger than 2 GB was wrapped!");
+                }
+                catch (IllegalArgumentException e) {
+                    // expected
+                }
+
+                MemorySegmentBufferOutput out = new MemorySegmentBufferOutput(segment, (int) GB);
+                // Skip the first 2 GB without touching them
+                for (int i = 0; i < 2; i++) {
+                    MessageBuffer window = out.next(1);
+                    assertEquals(GB, window.size());
+                    out.writeBuffer(window.size());
+                }
+                assertEquals(2 * GB, out.position());
+                pack(MessagePack.newDefaultPacker(out));
+                assertEquals(2 * GB + expected.length, out.position());
+                assertArrayEquals("The values were not written at the long offset!", expected,
+                        segment.asSlice(2 * GB, expected.length).toArray(ValueLayout.JAVA_BYTE));
+            }
+
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegmentBufferInput in = MemorySegmentBufferInput.map(file, arena);
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(GB, in.next().size());
+                }
+                assertEquals(2 * GB, in.position());
+                MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(in);
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(i * 0x0123456789L, unpacker.unpackLong());
+                    assertEquals("message" + i, unpacker.unpackString());
+                    unpacker.skipValue();
+                    assertEquals(i / 3.0, unpacker.unpackDouble(), 0);
+                }
+                // The rest of the file is zeros, i.e. positive fixints
+                assertEquals(0, unpacker.unpackInt());
+                assertEquals(size, in.position());
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
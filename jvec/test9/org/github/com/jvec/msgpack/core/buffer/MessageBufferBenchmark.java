@@ -0,0 +1,119 @@
+package org.github.com.jvec.msgpack.core.buffer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the primitive get/put throughput of the MessageBuffer implementations.
+ * Run with "java org.github.com.jvec.msgpack.core.buffer.MessageBufferBenchmark" on Java 9+ with the
+ * Java 9 classes on the class path. Every implementation is measured in a JVM of its own, since sharing the
+ * benchmark loops between several MessageBuffer classes makes their calls megamorphic, which is exactly what
+ * MessageBuffer avoids by selecting a single implementation. The Unsafe-based default implementation is
+ * measured with "-Dmsgpack.universal-buffer=false" only if the JVM selects it, i.e. on Java 8.
+ */
+public class MessageBufferBenchmark {
+
+    private static final int SIZE = 64 * 1024;
+    private static final int ROUNDS = 200;
+    private static final int WARMUP_ROUNDS = 200;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1) {
+            run(args[0]);
+            return;
+        }
+        System.out.println("Selected implementation: " + MessageBuffer.allocate(0).getClass().getSimpleName());
+        String[] variants = MessageBuffer.unsafe != null
+                ? new String[] {"unsafe", "universal", "varhandle", "varhandle-direct"}
+                : new String[] {"universal", "varhandle", "varhandle-direct"};
+        for (String variant : variants) {
+            Process fork = new ProcessBuilder(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-cp", System.getProperty("java.class.path"),
+                    MessageBufferBenchmark.class.getName(), variant).inheritIO().start();
+            fork.waitFor();
+        }
+    }
+
+    private static void run(String variant) {
+        switch (variant) {
+            case "unsafe":
+                run("MessageBuffer (Unsafe)", MessageBuffer.wrap(new byte[SIZE]));
+                break;
+            case "universal":
+                run("MessageBufferU (ByteBuffer)", new MessageBufferU(new byte[SIZE], 0, SIZE));
+                break;
+            case "varhandle":
+                run("MessageBufferVH (array)", new MessageBufferVH(new byte[SIZE], 0, SIZE));
+                break;
+            default:
+                run("MessageBufferVH (direct)", new MessageBufferVH(ByteBuffer.allocateDirect(SIZE)));
+                break;
+        }
+    }
+
+    private static void run(String name, MessageBuffer buffer) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += longs(buffer) + ints(buffer) + mixed(buffer);
+        }
+        long longNanos = 0;
+        long intNanos = 0;
+        long mixedNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += longs(buffer);
+            long afterLongs = System.nanoTime();
+            sink += ints(buffer);
+            long afterInts = System.nanoTime();
+            sink += mixed(buffer);
+            mixedNanos += System.nanoTime() - afterInts;
+            intNanos += afterInts - afterLongs;
+            longNanos += afterLongs - start;
+        }
+        System.out.printf("%-28s long %6.3f ns/op  int %6.3f ns/op  mixed %6.3f ns/op  (%d)%n", name,
+                perOp(longNanos, SIZE / 8), perOp(intNanos, SIZE / 4), perOp(mixedNanos, SIZE / 13), sink & 1);
+    }
+
+    private static double perOp(long nanos, int opsPerRound) {
+        return (double) nanos / ROUNDS / opsPerRound / 2;
+    }
+
+    private static long longs(MessageBuffer buffer) {
+        for (int i = 0; i + 8 <= SIZE; i += 8) {
+            buffer.putLong(i, i * 31L);
+        }
+        long sum = 0;
+        for (int i = 0; i + 8 <= SIZE; i += 8) {
+            sum += buffer.getLong(i);
+        }
+        return sum;
+    }
+
+    private static long ints(MessageBuffer buffer) {
+        for (int i = 0; i + 4 <= SIZE; i += 4) {
+            buffer.putInt(i, i * 31);
+        }
+        long sum = 0;
+        for (int i = 0; i + 4 <= SIZE; i += 4) {
+            sum += buffer.getInt(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Writes and reads the layout of packed clock entries: a type byte, an int and a long at unaligned offsets.
+     */
+    private static long mixed(MessageBuffer buffer) {
+        for (int i = 0; i + 13 <= SIZE; i += 13) {
+            buffer.putByte(i, (byte) 0xcf);
+            buffer.putInt(i + 1, i);
+            buffer.putLong(i + 5, i * 31L);
+        }
+        long sum = 0;
+        for (int i = 0; i + 13 <= SIZE; i += 13) {
+            sum += buffer.getByte(i) + buffer.getInt(i + 1) + buffer.getLong(i + 5);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,129 @@
+package org.github.com.jvec.msgpack.core.buffer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks MessageBufferVH against MessageBufferU, which implements the same accesses with a ByteBuffer.
+ * MessageBufferVH is compiled from java9/, so this test needs the Java 9 classes on the class path.
+ */
+public class MessageBufferVHTest {
+    private static final int SIZE = 256;
+    private static final int OFFSET = 13;
+
+    private static MessageBuffer[] vhBuffers() {
+        ByteBuffer heap = ByteBuffer.allocate(SIZE + OFFSET);
+        heap.position(OFFSET);
+        ByteBuffer direct = ByteBuffer.allocateDirect(SIZE + OFFSET);
+        direct.position(OFFSET);
+        return new MessageBuffer[] {
+                new MessageBufferVH(new byte[SIZE + OFFSET], OFFSET, SIZE),
+                new MessageBufferVH(heap.slice()),
+                new MessageBufferVH(direct.slice()),
+                new MessageBufferVH(new byte[SIZE + 2 * OFFSET], 0, SIZE + 2 * OFFSET).slice(OFFSET, SIZE),
+                new MessageBufferVH(ByteBuffer.allocateDirect(SIZE + 2 * OFFSET)).slice(OFFSET, SIZE)
+        };
+    }
+
+    private static void write(MessageBuffer buffer, long seed) {
+        Random random = new Random(seed);
+        // Every width at every alignment
+        for (int index = 0; index + 8 <= SIZE; index += 15) {
+            buffer.putByte(index, (byte) random.nextInt());
+            buffer.putBoolean(index + 1, random.nextBoolean());
+            buffer.putShort(index + 2 + (index & 1), (short) random.nextInt());
+            buffer.putInt(index + 5, random.nextInt());
+        }
+        for (int index = 3; index + 8 <= SIZE; index += 23) {
+            buffer.putLong(index, random.nextLong());
+        }
+        buffer.putFloat(100, random.nextFloat());
+        buffer.putDouble(107, random.nextDouble());
+        buffer.putBytes(SIZE - 20, new byte[] {1, 2, 3, 4, 5, 6, 7}, 2, 5);
+    }
+
+    private static void assertSameContents(MessageBuffer expected, MessageBuffer actual) {
+        assertArrayEquals("The buffers differ!", expected.toByteArray(), actual.toByteArray());
+        for (int index = 0; index < SIZE; index++) {
+            assertEquals(expected.getByte(index), actual.getByte(index));
+            assertEquals(expected.getBoolean(index), actual.getBoolean(index));
+            if (index + 2 <= SIZE) {
+                assertEquals("The short at " + index + " differs!", expected.getShort(index), actual.getShort(index));
+            }
+            if (index + 4 <= SIZE) {
+                assertEquals("The int at " + index + " differs!", expected.getInt(index), actual.getInt(index));
+                assertEquals(Float.floatToRawIntBits(expected.getFloat(index)),
+                        Float.floatToRawIntBits(actual.getFloat(index)));
+            }
+            if (index + 8 <= SIZE) {
+                assertEquals("The long at " + index + " differs!", expected.getLong(index), actual.getLong(index));
+                assertEquals(Double.doubleToRawLongBits(expected.getDouble(index)),
+                        Double.doubleToRawLongBits(actual.getDouble(index)));
+            }
+        }
+        byte[] expectedBytes = new byte[40];
+        byte[] actualBytes = new byte[40];
+        expected.getBytes(SIZE - 37, expectedBytes, 3, 37);
+        actual.getBytes(SIZE - 37, actualBytes, 3, 37);
+        assertArrayEquals(expectedBytes, actualBytes);
+        assertEquals(expected.sliceAsByteBuffer(7, 50), actual.sliceAsByteBuffer(7, 50));
+    }
+
+    @Test
+    public void getAndPutMatchUniversalBuffer() {
+        MessageBuffer universal = new MessageBufferU(new byte[SIZE], 0, SIZE);
+        write(universal, 42);
+        for (MessageBuffer buffer : vhBuffers()) {
+            assertEquals(SIZE, buffer.size());
+            write(buffer, 42);
+            assertSameContents(universal, buffer);
+        }
+    }
+
+    @Test
+    public void writesStayWithinTheBuffer() {
+        byte[] array = new byte[SIZE + 2 * OFFSET];
+        Arrays.fill(array, (byte) 0x5a);
+        MessageBuffer buffer = new MessageBufferVH(array, OFFSET, SIZE);
+        write(buffer, 7);
+        buffer.putLong(SIZE - 8, -1L);
+        for (int i = 0; i < OFFSET; i++) {
+            assertEquals("A byte in front of the buffer was written!", 0x5a, array[i]);
+            assertEquals("A byte behind the buffer was written!", 0x5a, array[OFFSET + SIZE + i]);
+        }
+        assertEquals(-1L, buffer.getLong(SIZE - 8));
+        assertTrue(buffer.hasArray());
+        assertSame(array, buffer.array());
+        assertEquals(OFFSET, buffer.arrayOffset());
+    }
+
+    @Test
+    public void copiesBetweenImplementations() {
+        MessageBuffer universal = new MessageBufferU(new byte[SIZE], 0, SIZE);
+        write(universal, 3);
+        for (MessageBuffer buffer : vhBuffers()) {
+            buffer.putMessageBuffer(0, universal, 0, SIZE);
+            assertSameContents(universal, buffer);
+
+            MessageBuffer copy = new MessageBufferU(new byte[SIZE], 0, SIZE);
+            buffer.copyTo(0, copy, 0, SIZE);
+            assertSameContents(buffer, copy);
+
+            for (MessageBuffer other : vhBuffers()) {
+                other.putMessageBuffer(0, buffer, 0, SIZE);
+                assertSameContents(universal, other);
+            }
+
+            MessageBuffer cleared = vhBuffers()[2];
+            ByteBuffer source = universal.sliceAsByteBuffer();
+            cleared.putByteBuffer(0, source, SIZE);
+            assertEquals("The source was not consumed!", 0, source.remaining());
+            assertSameContents(universal, cleared);
+        }
+    }
+}